@@ -0,0 +1,96 @@
+package com.sismics.docs.core.util;
+
+import com.sismics.util.ImageUtil;
+import com.sismics.util.Scalr;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the thumbnail generation of a photo.
+ * Run with -prof gc to compare the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ThumbnailBenchmark {
+    /**
+     * Width of the photo, the height is 3/4 of it.
+     */
+    @Param({ "4000", "7680" })
+    public int width;
+
+    /**
+     * Photo file.
+     */
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int height = width * 3 / 4;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.BLUE, width, height, Color.ORANGE));
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+
+        file = Files.createTempFile("thumbnail_benchmark", ".jpg");
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            ImageUtil.writeJpeg(image, outputStream);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Full decoding, each image resized from the full image.
+     *
+     * @return Images
+     * @throws Exception e
+     */
+    @Benchmark
+    public BufferedImage[] fullDecoding() throws Exception {
+        BufferedImage image = ImageIO.read(file.toFile());
+        BufferedImage web = Scalr.resize(image, Scalr.Method.ULTRA_QUALITY, Scalr.Mode.AUTOMATIC, ThumbnailUtil.WEB_SIZE);
+        BufferedImage thumbnail = Scalr.resize(image, Scalr.Method.ULTRA_QUALITY, Scalr.Mode.AUTOMATIC, ThumbnailUtil.THUMBNAIL_SIZE);
+        image.flush();
+        return new BufferedImage[] { web, thumbnail };
+    }
+
+    /**
+     * Subsampled decoding, the thumbnail resized from the "web" image.
+     *
+     * @return Images
+     * @throws Exception e
+     */
+    @Benchmark
+    public BufferedImage[] subsampledDecoding() throws Exception {
+        return ThumbnailUtil.resize(ImageUtil.readSubsampled(file, ThumbnailUtil.WEB_SIZE));
+    }
+}
@@ -0,0 +1,76 @@
+package com.sismics.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the skew detection of a scanned page, as prepared for the OCR.
+ * The angle accuracy of both modes on noisy pages is checked by TestImageDeskew.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DeskewBenchmark {
+    /**
+     * Skew angle of the page in degrees.
+     */
+    @Param({ "-3.3", "0.7", "8.1" })
+    public double angle;
+
+    /**
+     * Page upscaled to the OCR resolution.
+     */
+    private BufferedImage image;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // A4 page at 300 DPI with lines of text and scan noise
+        BufferedImage page = new BufferedImage(2480, 3508, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = page.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, page.getWidth(), page.getHeight());
+        graphics.rotate(Math.toRadians(angle), page.getWidth() / 2.0, page.getHeight() / 2.0);
+        graphics.setColor(Color.BLACK);
+        graphics.setFont(new Font(Font.SERIF, Font.PLAIN, 40));
+        for (int y = 200; y < page.getHeight() - 200; y += 60) {
+            graphics.drawString("All human beings are born free and equal in dignity and rights, they are", 200, y);
+        }
+        graphics.dispose();
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            page.setRGB(random.nextInt(page.getWidth()), random.nextInt(page.getHeight()), 0x303030);
+        }
+
+        image = Scalr.resize(page, Scalr.Method.AUTOMATIC, Scalr.Mode.AUTOMATIC, 3500, Scalr.OP_ANTIALIAS, Scalr.OP_GRAYSCALE);
+    }
+
+    @Benchmark
+    public double full() {
+        return new ImageDeskew(image).getSkewAngle();
+    }
+
+    @Benchmark
+    public double fast() {
+        return new ImageDeskew(image).getSkewAngleFast();
+    }
+}
@@ -7,9 +7,17 @@ package com.sismics.docs.core.constant;
  */
 public enum ConfigType {
     /**
-     * Lucene directory storage type.
+     * Lucene directory storage type: RAM, FILE or MMAP.
      */
     LUCENE_DIRECTORY_STORAGE,
+    /**
+     * Checkpoint of an interrupted rebuild of the PostgreSQL search index.
+     */
+    INDEX_REBUILD_CHECKPOINT,
+    /**
+     * Version and text search configuration of the PostgreSQL search vectors.
+     */
+    POSTGRESQL_INDEX_VERSION,
     /**
      * Theme configuration.
      */
@@ -83,6 +83,143 @@ public class Constants {
      */
     public static final String BCRYPT_WORK_ENV = "DOCS_BCRYPT_WORK";
 
+    /**
+     * Lucene commit policy environment variables.
+     */
+    public static final String LUCENE_COMMIT_INTERVAL_ENV = "DOCS_LUCENE_COMMIT_INTERVAL";
+    public static final String LUCENE_COMMIT_MAX_OPERATIONS_ENV = "DOCS_LUCENE_COMMIT_MAX_OPERATIONS";
+
+    /**
+     * Default interval between two Lucene commits in seconds.
+     */
+    public static final int DEFAULT_LUCENE_COMMIT_INTERVAL = 10;
+
+    /**
+     * Default number of index operations before forcing a Lucene commit.
+     */
+    public static final int DEFAULT_LUCENE_COMMIT_MAX_OPERATIONS = 1000;
+
+    /**
+     * Minimum interval between two rebuilds of the search suggester environment variable.
+     */
+    public static final String LUCENE_SUGGESTER_INTERVAL_ENV = "DOCS_LUCENE_SUGGESTER_INTERVAL";
+
+    /**
+     * Default minimum interval between two rebuilds of the search suggester in seconds.
+     */
+    public static final int DEFAULT_LUCENE_SUGGESTER_INTERVAL = 60;
+
+    /**
+     * Maximum time in milliseconds before the indexed changes are searchable.
+     */
+    public static final String LUCENE_REFRESH_INTERVAL_ENV = "DOCS_LUCENE_REFRESH_INTERVAL";
+
+    /**
+     * Default maximum time in milliseconds before the indexed changes are searchable.
+     */
+    public static final int DEFAULT_LUCENE_REFRESH_INTERVAL = 1000;
+
+    /**
+     * Store the file contents in the Lucene index environment variable.
+     * When disabled, highlights are built from the contents in the database.
+     */
+    public static final String LUCENE_STORE_CONTENT_ENV = "DOCS_LUCENE_STORE_CONTENT";
+
+    /**
+     * Index the contents of multi-page files page by page environment variable.
+     */
+    public static final String LUCENE_PAGE_INDEXING_ENV = "DOCS_LUCENE_PAGE_INDEXING";
+
+    /**
+     * Separator of the pages in the extracted file contents, as written by Tesseract.
+     */
+    public static final String PAGE_SEPARATOR = "\f";
+
+    /**
+     * Verify the whole Lucene index in the background on startup environment variable.
+     */
+    public static final String LUCENE_CHECK_ON_STARTUP_ENV = "DOCS_LUCENE_CHECK_ON_STARTUP";
+
+    /**
+     * Maximum number of searches in the Lucene result cache environment variable.
+     */
+    public static final String LUCENE_RESULT_CACHE_SIZE_ENV = "DOCS_LUCENE_RESULT_CACHE_SIZE";
+
+    /**
+     * Default maximum number of searches in the Lucene result cache.
+     */
+    public static final int DEFAULT_LUCENE_RESULT_CACHE_SIZE = 100;
+
+    /**
+     * Lucene index shard period environment variable (NONE, YEAR or MONTH).
+     */
+    public static final String LUCENE_SHARD_PERIOD_ENV = "DOCS_LUCENE_SHARD_PERIOD";
+
+    /**
+     * Time budget of a documents search in milliseconds environment variable.
+     */
+    public static final String SEARCH_TIMEOUT_ENV = "DOCS_SEARCH_TIMEOUT";
+
+    /**
+     * Default time budget of a documents search in milliseconds.
+     */
+    public static final int DEFAULT_SEARCH_TIMEOUT = 10000;
+
+    /**
+     * Number of file processing threads environment variable.
+     */
+    public static final String FILE_PROCESSING_THREADS_ENV = "DOCS_FILE_PROCESSING_THREADS";
+
+    /**
+     * Maximum number of queued file processings environment variable.
+     */
+    public static final String FILE_PROCESSING_QUEUE_SIZE_ENV = "DOCS_FILE_PROCESSING_QUEUE_SIZE";
+
+    /**
+     * Default maximum number of queued file processings.
+     */
+    public static final int DEFAULT_FILE_PROCESSING_QUEUE_SIZE = 1000;
+
+    /**
+     * Number of OCR threads environment variable.
+     */
+    public static final String OCR_THREADS_ENV = "DOCS_OCR_THREADS";
+
+    /**
+     * Memory budget of the pages being OCR-ized in megabytes environment variable.
+     */
+    public static final String OCR_MEMORY_BUDGET_ENV = "DOCS_OCR_MEMORY_BUDGET";
+
+    /**
+     * Number of thumbnail generation threads environment variable.
+     */
+    public static final String THUMBNAIL_THREADS_ENV = "DOCS_THUMBNAIL_THREADS";
+
+    /**
+     * Maximum number of characters of the text content extracted from a file environment variable.
+     */
+    public static final String CONTENT_MAX_SIZE_ENV = "DOCS_CONTENT_MAX_SIZE";
+
+    /**
+     * Default maximum number of characters of the text content extracted from a file.
+     */
+    public static final int DEFAULT_CONTENT_MAX_SIZE = 10_000_000;
+
+    /**
+     * PostgreSQL fulltext search activation environment variable.
+     */
+    public static final String POSTGRESQL_FULLTEXT_ENV = "DOCS_POSTGRESQL_FULLTEXT";
+
+    /**
+     * PostgreSQL text search configuration environment variable.
+     */
+    public static final String POSTGRESQL_FULLTEXT_CONFIG_ENV = "DOCS_POSTGRESQL_FULLTEXT_CONFIG";
+
+    /**
+     * Default PostgreSQL text search configuration.
+     */
+    public static final String DEFAULT_POSTGRESQL_FULLTEXT_CONFIG = "simple";
+
     /**
      * Expiration time of the password recovery in hours.
      */
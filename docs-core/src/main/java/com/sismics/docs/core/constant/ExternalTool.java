@@ -0,0 +1,54 @@
+package com.sismics.docs.core.constant;
+
+/**
+ * External tool run by the file processing.
+ * The maximum number of concurrent processes and the timeout of each tool
+ * can be overridden by the DOCS_[TOOL]_MAX_PROCESSES and DOCS_[TOOL]_TIMEOUT environment variables.
+ */
+public enum ExternalTool {
+    /**
+     * OCR of an image.
+     */
+    TESSERACT(300),
+
+    /**
+     * Thumbnail of a video.
+     */
+    FFMPEG(120),
+
+    /**
+     * Metadata of a video.
+     */
+    MEDIAINFO(60);
+
+    /**
+     * Default timeout, in seconds.
+     */
+    private final int defaultTimeout;
+
+    ExternalTool(int defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    public int getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    /**
+     * Returns the maximum number of concurrent processes environment variable.
+     *
+     * @return Environment variable
+     */
+    public String getMaxProcessesEnv() {
+        return "DOCS_" + name() + "_MAX_PROCESSES";
+    }
+
+    /**
+     * Returns the timeout in seconds environment variable.
+     *
+     * @return Environment variable
+     */
+    public String getTimeoutEnv() {
+        return "DOCS_" + name() + "_TIMEOUT";
+    }
+}
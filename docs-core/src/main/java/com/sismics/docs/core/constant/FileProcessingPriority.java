@@ -0,0 +1,17 @@
+package com.sismics.docs.core.constant;
+
+/**
+ * Priority of a file processing.
+ * Files are processed in the order of the priorities, then in the order of submission.
+ */
+public enum FileProcessingPriority {
+    /**
+     * File uploaded or reprocessed by a user.
+     */
+    INTERACTIVE,
+
+    /**
+     * File reprocessed in bulk, by the routing actions.
+     */
+    BULK
+}
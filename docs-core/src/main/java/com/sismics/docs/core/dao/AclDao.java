@@ -13,8 +13,13 @@ import com.sismics.util.context.ThreadLocalContext;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -116,6 +121,35 @@ public class AclDao {
         return aclDtoList;
     }
 
+    /**
+     * Returns the targets allowed to read documents, directly or through the tags of the documents.
+     *
+     * @param documentIdList Document ID list
+     * @return Set of target IDs by document ID
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Set<String>> getReadTargetIdMap(Collection<String> documentIdList) {
+        Map<String, Set<String>> targetIdMap = new HashMap<>();
+        if (documentIdList.isEmpty()) {
+            return targetIdMap;
+        }
+
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        StringBuilder sb = new StringBuilder("select a.ACL_SOURCEID_C, a.ACL_TARGETID_C from T_ACL a ")
+                .append(" where a.ACL_SOURCEID_C in (:documentIdList) and a.ACL_PERM_C = 'READ' and a.ACL_DELETEDATE_D is null ")
+                .append(" union ")
+                .append(" select dt.DOT_IDDOCUMENT_C, a.ACL_TARGETID_C from T_DOCUMENT_TAG dt ")
+                .append(" join T_ACL a on a.ACL_SOURCEID_C = dt.DOT_IDTAG_C and a.ACL_PERM_C = 'READ' and a.ACL_DELETEDATE_D is null ")
+                .append(" where dt.DOT_IDDOCUMENT_C in (:documentIdList) and dt.DOT_DELETEDATE_D is null ");
+        Query q = em.createNativeQuery(sb.toString());
+        q.setParameter("documentIdList", documentIdList);
+        List<Object[]> l = q.getResultList();
+        for (Object[] o : l) {
+            targetIdMap.computeIfAbsent((String) o[0], k -> new HashSet<>()).add((String) o[1]);
+        }
+        return targetIdMap;
+    }
+
     /**
      * Check if a source is accessible to a target.
      *
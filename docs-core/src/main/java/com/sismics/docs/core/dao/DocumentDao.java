@@ -12,8 +12,14 @@ import jakarta.persistence.NoResultException;
 import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -59,6 +65,96 @@ public class DocumentDao {
         return q.getResultList();
     }
 
+    /**
+     * Returns the active documents following a document ID, ordered by ID.
+     *
+     * @param lastId ID of the last document of the previous page, null for the first page
+     * @param limit Limit
+     * @param createDateMin Minimum creation date, inclusive. Null if unbounded
+     * @param createDateMax Maximum creation date, exclusive. Null if unbounded
+     * @return List of documents
+     */
+    public List<Document> findAllAfter(String lastId, int limit, Date createDateMin, Date createDateMax) {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        TypedQuery<Document> q = em.createQuery("select d from Document d where d.deleteDate is null"
+                + (lastId == null ? "" : " and d.id > :lastId")
+                + (createDateMin == null ? "" : " and d.createDate >= :createDateMin")
+                + (createDateMax == null ? "" : " and d.createDate < :createDateMax")
+                + " order by d.id", Document.class);
+        if (lastId != null) {
+            q.setParameter("lastId", lastId);
+        }
+        if (createDateMin != null) {
+            q.setParameter("createDateMin", createDateMin);
+        }
+        if (createDateMax != null) {
+            q.setParameter("createDateMax", createDateMax);
+        }
+        q.setMaxResults(limit);
+        return q.getResultList();
+    }
+
+    /**
+     * Returns the months in which the active documents have been created.
+     *
+     * @return Months
+     */
+    public Set<YearMonth> getCreateMonths() {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        List<Object[]> l = em.createQuery("select distinct year(d.createDate), month(d.createDate) from Document d where d.deleteDate is null", Object[].class)
+                .getResultList();
+        Set<YearMonth> monthSet = new HashSet<>();
+        for (Object[] o : l) {
+            monthSet.add(YearMonth.of(((Number) o[0]).intValue(), ((Number) o[1]).intValue()));
+        }
+        return monthSet;
+    }
+
+    /**
+     * Returns the creation dates of documents.
+     *
+     * @param documentIds Documents IDs
+     * @return Creation date by document ID
+     */
+    public Map<String, Date> getCreateDateMap(Collection<String> documentIds) {
+        Map<String, Date> createDateMap = new HashMap<>();
+        if (documentIds.isEmpty()) {
+            return createDateMap;
+        }
+
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        List<Object[]> l = em.createQuery("select d.id, d.createDate from Document d where d.id in :documentIds", Object[].class)
+                .setParameter("documentIds", documentIds)
+                .getResultList();
+        for (Object[] o : l) {
+            createDateMap.put((String) o[0], (Date) o[1]);
+        }
+        return createDateMap;
+    }
+
+    /**
+     * Returns the number of active documents.
+     *
+     * @return Number of documents
+     */
+    public long countAll() {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        return em.createQuery("select count(d) from Document d where d.deleteDate is null", Long.class).getSingleResult();
+    }
+
+    /**
+     * Returns the list of all active documents linked to a tag.
+     *
+     * @param tagId Tag ID
+     * @return List of documents
+     */
+    public List<Document> findByTagId(String tagId) {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        TypedQuery<Document> q = em.createQuery("select d from Document d, DocumentTag dt where dt.documentId = d.id and dt.tagId = :tagId and dt.deleteDate is null and d.deleteDate is null", Document.class);
+        q.setParameter("tagId", tagId);
+        return q.getResultList();
+    }
+
     /**
      * Returns the list of all active documents from a user.
      * 
@@ -1,10 +1,14 @@
 package com.sismics.docs.core.dao;
 
+import java.time.YearMonth;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import com.sismics.docs.core.constant.AuditLogType;
@@ -60,6 +64,62 @@ public class FileDao {
         return q.getResultList();
     }
     
+    /**
+     * Returns the active files following a file ID, ordered by ID.
+     * The files are filtered by the creation date of their document, or their own for orphan files.
+     *
+     * @param lastId ID of the last file of the previous page, null for the first page
+     * @param limit Limit
+     * @param createDateMin Minimum creation date, inclusive. Null if unbounded
+     * @param createDateMax Maximum creation date, exclusive. Null if unbounded
+     * @return List of files
+     */
+    public List<File> findAllAfter(String lastId, int limit, Date createDateMin, Date createDateMax) {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        TypedQuery<File> q = em.createQuery("select f from File f left join Document d on d.id = f.documentId where f.deleteDate is null"
+                + (lastId == null ? "" : " and f.id > :lastId")
+                + (createDateMin == null ? "" : " and coalesce(d.createDate, f.createDate) >= :createDateMin")
+                + (createDateMax == null ? "" : " and coalesce(d.createDate, f.createDate) < :createDateMax")
+                + " order by f.id", File.class);
+        if (lastId != null) {
+            q.setParameter("lastId", lastId);
+        }
+        if (createDateMin != null) {
+            q.setParameter("createDateMin", createDateMin);
+        }
+        if (createDateMax != null) {
+            q.setParameter("createDateMax", createDateMax);
+        }
+        q.setMaxResults(limit);
+        return q.getResultList();
+    }
+
+    /**
+     * Returns the months in which the active orphan files have been created.
+     *
+     * @return Months
+     */
+    public Set<YearMonth> getOrphanCreateMonths() {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        List<Object[]> l = em.createQuery("select distinct year(f.createDate), month(f.createDate) from File f where f.documentId is null and f.deleteDate is null", Object[].class)
+                .getResultList();
+        Set<YearMonth> monthSet = new HashSet<>();
+        for (Object[] o : l) {
+            monthSet.add(YearMonth.of(((Number) o[0]).intValue(), ((Number) o[1]).intValue()));
+        }
+        return monthSet;
+    }
+
+    /**
+     * Returns the number of active files.
+     *
+     * @return Number of files
+     */
+    public long countAll() {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        return em.createQuery("select count(f) from File f where f.deleteDate is null", Long.class).getSingleResult();
+    }
+
     /**
      * Returns the list of all files from a user.
      * 
@@ -291,6 +351,19 @@ public class FileDao {
         return q.getResultList();
     }
 
+    /**
+     * Get the active files of documents, including their older versions.
+     *
+     * @param documentIds Documents IDs
+     * @return List of files
+     */
+    public List<File> getAllVersionsByDocumentsIds(Iterable<String> documentIds) {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        TypedQuery<File> q = em.createQuery("select f from File f where f.documentId in :documentIds and f.deleteDate is null", File.class);
+        q.setParameter("documentIds", documentIds);
+        return q.getResultList();
+    }
+
     /**
      * Get files count by documents IDs.
      *
@@ -309,6 +382,31 @@ public class FileDao {
         return result;
     }
 
+    /**
+     * Returns the MIME types of the files of documents.
+     *
+     * @param documentIds Documents IDs
+     * @return Set of MIME types by document ID
+     */
+    public Map<String, Set<String>> getMimeTypeMap(Collection<String> documentIds) {
+        Map<String, Set<String>> mimeTypeMap = new HashMap<>();
+        if (documentIds.isEmpty()) {
+            return mimeTypeMap;
+        }
+
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        Query q = em.createQuery("select distinct f.documentId, f.mimeType from File f where f.documentId in :documentIds and f.deleteDate is null");
+        q.setParameter("documentIds", documentIds);
+        @SuppressWarnings("unchecked")
+        List<Object[]> l = q.getResultList();
+        for (Object[] o : l) {
+            if (o[1] != null) {
+                mimeTypeMap.computeIfAbsent((String) o[0], k -> new HashSet<>()).add((String) o[1]);
+            }
+        }
+        return mimeTypeMap;
+    }
+
     /**
      * Get all files from a version.
      *
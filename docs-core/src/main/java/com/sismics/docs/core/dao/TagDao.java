@@ -81,6 +81,29 @@ public class TagDao {
         }
     }
     
+    /**
+     * Returns the tags of documents.
+     *
+     * @param documentIdList Document IDs
+     * @return Set of tag IDs by document ID
+     */
+    public Map<String, Set<String>> getTagIdMap(Collection<String> documentIdList) {
+        Map<String, Set<String>> tagIdMap = new HashMap<>();
+        if (documentIdList.isEmpty()) {
+            return tagIdMap;
+        }
+
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        Query q = em.createQuery("select dt.documentId, dt.tagId from DocumentTag dt where dt.documentId in :documentIdList and dt.deleteDate is null");
+        q.setParameter("documentIdList", documentIdList);
+        @SuppressWarnings("unchecked")
+        List<Object[]> l = q.getResultList();
+        for (Object[] o : l) {
+            tagIdMap.computeIfAbsent((String) o[0], k -> new HashSet<>()).add((String) o[1]);
+        }
+        return tagIdMap;
+    }
+
     /**
      * Creates a new tag.
      * 
@@ -2,6 +2,7 @@ package com.sismics.docs.core.dao;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -223,6 +224,28 @@ public class UserDao {
         }
     }
     
+    /**
+     * Returns the usernames of users, deleted or not.
+     *
+     * @param idList List of user IDs
+     * @return Usernames by user ID
+     */
+    public Map<String, String> getUsernameMap(Collection<String> idList) {
+        Map<String, String> usernameMap = new HashMap<>();
+        if (idList.isEmpty()) {
+            return usernameMap;
+        }
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        Query q = em.createNativeQuery("select u.USE_ID_C, u.USE_USERNAME_C from T_USER u where u.USE_ID_C in (:idList)");
+        q.setParameter("idList", idList);
+        @SuppressWarnings("unchecked")
+        List<Object[]> l = q.getResultList();
+        for (Object[] o : l) {
+            usernameMap.put((String) o[0], (String) o[1]);
+        }
+        return usernameMap;
+    }
+
     /**
      * Gets an active user by its username.
      * 
@@ -1,5 +1,7 @@
 package com.sismics.docs.core.dao.dto;
 
+import java.util.List;
+
 /**
  * Document DTO.
  *
@@ -111,6 +113,16 @@ public class DocumentDto {
      */
     private String highlight;
 
+    /**
+     * File of the search highlight, when its pages are indexed.
+     */
+    private String highlightFileId;
+
+    /**
+     * Matching pages of the highlighted file, one-based.
+     */
+    private List<Integer> highlightPageList;
+
     public String getId() {
         return id;
     }
@@ -281,4 +293,22 @@ public class DocumentDto {
         this.highlight = highlight;
         return this;
     }
+
+    public String getHighlightFileId() {
+        return highlightFileId;
+    }
+
+    public DocumentDto setHighlightFileId(String highlightFileId) {
+        this.highlightFileId = highlightFileId;
+        return this;
+    }
+
+    public List<Integer> getHighlightPageList() {
+        return highlightPageList;
+    }
+
+    public DocumentDto setHighlightPageList(List<Integer> highlightPageList) {
+        this.highlightPageList = highlightPageList;
+        return this;
+    }
 }
@@ -8,9 +8,23 @@ import com.google.common.base.MoreObjects;
  * @author bgamard
  */
 public class RebuildIndexAsyncEvent {
+    /**
+     * True to resume an interrupted rebuild from its last checkpoint.
+     */
+    private boolean resume;
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
+                .add("resume", resume)
                 .toString();
     }
 }
@@ -0,0 +1,40 @@
+package com.sismics.docs.core.listener.async;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import com.sismics.docs.core.event.CheckIndexAsyncEvent;
+import com.sismics.docs.core.model.context.AppContext;
+import com.sismics.docs.core.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Listener on index integrity check.
+ */
+public class CheckIndexAsyncListener {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(CheckIndexAsyncListener.class);
+
+    /**
+     * Check the index integrity.
+     *
+     * @param event Check index event
+     */
+    @Subscribe
+    @AllowConcurrentEvents
+    public void on(final CheckIndexAsyncEvent event) {
+        if (log.isInfoEnabled()) {
+            log.info("Check index event: " + event.toString());
+        }
+
+        TransactionUtil.handle(() -> {
+            try {
+                AppContext.getInstance().getIndexingHandler().checkIndex();
+            } catch (Exception e) {
+                log.error("Error checking the index", e);
+            }
+        });
+    }
+}
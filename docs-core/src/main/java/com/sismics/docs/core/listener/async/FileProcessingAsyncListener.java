@@ -10,28 +10,27 @@ import com.sismics.docs.core.event.FileUpdatedAsyncEvent;
 import com.sismics.docs.core.model.context.AppContext;
 import com.sismics.docs.core.model.jpa.File;
 import com.sismics.docs.core.model.jpa.User;
-import com.sismics.docs.core.util.DirectoryUtil;
-import com.sismics.docs.core.util.EncryptionUtil;
 import com.sismics.docs.core.util.FileUtil;
+import com.sismics.docs.core.util.ThumbnailUtil;
 import com.sismics.docs.core.util.TransactionUtil;
+import com.sismics.docs.core.util.format.ContentSink;
 import com.sismics.docs.core.util.format.FormatHandler;
 import com.sismics.docs.core.util.format.FormatHandlerUtil;
-import com.sismics.util.ImageUtil;
-import com.sismics.util.Scalr;
+import com.sismics.docs.core.util.format.ProcessingSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.crypto.Cipher;
 import javax.crypto.CipherOutputStream;
 import java.awt.image.BufferedImage;
-import java.io.OutputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.MessageFormat;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Listener on file processing.
+ * The processing is submitted to the file processing executor, by priority.
  * 
  * @author bgamard
  */
@@ -53,7 +52,7 @@ public class FileProcessingAsyncListener {
             log.info("File created event: " + event.toString());
         }
 
-        processFile(event, true);
+        submit(event, true);
     }
 
     /**
@@ -66,7 +65,28 @@ public class FileProcessingAsyncListener {
     public void on(final FileUpdatedAsyncEvent event) {
         log.info("File updated event: " + event.toString());
 
-        processFile(event, false);
+        submit(event, false);
+    }
+
+    /**
+     * Submit the processing of a file.
+     * The posting thread (an HTTP request) never waits, the file is left unprocessed if the queue is full.
+     *
+     * @param event File event
+     * @param isFileCreated True if the file was just created
+     */
+    private void submit(FileEvent event, boolean isFileCreated) {
+        boolean submitted = AppContext.getInstance().getFileProcessingExecutor().submit(event.getPriority(), () -> {
+            try {
+                processFile(event, isFileCreated);
+            } finally {
+                FileUtil.endProcessingFile(event.getFileId());
+            }
+        });
+        if (!submitted) {
+            log.error("File processing queue full, the file must be processed again: " + event.getFileId());
+            FileUtil.endProcessingFile(event.getFileId());
+        }
     }
 
     /**
@@ -98,10 +118,9 @@ public class FileProcessingAsyncListener {
         // Process the file outside of a transaction
         if (user.get() == null || file.get() == null) {
             // The user or file has been deleted
-            FileUtil.endProcessingFile(event.getFileId());
             return;
         }
-        String content = extractContent(event, user.get(), file.get());
+        String content = extractContent(event.getUnencryptedFile(), event.getLanguage(), user.get(), file.get());
 
         // Open a new transaction to save the file content
         TransactionUtil.handle(() -> {
@@ -123,20 +142,19 @@ public class FileProcessingAsyncListener {
                 AppContext.getInstance().getIndexingHandler().updateFile(freshFile);
             }
         });
-
-        FileUtil.endProcessingFile(event.getFileId());
     }
 
     /**
-     * Extract text content from a file.
+     * Generate the thumbnails and extract the text content of a file.
      * This is executed outside of a transaction.
      *
-     * @param event File event
+     * @param unencryptedFile Unencrypted file
+     * @param language Language of the file
      * @param user User whom created the file
      * @param file Fresh file
      * @return Text content
      */
-    private String extractContent(FileEvent event, User user, File file) {
+    private String extractContent(Path unencryptedFile, String language, User user, File file) {
         // Find a format handler
         FormatHandler formatHandler = FormatHandlerUtil.find(file.getMimeType());
         if (formatHandler == null) {
@@ -144,40 +162,65 @@ public class FileProcessingAsyncListener {
             return null;
         }
 
-        // Generate file variations
-        try {
-            BufferedImage image = formatHandler.generateThumbnail(event.getUnencryptedFile());
-            if (image != null) {
-                // Generate thumbnails from image
-                BufferedImage web = Scalr.resize(image, Scalr.Method.ULTRA_QUALITY, Scalr.Mode.AUTOMATIC, 1280);
-                BufferedImage thumbnail = Scalr.resize(image, Scalr.Method.ULTRA_QUALITY, Scalr.Mode.AUTOMATIC, 256);
-                image.flush();
-
-                // Write "web" encrypted image
-                Path outputFile = DirectoryUtil.getStorageDirectory(file).resolve(file.getName() + "_web");
-                try (OutputStream outputStream = EncryptionUtil.encryptOutputStream( Files.newOutputStream(outputFile), user.getPrivateKey())) {
-                    ImageUtil.writeJpeg(web, outputStream);
+        // The parsed document is shared by all the processing stages
+        try (ProcessingSession session = new ProcessingSession(unencryptedFile, file, user.getPrivateKey())) {
+            // The thumbnails are resized and written while the content is extracted
+            Future<?> thumbnailFuture = generateThumbnails(session, formatHandler, user, file);
+            String content = extractContent(session, formatHandler, language, file);
+            if (thumbnailFuture != null) {
+                try {
+                    thumbnailFuture.get();
+                } catch (Exception e) {
+                    log.error("Unable to generate thumbnails for: " + file, e);
                 }
+            }
+            return content;
+        }
+    }
 
-                // Write "thumb" encrypted image
-                outputFile = DirectoryUtil.getStorageDirectory(file).resolve(file.getName() + "_thumb");
-                try (OutputStream outputStream = EncryptionUtil.encryptOutputStream( Files.newOutputStream(outputFile), user.getPrivateKey())) {
-                    ImageUtil.writeJpeg(thumbnail, outputStream);
-                }
+    /**
+     * Generate the thumbnails of a file.
+     *
+     * @param session Processing session
+     * @param formatHandler Format handler
+     * @param user User whom created the file
+     * @param file Fresh file
+     * @return Future completed when the thumbnails are written, null if there is no thumbnail
+     */
+    private Future<?> generateThumbnails(ProcessingSession session, FormatHandler formatHandler, User user, File file) {
+        try {
+            BufferedImage image = formatHandler.generateThumbnail(session);
+            if (image != null) {
+                return ThumbnailUtil.writeThumbnails(image, file, user);
             }
         } catch (Throwable e) {
             log.error("Unable to generate thumbnails for: " + file, e);
         }
+        return null;
+    }
 
-        // Extract text content from the file
+    /**
+     * Extract the text content of a file.
+     *
+     * @param session Processing session
+     * @param formatHandler Format handler
+     * @param language Language of the file
+     * @param file Fresh file
+     * @return Text content
+     */
+    private String extractContent(ProcessingSession session, FormatHandler formatHandler, String language, File file) {
         long startTime = System.currentTimeMillis();
-        String content = null;
         log.info("Start extracting content from: " + file);
+        ContentSink sink = ContentSink.create();
         try {
-            content = formatHandler.extractContent(event.getLanguage(), event.getUnencryptedFile());
+            formatHandler.extractContent(language, session, sink);
         } catch (Throwable e) {
             log.error("Error extracting content from: " + file, e);
         }
+        if (sink.isTruncated()) {
+            log.warn("File content truncated to its maximum size: " + file);
+        }
+        String content = sink.getContent();
         log.info(MessageFormat.format("File content extracted in {0}ms: " + file.getId(), System.currentTimeMillis() - startTime));
 
         return content;
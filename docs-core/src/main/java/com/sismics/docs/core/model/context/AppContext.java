@@ -4,15 +4,20 @@ import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sismics.docs.core.constant.Constants;
 import com.sismics.docs.core.dao.UserDao;
+import com.sismics.docs.core.util.ConfigUtil;
 import com.sismics.docs.core.listener.async.*;
 import com.sismics.docs.core.model.jpa.User;
 import com.sismics.docs.core.service.FileService;
 import com.sismics.docs.core.service.FileSizeService;
 import com.sismics.docs.core.service.InboxService;
+import com.sismics.docs.core.util.OcrUtil;
 import com.sismics.docs.core.util.PdfUtil;
+import com.sismics.docs.core.util.indexing.IndexRebuilder;
 import com.sismics.docs.core.util.indexing.IndexingHandler;
+import com.sismics.docs.core.util.indexing.PostgresqlIndexingHandler;
 import com.sismics.util.ClasspathScanner;
 import com.sismics.util.EnvironmentUtil;
 import org.slf4j.Logger;
@@ -20,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -51,11 +57,41 @@ public class AppContext {
      */
     private EventBus mailEventBus;
 
+    /**
+     * Bus for file processing, its listener submits the processing to the file processing executor.
+     */
+    private EventBus fileProcessingEventBus;
+
+    /**
+     * File processing executor.
+     */
+    private FileProcessingExecutor fileProcessingExecutor;
+
+    /**
+     * Executor of the OCR of the pages, shared by all the files.
+     */
+    private ThreadPoolExecutor ocrExecutor;
+
+    /**
+     * Executor of the thumbnail generation, shared by all the files.
+     */
+    private ThreadPoolExecutor thumbnailExecutor;
+
+    /**
+     * Supervisor of the external processes (tesseract, ffmpeg, mediainfo).
+     */
+    private ProcessSupervisor processSupervisor;
+
     /**
      * Indexing handler.
      */
     private IndexingHandler indexingHandler;
 
+    /**
+     * Index rebuilder.
+     */
+    private IndexRebuilder indexRebuilder;
+
     /**
      * Inbox scanning service.
      */
@@ -83,6 +119,7 @@ public class AppContext {
         resetEventBus();
 
         // Start indexing handler
+        indexRebuilder = new IndexRebuilder();
         try {
             List<Class<? extends IndexingHandler>> indexingHandlerList = Lists.newArrayList(
                     new ClasspathScanner<IndexingHandler>().findClasses(IndexingHandler.class, "com.sismics.docs.core.util.indexing"));
@@ -94,6 +131,9 @@ public class AppContext {
                 }
             }
             indexingHandler.startUp();
+            if (!(indexingHandler instanceof PostgresqlIndexingHandler)) {
+                PostgresqlIndexingHandler.invalidateIndex();
+            }
         } catch (Exception e) {
             log.error("Error starting the indexing handler", e);
         }
@@ -145,13 +185,32 @@ public class AppContext {
     private void resetEventBus() {
         asyncExecutorList = new ArrayList<>();
 
+        fileProcessingExecutor = newFileProcessingExecutor();
+        int ocrThreadCount = OcrUtil.getThreadCount();
+        ocrExecutor = new ThreadPoolExecutor(ocrThreadCount, ocrThreadCount,
+                1L, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("ocr-%d").setDaemon(true).build());
+
+        // The file processing thread generates the thumbnails itself when the queue is full
+        int thumbnailThreadCount = Math.max(ConfigUtil.getEnvIntegerValue(Constants.THUMBNAIL_THREADS_ENV,
+                Math.max(Runtime.getRuntime().availableProcessors() / 2, 1)), 1);
+        thumbnailExecutor = new ThreadPoolExecutor(thumbnailThreadCount, thumbnailThreadCount,
+                1L, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(thumbnailThreadCount),
+                new ThreadFactoryBuilder().setNameFormat("thumbnail-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        processSupervisor = new ProcessSupervisor();
+        fileProcessingEventBus = new EventBus();
+        fileProcessingEventBus.register(new FileProcessingAsyncListener());
+
         asyncEventBus = newAsyncEventBus();
-        asyncEventBus.register(new FileProcessingAsyncListener());
         asyncEventBus.register(new FileDeletedAsyncListener());
         asyncEventBus.register(new DocumentCreatedAsyncListener());
         asyncEventBus.register(new DocumentUpdatedAsyncListener());
         asyncEventBus.register(new DocumentDeletedAsyncListener());
         asyncEventBus.register(new RebuildIndexAsyncListener());
+        asyncEventBus.register(new CheckIndexAsyncListener());
         asyncEventBus.register(new AclCreatedAsyncListener());
         asyncEventBus.register(new AclDeletedAsyncListener());
         asyncEventBus.register(new WebhookAsyncListener());
@@ -192,13 +251,30 @@ public class AppContext {
         }
     }
 
+    /**
+     * Creates a new file processing executor.
+     *
+     * @return File processing executor
+     */
+    private FileProcessingExecutor newFileProcessingExecutor() {
+        if (EnvironmentUtil.isUnitTest()) {
+            return new FileProcessingExecutor(0, 1);
+        } else {
+            int threadCount = ConfigUtil.getEnvIntegerValue(Constants.FILE_PROCESSING_THREADS_ENV,
+                    Math.max(Runtime.getRuntime().availableProcessors() / 2, 1));
+            int queueSize = ConfigUtil.getEnvIntegerValue(Constants.FILE_PROCESSING_QUEUE_SIZE_ENV,
+                    Constants.DEFAULT_FILE_PROCESSING_QUEUE_SIZE);
+            return new FileProcessingExecutor(Math.max(threadCount, 1), queueSize);
+        }
+    }
+
     /**
      * Return the current number of queued tasks waiting to be processed.
      *
      * @return Number of queued tasks
      */
     public int getQueuedTaskCount() {
-        int queueSize = 0;
+        int queueSize = fileProcessingExecutor.getQueuedCount() + fileProcessingExecutor.getActiveCount();
         for (ThreadPoolExecutor executor : asyncExecutorList) {
             queueSize += executor.getTaskCount() - executor.getCompletedTaskCount();
         }
@@ -213,10 +289,34 @@ public class AppContext {
         return mailEventBus;
     }
 
+    public EventBus getFileProcessingEventBus() {
+        return fileProcessingEventBus;
+    }
+
+    public FileProcessingExecutor getFileProcessingExecutor() {
+        return fileProcessingExecutor;
+    }
+
+    public ExecutorService getOcrExecutor() {
+        return ocrExecutor;
+    }
+
+    public ExecutorService getThumbnailExecutor() {
+        return thumbnailExecutor;
+    }
+
+    public ProcessSupervisor getProcessSupervisor() {
+        return processSupervisor;
+    }
+
     public IndexingHandler getIndexingHandler() {
         return indexingHandler;
     }
 
+    public IndexRebuilder getIndexRebuilder() {
+        return indexRebuilder;
+    }
+
     public InboxService getInboxService() {
         return inboxService;
     }
@@ -236,6 +336,21 @@ public class AppContext {
             }
         }
 
+        try {
+            fileProcessingExecutor.shutDown(1, TimeUnit.MINUTES);
+            ocrExecutor.shutdown();
+            ocrExecutor.awaitTermination(1, TimeUnit.MINUTES);
+            thumbnailExecutor.shutdown();
+            thumbnailExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            // NOP
+        }
+        processSupervisor.shutDown();
+
+        if (indexRebuilder != null) {
+            indexRebuilder.shutDown();
+        }
+
         if (indexingHandler != null) {
             indexingHandler.shutDown();
         }
@@ -0,0 +1,248 @@
+package com.sismics.docs.core.model.context;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sismics.docs.core.constant.FileProcessingPriority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor dedicated to the file processing (thumbnails, text extraction, OCR).
+ * Tasks are run by priority then in submission order, the submissions are refused while the queue is full.
+ */
+public class FileProcessingExecutor {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(FileProcessingExecutor.class);
+
+    /**
+     * Thread pool, null if the tasks are run in the submitting thread.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Number of threads.
+     */
+    private final int threadCount;
+
+    /**
+     * Maximum number of queued tasks.
+     */
+    private final int queueCapacity;
+
+    /**
+     * Free slots in the queue.
+     */
+    private final Semaphore queueSlots;
+
+    /**
+     * Submission sequence, orders the tasks of the same priority.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Number of queued tasks by priority.
+     */
+    private final Map<FileProcessingPriority, AtomicInteger> queuedCountMap = new EnumMap<>(FileProcessingPriority.class);
+
+    /**
+     * Number of running tasks.
+     */
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    /**
+     * Number of completed tasks.
+     */
+    private final AtomicLong completedCount = new AtomicLong();
+
+    /**
+     * Number of failed tasks.
+     */
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * Total time spent by the completed tasks in the queue, in milliseconds.
+     */
+    private final AtomicLong totalWaitTime = new AtomicLong();
+
+    /**
+     * Create a file processing executor.
+     *
+     * @param threadCount Number of threads, 0 to run the tasks in the submitting thread
+     * @param queueCapacity Maximum number of queued tasks
+     */
+    public FileProcessingExecutor(int threadCount, int queueCapacity) {
+        this.threadCount = threadCount;
+        this.queueCapacity = Math.max(queueCapacity, 1);
+        queueSlots = new Semaphore(this.queueCapacity, true);
+        for (FileProcessingPriority priority : FileProcessingPriority.values()) {
+            queuedCountMap.put(priority, new AtomicInteger());
+        }
+        if (threadCount > 0) {
+            executor = new ThreadPoolExecutor(threadCount, threadCount,
+                    1L, TimeUnit.MINUTES,
+                    new PriorityBlockingQueue<>(),
+                    new ThreadFactoryBuilder().setNameFormat("file-processing-%d").setDaemon(true).build());
+        } else {
+            executor = null;
+        }
+    }
+
+    /**
+     * Submit a file processing task if the queue is not full.
+     * The submitter never waits, it is usually an HTTP request firing its events.
+     *
+     * @param priority Priority
+     * @param runnable Task
+     * @return True if the task is queued, false if the queue is full
+     */
+    public boolean submit(FileProcessingPriority priority, Runnable runnable) {
+        Task task = new Task(priority, sequence.getAndIncrement(), runnable);
+        if (executor == null) {
+            task.run();
+            return true;
+        }
+
+        if (!queueSlots.tryAcquire()) {
+            return false;
+        }
+        queuedCountMap.get(priority).incrementAndGet();
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            queuedCountMap.get(priority).decrementAndGet();
+            queueSlots.release();
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of queued tasks of a priority.
+     *
+     * @param priority Priority
+     * @return Number of queued tasks
+     */
+    public int getQueuedCount(FileProcessingPriority priority) {
+        return queuedCountMap.get(priority).get();
+    }
+
+    /**
+     * Returns the number of queued tasks.
+     *
+     * @return Number of queued tasks
+     */
+    public int getQueuedCount() {
+        return queueCapacity - queueSlots.availablePermits();
+    }
+
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Returns the average time spent in the queue by the completed tasks.
+     *
+     * @return Average wait time in milliseconds
+     */
+    public long getAverageWaitTime() {
+        long completed = completedCount.get() + failedCount.get();
+        return completed == 0 ? 0 : totalWaitTime.get() / completed;
+    }
+
+    /**
+     * Stop accepting tasks and wait for the running ones.
+     *
+     * @param timeout Timeout
+     * @param unit Timeout unit
+     * @throws InterruptedException e
+     */
+    public void shutDown(long timeout, TimeUnit unit) throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(timeout, unit);
+        }
+    }
+
+    /**
+     * Prioritized task.
+     */
+    private class Task implements Runnable, Comparable<Task> {
+        /**
+         * Priority.
+         */
+        private final FileProcessingPriority priority;
+
+        /**
+         * Submission sequence number.
+         */
+        private final long sequence;
+
+        /**
+         * Submission time in milliseconds.
+         */
+        private final long submitTime = System.currentTimeMillis();
+
+        /**
+         * Task.
+         */
+        private final Runnable runnable;
+
+        Task(FileProcessingPriority priority, long sequence, Runnable runnable) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            if (executor != null) {
+                queuedCountMap.get(priority).decrementAndGet();
+                queueSlots.release();
+            }
+            totalWaitTime.addAndGet(System.currentTimeMillis() - submitTime);
+            activeCount.incrementAndGet();
+            try {
+                runnable.run();
+                completedCount.incrementAndGet();
+            } catch (Throwable e) {
+                failedCount.incrementAndGet();
+                log.error("Error processing a file", e);
+            } finally {
+                activeCount.decrementAndGet();
+            }
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            int result = priority.compareTo(o.priority);
+            return result != 0 ? result : Long.compare(sequence, o.sequence);
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package com.sismics.docs.core.model.context;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sismics.docs.core.constant.ExternalTool;
+import com.sismics.docs.core.util.ConfigUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Supervisor of the external processes run by the file processing (tesseract, ffmpeg, mediainfo).
+ * The number of concurrent processes of each tool is limited, and a process running longer than
+ * the timeout of its tool is killed with its children, so the calling thread always comes back.
+ */
+public class ProcessSupervisor {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(ProcessSupervisor.class);
+
+    /**
+     * Number of error lines kept to report a failed process.
+     */
+    private static final int ERROR_LINE_COUNT = 20;
+
+    /**
+     * Number of durations sampled by tool for the percentiles.
+     */
+    private static final int DURATION_SAMPLE_SIZE = 1000;
+
+    /**
+     * State of each tool.
+     */
+    private final Map<ExternalTool, ToolState> toolStateMap = new EnumMap<>(ExternalTool.class);
+
+    /**
+     * Threads draining the error streams, reused between the processes.
+     */
+    private final ExecutorService errorStreamExecutor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("process-stderr-%d").setDaemon(true).build());
+
+    /**
+     * Thread killing the processes which time out.
+     */
+    private final ScheduledExecutorService watchdogExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("process-watchdog").setDaemon(true).build());
+
+    /**
+     * Running processes.
+     */
+    private final Set<Process> processSet = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create a process supervisor configured from the environment.
+     */
+    public ProcessSupervisor() {
+        for (ExternalTool tool : ExternalTool.values()) {
+            int maxProcesses = ConfigUtil.getEnvIntegerValue(tool.getMaxProcessesEnv(), Runtime.getRuntime().availableProcessors());
+            int timeout = ConfigUtil.getEnvIntegerValue(tool.getTimeoutEnv(), tool.getDefaultTimeout());
+            toolStateMap.put(tool, new ToolState(maxProcesses, TimeUnit.SECONDS.toMillis(timeout)));
+        }
+    }
+
+    /**
+     * Create a process supervisor with the same limits for all the tools.
+     *
+     * @param maxProcesses Maximum number of concurrent processes by tool
+     * @param timeout Timeout of a process, in milliseconds
+     */
+    public ProcessSupervisor(int maxProcesses, long timeout) {
+        for (ExternalTool tool : ExternalTool.values()) {
+            toolStateMap.put(tool, new ToolState(maxProcesses, timeout));
+        }
+    }
+
+    /**
+     * Run an external process and read its output.
+     * The caller waits for a free process slot of the tool, within the timeout of the tool.
+     * A process exiting with an error is logged and its output is still returned.
+     *
+     * @param tool Tool
+     * @param command Command and its arguments
+     * @param reader Reader of the standard output
+     * @param <T> Output type
+     * @return Output read
+     * @throws IOException e, also thrown if the process timed out
+     */
+    public <T> T run(ExternalTool tool, List<String> command, OutputReader<T> reader) throws IOException {
+        ToolState state = toolStateMap.get(tool);
+        long deadline = System.currentTimeMillis() + state.timeout;
+        try {
+            if (!state.permits.tryAcquire(state.timeout, TimeUnit.MILLISECONDS)) {
+                state.failureCount.incrementAndGet();
+                state.timeoutCount.incrementAndGet();
+                throw new IOException(tool + " timed out waiting for a free process slot");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a free " + tool + " process slot");
+        }
+
+        state.runningCount.incrementAndGet();
+        long startTime = System.currentTimeMillis();
+        boolean success = false;
+        AtomicBoolean timedOut = new AtomicBoolean();
+        Process process = null;
+        try {
+            process = new ProcessBuilder(command).start();
+            processSet.add(process);
+            process.getOutputStream().close();
+
+            Process startedProcess = process;
+            Future<String> errorFuture = errorStreamExecutor.submit(() -> drainErrorStream(tool, startedProcess.getErrorStream()));
+            ScheduledFuture<?> killFuture = watchdogExecutor.schedule(() -> {
+                timedOut.set(true);
+                destroyProcessTree(startedProcess);
+            }, Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+
+            T output;
+            try (InputStream inputStream = process.getInputStream()) {
+                output = reader.read(inputStream);
+
+                // The process may still be writing, it is not blocked on a full pipe
+                ByteStreams.exhaust(inputStream);
+            } catch (IOException e) {
+                if (timedOut.get()) {
+                    throw timeoutException(tool, command);
+                }
+                throw e;
+            }
+
+            if (!process.waitFor(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS)) {
+                timedOut.set(true);
+            }
+            killFuture.cancel(false);
+            if (timedOut.get()) {
+                throw timeoutException(tool, command);
+            }
+
+            int exitValue = process.exitValue();
+            if (exitValue == 0) {
+                success = true;
+            } else {
+                log.warn(tool + " exited with code " + exitValue + ": " + command + "\n" + getErrorOutput(errorFuture));
+            }
+            return output;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + tool);
+        } finally {
+            if (process != null) {
+                destroyProcessTree(process);
+                processSet.remove(process);
+            }
+            if (timedOut.get()) {
+                state.timeoutCount.incrementAndGet();
+            }
+            if (!success) {
+                state.failureCount.incrementAndGet();
+            }
+            state.recordDuration(System.currentTimeMillis() - startTime);
+            state.runningCount.decrementAndGet();
+            state.permits.release();
+        }
+    }
+
+    /**
+     * Consume the error stream of a process, keeping its last lines.
+     *
+     * @param tool Tool
+     * @param inputStream Error stream
+     * @return Last error lines
+     */
+    private String drainErrorStream(ExternalTool tool, InputStream inputStream) {
+        Deque<String> lineDeque = new ArrayDeque<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (log.isDebugEnabled()) {
+                    log.debug(tool + ": " + line);
+                }
+                lineDeque.addLast(line);
+                if (lineDeque.size() > ERROR_LINE_COUNT) {
+                    lineDeque.removeFirst();
+                }
+            }
+        } catch (IOException e) {
+            // NOP
+        }
+        return String.join("\n", lineDeque);
+    }
+
+    /**
+     * Returns the last error lines of an exited process.
+     *
+     * @param errorFuture Error stream being drained
+     * @return Last error lines
+     */
+    private String getErrorOutput(Future<String> errorFuture) {
+        try {
+            return errorFuture.get(1, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    /**
+     * Build the exception of a process which timed out.
+     *
+     * @param tool Tool
+     * @param command Command
+     * @return Exception
+     */
+    private IOException timeoutException(ExternalTool tool, List<String> command) {
+        return new IOException(tool + " timed out after " + toolStateMap.get(tool).timeout + "ms: " + command);
+    }
+
+    /**
+     * Kill a process and the processes it started.
+     *
+     * @param process Process
+     */
+    private static void destroyProcessTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * Kill the running processes and stop the supervisor.
+     */
+    public void shutDown() {
+        for (Process process : processSet) {
+            destroyProcessTree(process);
+        }
+        watchdogExecutor.shutdownNow();
+        errorStreamExecutor.shutdownNow();
+    }
+
+    public int getMaxProcesses(ExternalTool tool) {
+        return toolStateMap.get(tool).maxProcesses;
+    }
+
+    public int getRunningCount(ExternalTool tool) {
+        return toolStateMap.get(tool).runningCount.get();
+    }
+
+    public long getRunCount(ExternalTool tool) {
+        return toolStateMap.get(tool).runCount.get();
+    }
+
+    public long getFailureCount(ExternalTool tool) {
+        return toolStateMap.get(tool).failureCount.get();
+    }
+
+    public long getTimeoutCount(ExternalTool tool) {
+        return toolStateMap.get(tool).timeoutCount.get();
+    }
+
+    /**
+     * Returns the 95th percentile of the durations of the last processes of a tool.
+     *
+     * @param tool Tool
+     * @return Duration in milliseconds, 0 if the tool was never run
+     */
+    public long getP95Duration(ExternalTool tool) {
+        return toolStateMap.get(tool).getDurationPercentile(95);
+    }
+
+    /**
+     * Reader of the standard output of a process.
+     *
+     * @param <T> Output type
+     */
+    @FunctionalInterface
+    public interface OutputReader<T> {
+        /**
+         * Read the output of a process.
+         *
+         * @param inputStream Standard output
+         * @return Output
+         * @throws IOException e
+         */
+        T read(InputStream inputStream) throws IOException;
+    }
+
+    /**
+     * Limits and metrics of a tool.
+     */
+    private static class ToolState {
+        /**
+         * Maximum number of concurrent processes.
+         */
+        private final int maxProcesses;
+
+        /**
+         * Free process slots.
+         */
+        private final Semaphore permits;
+
+        /**
+         * Timeout of a process, in milliseconds.
+         */
+        private final long timeout;
+
+        /**
+         * Number of running processes.
+         */
+        private final AtomicInteger runningCount = new AtomicInteger();
+
+        /**
+         * Number of processes run.
+         */
+        private final AtomicLong runCount = new AtomicLong();
+
+        /**
+         * Number of failed processes, timeouts included.
+         */
+        private final AtomicLong failureCount = new AtomicLong();
+
+        /**
+         * Number of processes which timed out.
+         */
+        private final AtomicLong timeoutCount = new AtomicLong();
+
+        /**
+         * Durations of the last processes, in milliseconds.
+         */
+        private final long[] durations = new long[DURATION_SAMPLE_SIZE];
+
+        private ToolState(int maxProcesses, long timeout) {
+            this.maxProcesses = Math.max(maxProcesses, 1);
+            this.permits = new Semaphore(this.maxProcesses);
+            this.timeout = timeout;
+        }
+
+        /**
+         * Record the duration of a process.
+         *
+         * @param duration Duration in milliseconds
+         */
+        private synchronized void recordDuration(long duration) {
+            durations[(int) (runCount.getAndIncrement() % DURATION_SAMPLE_SIZE)] = duration;
+        }
+
+        /**
+         * Returns a percentile of the durations of the last processes.
+         *
+         * @param percentile Percentile
+         * @return Duration in milliseconds
+         */
+        private synchronized long getDurationPercentile(int percentile) {
+            int count = (int) Math.min(runCount.get(), DURATION_SAMPLE_SIZE);
+            if (count == 0) {
+                return 0;
+            }
+            long[] sortedDurations = Arrays.copyOf(durations, count);
+            Arrays.sort(sortedDurations);
+            return sortedDurations[Math.max((int) Math.ceil(percentile / 100.0 * count) - 1, 0)];
+        }
+    }
+}
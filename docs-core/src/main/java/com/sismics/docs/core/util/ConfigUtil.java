@@ -2,15 +2,22 @@ package com.sismics.docs.core.util;
 
 import java.util.ResourceBundle;
 
+import com.google.common.base.Strings;
 import com.sismics.docs.core.constant.ConfigType;
 import com.sismics.docs.core.dao.ConfigDao;
 import com.sismics.docs.core.model.jpa.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Configuration parameter utilities.
  *
  */
 public class ConfigUtil {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(ConfigUtil.class);
 
     private static Boolean isFileEncrypt = null;
     private static Boolean isSoftDelete = null;
@@ -128,4 +135,39 @@ public class ConfigUtil {
             return defaultValue;
         }
     }
+
+    /**
+     * Returns the integer value of an environment variable with a default value.
+     *
+     * @param env Name of the environment variable
+     * @param defaultValue Default value to return if the environment variable is undefined or invalid
+     * @return Integer value of the environment variable
+     */
+    public static int getEnvIntegerValue(String env, int defaultValue) {
+        String value = System.getenv(env);
+        if (Strings.isNullOrEmpty(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            log.warn(env + " needs to be a number. Falling back to " + defaultValue + ".");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns the boolean value of an environment variable with a default value.
+     *
+     * @param env Name of the environment variable
+     * @param defaultValue Default value to return if the environment variable is undefined
+     * @return Boolean value of the environment variable
+     */
+    public static boolean getEnvBooleanValue(String env, boolean defaultValue) {
+        String value = System.getenv(env);
+        if (Strings.isNullOrEmpty(value)) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
 }
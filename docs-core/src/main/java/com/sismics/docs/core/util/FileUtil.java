@@ -27,6 +27,7 @@ import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.io.CharStreams;
 import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.constant.ExternalTool;
 import com.sismics.docs.core.dao.FileDao;
 import com.sismics.docs.core.dao.UserDao;
 import com.sismics.docs.core.event.DocumentUpdatedAsyncEvent;
@@ -38,7 +39,6 @@ import com.sismics.docs.core.model.jpa.User;
 import com.sismics.util.ImageDeskew;
 import com.sismics.util.Scalr;
 import com.sismics.util.context.ThreadLocalContext;
-import com.sismics.util.io.InputStreamReaderThread;
 import com.sismics.util.mime.MimeTypeUtil;
 
 /**
@@ -70,23 +70,16 @@ public class FileUtil {
         BufferedImage resizedImage = Scalr.resize(image, Scalr.Method.AUTOMATIC, Scalr.Mode.AUTOMATIC, 3500, Scalr.OP_ANTIALIAS, Scalr.OP_GRAYSCALE);
         image.flush();
         ImageDeskew imageDeskew = new ImageDeskew(resizedImage);
-        BufferedImage deskewedImage = Scalr.rotate(resizedImage, - imageDeskew.getSkewAngle(), Scalr.OP_ANTIALIAS, Scalr.OP_GRAYSCALE);
+        BufferedImage deskewedImage = Scalr.rotate(resizedImage, - imageDeskew.getSkewAngleFast(), Scalr.OP_ANTIALIAS, Scalr.OP_GRAYSCALE);
         resizedImage.flush();
         Path tmpFile = AppContext.getInstance().getFileService().createTemporaryFile();
         ImageIO.write(deskewedImage, "tiff", tmpFile.toFile());
 
         List<String> result = Lists.newLinkedList(Arrays.asList("tesseract", tmpFile.toAbsolutePath().toString(), "stdout", "-l", language));
-        ProcessBuilder pb = new ProcessBuilder(result);
-        Process process = pb.start();
-
-        // Consume the process error stream
-        final String commandName = pb.command().get(0);
-        new InputStreamReaderThread(process.getErrorStream(), commandName).start();
 
         // Consume the data as text
-        try (InputStream is = process.getInputStream()) {
-            return CharStreams.toString(new InputStreamReader(is, StandardCharsets.UTF_8));
-        }
+        return AppContext.getInstance().getProcessSupervisor().run(ExternalTool.TESSERACT, result,
+                is -> CharStreams.toString(new InputStreamReader(is, StandardCharsets.UTF_8)));
     }
 
     /**
@@ -112,6 +105,7 @@ public class FileUtil {
         Path storedFile = DirectoryUtil.getStorageDirectory(file).resolve(file.getName());
         Path webFile = DirectoryUtil.getStorageDirectory(file).resolve(file.getName() + "_web");
         Path thumbnailFile = DirectoryUtil.getStorageDirectory(file).resolve(file.getName() + "_thumb");
+        Path pdfFile = DirectoryUtil.getStorageDirectory(file).resolve(file.getName() + "_pdf");
         
         if (Files.exists(storedFile)) {
             if( ConfigUtil.isFileDelete() )
@@ -137,6 +131,14 @@ public class FileUtil {
               thumbnailFile.toFile().renameTo(aDestFile.toFile());  
             }
         }
+        if (Files.exists(pdfFile)) {
+            if( ConfigUtil.isFileDelete() )
+              Files.delete(pdfFile);
+            else{
+              java.nio.file.Path aDestFile = DirectoryUtil.getDeleteStorageDirectory(file).resolve(file.getName()+"_pdf");
+              pdfFile.toFile().renameTo(aDestFile.toFile());
+            }
+        }
         Files.delete(DirectoryUtil.getStorageDirectory(file));
         
 }
@@ -233,6 +235,9 @@ public class FileUtil {
             Files.copy(inputStream, path);
         }
 
+        // The PDF converted from a previous file of the same name is stale
+        Files.deleteIfExists(DirectoryUtil.getStorageDirectory(file).resolve(file.getName() + "_pdf"));
+
         // Update the user quota
         user.setStorageCurrent(user.getStorageCurrent() + fileSize);
         userDao.updateQuota(user);
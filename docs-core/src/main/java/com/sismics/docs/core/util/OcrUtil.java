@@ -0,0 +1,225 @@
+package com.sismics.docs.core.util;
+
+import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.model.context.AppContext;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * OCR utilities.
+ */
+public class OcrUtil {
+    /**
+     * Resolution of the rendered pages.
+     */
+    private static final int OCR_DPI = 300;
+
+    /**
+     * Memory used by a rendered page, per pixel.
+     * The page is rendered in gray, then upscaled, deskewed and rotated in RGB before OCR.
+     */
+    private static final int BYTES_PER_PIXEL = 16;
+
+    /**
+     * Memory used by a Letter page rendered for OCR, in kilobytes.
+     */
+    private static final int LETTER_PAGE_MEMORY = (int) ((long) (8.5 * OCR_DPI) * 11 * OCR_DPI * BYTES_PER_PIXEL / 1024);
+
+    /**
+     * Memory budget of the pages being OCR-ized, shared by all the files, in kilobytes.
+     */
+    static final int MEMORY_BUDGET = Math.max(ConfigUtil.getEnvIntegerValue(Constants.OCR_MEMORY_BUDGET_ENV,
+            getDefaultMemoryBudget() / 1024), 1) * 1024;
+
+    /**
+     * Free memory budget, in kilobytes.
+     */
+    static final Semaphore memoryBudget = new Semaphore(MEMORY_BUDGET, true);
+
+    /**
+     * OCR of a rendered page.
+     */
+    interface PageOcr {
+        /**
+         * OCR a page.
+         *
+         * @param pageIndex Index of the page
+         * @param image Rendered page
+         * @return Content extracted
+         * @throws Exception e
+         */
+        String ocr(int pageIndex, BufferedImage image) throws Exception;
+    }
+
+    /**
+     * Listener on the OCR progress.
+     */
+    public interface ProgressListener {
+        /**
+         * A page has been OCR-ized.
+         *
+         * @param pageIndex Index of the page
+         * @param completedPageCount Number of pages OCR-ized so far
+         * @param pageCount Number of pages
+         */
+        void onPage(int pageIndex, int completedPageCount, int pageCount);
+    }
+
+    /**
+     * OCR all the pages of a PDF document.
+     * Pages are rendered one by one in the calling thread, as the document is not thread-safe,
+     * and OCR-ized in parallel on the OCR executor while the rendered pages fit in the memory budget.
+     *
+     * @param language Language to OCR
+     * @param pdfDocument PDF document
+     * @param listener Progress listener
+     * @return Content extracted, in page order
+     * @throws Exception e
+     */
+    public static String ocrPdf(String language, PDDocument pdfDocument, ProgressListener listener) throws Exception {
+        return ocrPdf(pdfDocument, AppContext.getInstance().getOcrExecutor(),
+                (pageIndex, image) -> FileUtil.ocrFile(language, image), listener);
+    }
+
+    /**
+     * OCR all the pages of a PDF document on an executor.
+     * When a page fails, the pages left are skipped and the rendered pages release their memory before returning.
+     *
+     * @param pdfDocument PDF document
+     * @param executor OCR executor
+     * @param pageOcr OCR of a page
+     * @param listener Progress listener
+     * @return Content extracted, in page order
+     * @throws Exception e
+     */
+    static String ocrPdf(PDDocument pdfDocument, ExecutorService executor, PageOcr pageOcr, ProgressListener listener) throws Exception {
+        PDFRenderer renderer = new PDFRenderer(pdfDocument);
+        int pageCount = pdfDocument.getNumberOfPages();
+        String[] pageContents = new String[pageCount];
+        AtomicInteger completedPageCount = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<Future<?>> futureList = new ArrayList<>();
+
+        try {
+            for (int pageIndex = 0; pageIndex < pageCount && !cancelled.get(); pageIndex++) {
+                // Wait for the memory of the page, a page bigger than the budget uses the whole budget
+                int cost = Math.min(estimateMemory(pdfDocument, pageIndex), MEMORY_BUDGET);
+                memoryBudget.acquire(cost);
+                BufferedImage image;
+                try {
+                    image = renderer.renderImageWithDPI(pageIndex, OCR_DPI, ImageType.GRAY);
+                } catch (Exception | Error e) {
+                    memoryBudget.release(cost);
+                    throw e;
+                }
+
+                int index = pageIndex;
+                futureList.add(executor.submit(() -> {
+                    try {
+                        if (cancelled.get()) {
+                            // Another page failed, the result will be ignored
+                            return null;
+                        }
+                        pageContents[index] = pageOcr.ocr(index, image);
+                    } catch (Exception | Error e) {
+                        // Skip the pages left
+                        cancelled.set(true);
+                        throw e;
+                    } finally {
+                        memoryBudget.release(cost);
+                    }
+                    listener.onPage(index, completedPageCount.incrementAndGet(), pageCount);
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futureList) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            cancelled.set(true);
+            awaitPages(futureList);
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (Exception | Error e) {
+            cancelled.set(true);
+            if (!(e instanceof InterruptedException)) {
+                awaitPages(futureList);
+            }
+            throw e;
+        }
+
+        // Reassemble the pages in order
+        StringBuilder sb = new StringBuilder();
+        for (String pageContent : pageContents) {
+            sb.append(" ");
+            sb.append(pageContent);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Wait for the submitted pages to end, ignoring their results.
+     *
+     * @param futureList Submitted pages
+     */
+    private static void awaitPages(List<Future<?>> futureList) {
+        for (Future<?> future : futureList) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // Already handled
+            }
+        }
+    }
+
+    /**
+     * Returns the number of pages OCR-ized in parallel.
+     *
+     * @return Number of OCR threads
+     */
+    public static int getThreadCount() {
+        return Math.max(ConfigUtil.getEnvIntegerValue(Constants.OCR_THREADS_ENV,
+                Runtime.getRuntime().availableProcessors() / 2), 1);
+    }
+
+    /**
+     * Returns the default memory budget, two Letter pages per OCR thread: one being OCR-ized, one rendered ahead.
+     * It is bounded by a quarter of the maximum heap size, but fits at least one page.
+     *
+     * @return Memory budget in kilobytes
+     */
+    private static int getDefaultMemoryBudget() {
+        long budget = (long) getThreadCount() * 2 * LETTER_PAGE_MEMORY;
+        long maxBudget = Runtime.getRuntime().maxMemory() / 4 / 1024;
+        return (int) Math.max(Math.min(budget, maxBudget), LETTER_PAGE_MEMORY);
+    }
+
+    /**
+     * Estimate the memory needed to OCR a page.
+     *
+     * @param pdfDocument PDF document
+     * @param pageIndex Index of the page
+     * @return Memory in kilobytes
+     */
+    private static int estimateMemory(PDDocument pdfDocument, int pageIndex) {
+        PDRectangle cropBox = pdfDocument.getPage(pageIndex).getCropBox();
+        long width = (long) Math.ceil(cropBox.getWidth() / 72f * OCR_DPI);
+        long height = (long) Math.ceil(cropBox.getHeight() / 72f * OCR_DPI);
+        return (int) Math.min(Math.max(width * height * BYTES_PER_PIXEL / 1024, 1), Integer.MAX_VALUE);
+    }
+}
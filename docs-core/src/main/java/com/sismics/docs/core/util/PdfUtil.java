@@ -10,6 +10,7 @@ import com.sismics.docs.core.dao.dto.DocumentDto;
 import com.sismics.docs.core.model.jpa.File;
 import com.sismics.docs.core.util.format.FormatHandler;
 import com.sismics.docs.core.util.format.FormatHandlerUtil;
+import com.sismics.docs.core.util.format.ProcessingSession;
 import com.sismics.docs.core.util.pdf.PdfPage;
 import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -109,7 +110,10 @@ public class PdfUtil {
                 Path unencryptedFile = EncryptionUtil.decryptFile(storedFile, file.getPrivateKey());
                 FormatHandler formatHandler = FormatHandlerUtil.find(file.getMimeType());
                 if (formatHandler != null) {
-                    formatHandler.appendToPdf(unencryptedFile, doc, fitImageToPage, margin, memUsageSettings, closer);
+                    // Reuse the PDF converted from the file, if any
+                    try (ProcessingSession session = new ProcessingSession(unencryptedFile, file, file.getPrivateKey())) {
+                        formatHandler.appendToPdf(session, doc, fitImageToPage, margin, memUsageSettings, closer);
+                    }
                 }
             }
             
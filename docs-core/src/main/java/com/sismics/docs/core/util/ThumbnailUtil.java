@@ -0,0 +1,69 @@
+package com.sismics.docs.core.util;
+
+import com.sismics.docs.core.model.context.AppContext;
+import com.sismics.docs.core.model.jpa.File;
+import com.sismics.docs.core.model.jpa.User;
+import com.sismics.util.ImageUtil;
+import com.sismics.util.Scalr;
+
+import java.awt.image.BufferedImage;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Future;
+
+/**
+ * Thumbnail utilities.
+ */
+public class ThumbnailUtil {
+    /**
+     * Size of the longest side of the "web" image.
+     */
+    public static final int WEB_SIZE = 1280;
+
+    /**
+     * Size of the longest side of the thumbnail.
+     */
+    public static final int THUMBNAIL_SIZE = 256;
+
+    /**
+     * Generate and write the "web" image and the thumbnail of a file on the thumbnail executor.
+     *
+     * @param image Image of the file, at least WEB_SIZE on its longest side to keep the quality
+     * @param file File
+     * @param user User whom created the file
+     * @return Future completed when the images are written
+     */
+    public static Future<?> writeThumbnails(BufferedImage image, File file, User user) {
+        return AppContext.getInstance().getThumbnailExecutor().submit(() -> {
+            BufferedImage[] images = resize(image);
+
+            // Write "web" encrypted image
+            Path outputFile = DirectoryUtil.getStorageDirectory(file).resolve(file.getName() + "_web");
+            try (OutputStream outputStream = EncryptionUtil.encryptOutputStream(Files.newOutputStream(outputFile), user.getPrivateKey())) {
+                ImageUtil.writeJpeg(images[0], outputStream);
+            }
+
+            // Write "thumb" encrypted image
+            outputFile = DirectoryUtil.getStorageDirectory(file).resolve(file.getName() + "_thumb");
+            try (OutputStream outputStream = EncryptionUtil.encryptOutputStream(Files.newOutputStream(outputFile), user.getPrivateKey())) {
+                ImageUtil.writeJpeg(images[1], outputStream);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Resize an image to the "web" image, then the "web" image to the thumbnail.
+     * Each resize starts from the closest bigger image.
+     *
+     * @param image Image, flushed
+     * @return "web" image and thumbnail
+     */
+    public static BufferedImage[] resize(BufferedImage image) {
+        BufferedImage web = Scalr.resize(image, Scalr.Method.ULTRA_QUALITY, Scalr.Mode.AUTOMATIC, WEB_SIZE);
+        image.flush();
+        BufferedImage thumbnail = Scalr.resize(web, Scalr.Method.ULTRA_QUALITY, Scalr.Mode.AUTOMATIC, THUMBNAIL_SIZE);
+        return new BufferedImage[] { web, thumbnail };
+    }
+}
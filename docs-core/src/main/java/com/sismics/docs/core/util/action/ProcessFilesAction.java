@@ -1,5 +1,6 @@
 package com.sismics.docs.core.util.action;
 
+import com.sismics.docs.core.constant.FileProcessingPriority;
 import com.sismics.docs.core.dao.FileDao;
 import com.sismics.docs.core.dao.UserDao;
 import com.sismics.docs.core.dao.dto.DocumentDto;
@@ -50,6 +51,7 @@ public class ProcessFilesAction implements Action {
                 event.setLanguage(documentDto.getLanguage());
                 event.setFileId(file.getId());
                 event.setUnencryptedFile(unencryptedFile);
+                event.setPriority(FileProcessingPriority.BULK);
                 ThreadLocalContext.get().addAsyncEvent(event);
             }
         } catch (Exception e) {
@@ -0,0 +1,143 @@
+package com.sismics.docs.core.util.format;
+
+import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.util.ConfigUtil;
+
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * Bounded sink of the text content extracted from a file.
+ * The text beyond the maximum size is dropped, without splitting a surrogate pair.
+ */
+public class ContentSink extends Writer {
+    /**
+     * Maximum number of characters kept.
+     */
+    private final long maxLength;
+
+    /**
+     * In-memory buffer.
+     */
+    private StringBuilder buffer = new StringBuilder();
+
+    /**
+     * True if some text has been written, even empty.
+     */
+    private boolean written;
+
+    /**
+     * True if some text has been dropped.
+     */
+    private boolean truncated;
+
+    /**
+     * True while only whitespaces have been written.
+     */
+    private boolean blank = true;
+
+    /**
+     * Create a sink configured from the environment.
+     *
+     * @return Content sink
+     */
+    public static ContentSink create() {
+        return new ContentSink(ConfigUtil.getEnvIntegerValue(Constants.CONTENT_MAX_SIZE_ENV, Constants.DEFAULT_CONTENT_MAX_SIZE));
+    }
+
+    /**
+     * Create a sink.
+     *
+     * @param maxLength Maximum number of characters kept
+     */
+    public ContentSink(long maxLength) {
+        this.maxLength = Math.max(maxLength, 0);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        append(CharBuffer.wrap(cbuf), off, off + len);
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        append(str, off, off + len);
+    }
+
+    @Override
+    public Writer append(CharSequence csq, int start, int end) {
+        written = true;
+        int count = (int) Math.min(end - start, maxLength - buffer.length());
+        if (count < end - start) {
+            truncated = true;
+            if (count > 0 && Character.isHighSurrogate(csq.charAt(start + count - 1))) {
+                count--;
+            } else if (count <= 0 && buffer.length() > 0 && Character.isHighSurrogate(buffer.charAt(buffer.length() - 1))) {
+                // The low surrogate of the last character is dropped
+                buffer.setLength(buffer.length() - 1);
+            }
+        }
+        if (count <= 0) {
+            return this;
+        }
+
+        if (blank) {
+            for (int i = start; i < start + count; i++) {
+                if (!Character.isWhitespace(csq.charAt(i))) {
+                    blank = false;
+                    break;
+                }
+            }
+        }
+
+        buffer.append(csq, start, start + count);
+        return this;
+    }
+
+    /**
+     * Returns true if the maximum size is reached, the next text will be dropped.
+     *
+     * @return True if full
+     */
+    public boolean isFull() {
+        return truncated || buffer.length() >= maxLength;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public boolean isBlank() {
+        return blank;
+    }
+
+    /**
+     * Returns the text written.
+     *
+     * @return Text content, null if nothing has been written
+     */
+    public String getContent() {
+        if (!written) {
+            return null;
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Drop the text written.
+     */
+    public void reset() {
+        buffer = new StringBuilder();
+        written = false;
+        truncated = false;
+        blank = true;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -1,7 +1,6 @@
 package com.sismics.docs.core.util.format;
 
 import com.google.common.io.Closer;
-import com.sismics.docs.core.model.context.AppContext;
 import com.sismics.util.mime.MimeType;
 import fr.opensagres.poi.xwpf.converter.pdf.PdfConverter;
 import fr.opensagres.poi.xwpf.converter.pdf.PdfOptions;
@@ -14,6 +13,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Set;
 
 /**
  * DOCX format handler.
@@ -21,52 +21,68 @@ import java.nio.file.Path;
  * @author bgamard
  */
 public class DocxFormatHandler implements FormatHandler {
-    /**
-     * Temporary PDF file.
-     */
-    private Path temporaryPdfFile;
-
     @Override
-    public boolean accept(String mimeType) {
-        return MimeType.OFFICE_DOCUMENT.equals(mimeType);
+    public Set<String> getMimeTypes() {
+        return Set.of(MimeType.OFFICE_DOCUMENT);
     }
 
     @Override
     public BufferedImage generateThumbnail(Path file) throws Exception {
-        // Use the PDF format handler
-        return new PdfFormatHandler().generateThumbnail(getGeneratedPdf(file));
+        try (ProcessingSession session = new ProcessingSession(file)) {
+            return generateThumbnail(session);
+        }
+    }
+
+    @Override
+    public BufferedImage generateThumbnail(ProcessingSession session) throws Exception {
+        // Use the converted PDF, parsed once for the whole session
+        return PdfFormatHandler.generateThumbnail(session.getPdfDocument(session.getConvertedPdf(this::convertToPdf)));
     }
 
     @Override
     public String extractContent(String language, Path file) throws Exception {
-        // Use the PDF format handler
-        return new PdfFormatHandler().extractContent(language, getGeneratedPdf(file));
+        try (ProcessingSession session = new ProcessingSession(file)) {
+            return extractContent(language, session);
+        }
+    }
+
+    @Override
+    public String extractContent(String language, ProcessingSession session) throws Exception {
+        // Use the converted PDF, parsed once for the whole session
+        return PdfFormatHandler.extractContent(language, session.getPdfDocument(session.getConvertedPdf(this::convertToPdf)));
+    }
+
+    @Override
+    public void extractContent(String language, ProcessingSession session, ContentSink sink) throws Exception {
+        // Use the converted PDF, parsed once for the whole session
+        PdfFormatHandler.extractContent(language, session.getPdfDocument(session.getConvertedPdf(this::convertToPdf)), sink);
     }
 
     @Override
     public void appendToPdf(Path file, PDDocument doc, boolean fitImageToPage, int margin, MemoryUsageSetting memUsageSettings, Closer closer) throws Exception {
+        try (ProcessingSession session = new ProcessingSession(file)) {
+            appendToPdf(session, doc, fitImageToPage, margin, memUsageSettings, closer);
+        }
+    }
+
+    @Override
+    public void appendToPdf(ProcessingSession session, PDDocument doc, boolean fitImageToPage, int margin, MemoryUsageSetting memUsageSettings, Closer closer) throws Exception {
         // Use the PDF format handler
-        new PdfFormatHandler().appendToPdf(getGeneratedPdf(file), doc, fitImageToPage, margin, memUsageSettings, closer);
+        FormatHandlerUtil.find(MimeType.APPLICATION_PDF).appendToPdf(session.getConvertedPdf(this::convertToPdf), doc, fitImageToPage, margin, memUsageSettings, closer);
     }
 
     /**
-     * Generate a PDF from this DOCX.
+     * Convert this DOCX to PDF.
      *
      * @param file File
-     * @return PDF file
+     * @param outputStream PDF output stream
      * @throws Exception e
      */
-    private Path getGeneratedPdf(Path file) throws Exception {
-        if (temporaryPdfFile == null) {
-            temporaryPdfFile = AppContext.getInstance().getFileService().createTemporaryFile();
-            try (InputStream inputStream = Files.newInputStream(file);
-                 OutputStream outputStream = Files.newOutputStream(temporaryPdfFile)) {
-                XWPFDocument document = new XWPFDocument(inputStream);
-                PdfOptions options = PdfOptions.create();
-                PdfConverter.getInstance().convert(document, outputStream, options);
-            }
+    private void convertToPdf(Path file, OutputStream outputStream) throws Exception {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            XWPFDocument document = new XWPFDocument(inputStream);
+            PdfOptions options = PdfOptions.create();
+            PdfConverter.getInstance().convert(document, outputStream, options);
         }
-
-        return temporaryPdfFile;
     }
 }
@@ -6,20 +6,21 @@ import org.apache.pdfbox.pdmodel.PDDocument;
 
 import java.awt.image.BufferedImage;
 import java.nio.file.Path;
+import java.util.Set;
 
 /**
  * A format handler.
+ * A single instance of each handler is shared by all the threads, it must be stateless.
  *
  * @author bgamard
  */
 public interface FormatHandler {
     /**
-     * Returns true if this format handler can handle this MIME type.
+     * Returns the MIME types handled by this format handler.
      *
-     * @param mimeType MIME type
-     * @return True if accepted
+     * @return Set of MIME types
      */
-    boolean accept(String mimeType);
+    Set<String> getMimeTypes();
 
     /**
      * Generate a thumbnail.
@@ -30,6 +31,17 @@ public interface FormatHandler {
      */
     BufferedImage generateThumbnail(Path file) throws Exception;
 
+    /**
+     * Generate a thumbnail, sharing the parsed documents with the other stages of the session.
+     *
+     * @param session Processing session
+     * @return Thumbnail
+     * @throws Exception e
+     */
+    default BufferedImage generateThumbnail(ProcessingSession session) throws Exception {
+        return generateThumbnail(session.getFile());
+    }
+
     /**
      * Extract text content.
      *
@@ -40,6 +52,34 @@ public interface FormatHandler {
      */
     String extractContent(String language, Path file) throws Exception;
 
+    /**
+     * Extract text content, sharing the parsed documents with the other stages of the session.
+     *
+     * @param language Language
+     * @param session Processing session
+     * @return Text content
+     * @throws Exception e
+     */
+    default String extractContent(String language, ProcessingSession session) throws Exception {
+        return extractContent(language, session.getFile());
+    }
+
+    /**
+     * Extract text content into a bounded sink.
+     * The formats which can be read incrementally write their text as it comes, and stop once the sink is full.
+     *
+     * @param language Language
+     * @param session Processing session
+     * @param sink Content sink
+     * @throws Exception e
+     */
+    default void extractContent(String language, ProcessingSession session, ContentSink sink) throws Exception {
+        String content = extractContent(language, session);
+        if (content != null) {
+            sink.write(content);
+        }
+    }
+
     /**
      * Append to a PDF.
      *
@@ -52,4 +92,19 @@ public interface FormatHandler {
      * @throws Exception e
      */
     void appendToPdf(Path file, PDDocument doc, boolean fitImageToPage, int margin, MemoryUsageSetting memUsageSettings, Closer closer) throws Exception;
+
+    /**
+     * Append to a PDF, reusing the derivatives of the file from the session.
+     *
+     * @param session Processing session
+     * @param doc PDF document
+     * @param fitImageToPage Fit image to page
+     * @param margin Margin
+     * @param memUsageSettings Memory usage
+     * @param closer Closer
+     * @throws Exception e
+     */
+    default void appendToPdf(ProcessingSession session, PDDocument doc, boolean fitImageToPage, int margin, MemoryUsageSetting memUsageSettings, Closer closer) throws Exception {
+        appendToPdf(session.getFile(), doc, fitImageToPage, margin, memUsageSettings, closer);
+    }
 }
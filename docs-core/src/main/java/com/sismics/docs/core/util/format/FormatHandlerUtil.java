@@ -1,9 +1,12 @@
 package com.sismics.docs.core.util.format;
 
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableMap;
 import com.sismics.util.ClasspathScanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Format handler utilities.
@@ -12,29 +15,48 @@ import java.util.List;
  */
 public class FormatHandlerUtil {
     /**
-     * List of format handlers scanned in the classpath.
+     * Logger.
      */
-    private static final List<Class<? extends FormatHandler>> FORMAT_HANDLERS = Lists.newArrayList(
-            new ClasspathScanner<FormatHandler>().findClasses(FormatHandler.class, "com.sismics.docs.core.util.format"));
+    private static final Logger log = LoggerFactory.getLogger(FormatHandlerUtil.class);
+
+    /**
+     * Format handlers scanned in the classpath, instantiated once and indexed by MIME type.
+     */
+    private static final Map<String, FormatHandler> FORMAT_HANDLER_MAP = buildFormatHandlerMap();
+
+    /**
+     * Build the registry of format handlers.
+     * When several handlers declare the same MIME type, the one with the highest priority wins.
+     *
+     * @return Format handlers by MIME type
+     */
+    private static Map<String, FormatHandler> buildFormatHandlerMap() {
+        Map<String, FormatHandler> formatHandlerMap = new HashMap<>();
+        for (Class<FormatHandler> formatHandlerClass : new ClasspathScanner<FormatHandler>().findClasses(FormatHandler.class, "com.sismics.docs.core.util.format")) {
+            FormatHandler formatHandler;
+            try {
+                formatHandler = formatHandlerClass.getDeclaredConstructor().newInstance();
+            } catch (Exception e) {
+                log.error("Error instantiating the format handler: " + formatHandlerClass.getName(), e);
+                continue;
+            }
+            for (String mimeType : formatHandler.getMimeTypes()) {
+                formatHandlerMap.putIfAbsent(mimeType, formatHandler);
+            }
+        }
+        return ImmutableMap.copyOf(formatHandlerMap);
+    }
 
     /**
      * Find a suitable format handler for this MIME type.
      *
      * @param mimeType MIME type
-     * @return Instancied format handler
+     * @return Shared format handler, null if this MIME type is not handled
      */
     public static FormatHandler find(String mimeType) {
-        try {
-            for (Class<? extends FormatHandler> formatHandlerClass : FORMAT_HANDLERS) {
-                FormatHandler formatHandler = formatHandlerClass.getDeclaredConstructor().newInstance();
-                if (formatHandler.accept(mimeType)) {
-                    return formatHandler;
-                }
-            }
-        } catch (Exception e) {
+        if (mimeType == null) {
             return null;
         }
-
-        return null;
+        return FORMAT_HANDLER_MAP.get(mimeType);
     }
 }
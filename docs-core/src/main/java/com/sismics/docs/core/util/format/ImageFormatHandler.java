@@ -4,7 +4,9 @@ import com.google.common.io.Closer;
 import com.sismics.docs.core.constant.Constants;
 import com.sismics.docs.core.util.FileUtil;
 import com.sismics.docs.core.util.ConfigUtil;
+import com.sismics.docs.core.util.ThumbnailUtil;
 import com.sismics.docs.core.constant.ConfigType;
+import com.sismics.util.ImageUtil;
 import com.sismics.util.mime.MimeType;
 import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -17,31 +19,26 @@ import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Set;
 
 /**
  * Image format handler.
  *
  */
 public class ImageFormatHandler implements FormatHandler {
-    /**
-     * Saved MIME type.
-     */
-    private String mimeType;
-
     @Override
-    public boolean accept(String mimeType) {
-        this.mimeType = mimeType;
-        return mimeType.equals(MimeType.IMAGE_GIF) || mimeType.equals(MimeType.IMAGE_PNG) || mimeType.equals(MimeType.IMAGE_JPEG);
+    public Set<String> getMimeTypes() {
+        return Set.of(MimeType.IMAGE_GIF, MimeType.IMAGE_PNG, MimeType.IMAGE_JPEG);
     }
 
     @Override
     public BufferedImage generateThumbnail(Path file) throws Exception {
-        try (InputStream inputStream = Files.newInputStream(file)) {
-            return ImageIO.read(inputStream);
-        }
+        // Only decode the pixels needed by the biggest thumbnail
+        return ImageUtil.readSubsampled(file, ThumbnailUtil.WEB_SIZE);
     }
 
     @Override
@@ -62,17 +59,14 @@ public class ImageFormatHandler implements FormatHandler {
              InputStream storedFileInputStream = Files.newInputStream(file)) {
             // Read the image using the correct handler. PDFBox can't do it because it relies wrongly on file extension
             PDImageXObject pdImage;
-            switch (mimeType) {
-                case MimeType.IMAGE_JPEG:
-                    pdImage = JPEGFactory.createFromStream(doc, storedFileInputStream);
-                    break;
-                case MimeType.IMAGE_GIF:
-                case MimeType.IMAGE_PNG:
-                    BufferedImage bim = ImageIO.read(storedFileInputStream);
-                    pdImage = LosslessFactory.createFromImage(doc, bim);
-                    break;
-                default:
+            if (isJpeg(file)) {
+                pdImage = JPEGFactory.createFromStream(doc, storedFileInputStream);
+            } else {
+                BufferedImage bim = ImageIO.read(storedFileInputStream);
+                if (bim == null) {
                     return;
+                }
+                pdImage = LosslessFactory.createFromImage(doc, bim);
             }
 
             // Do we want to fill the page with the image?
@@ -99,4 +93,18 @@ public class ImageFormatHandler implements FormatHandler {
         }
         doc.addPage(page);
     }
+
+    /**
+     * Returns true if an image is a JPEG, from its magic number.
+     *
+     * @param file Image file
+     * @return True if JPEG
+     * @throws IOException e
+     */
+    private static boolean isJpeg(Path file) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            byte[] header = inputStream.readNBytes(3);
+            return header.length == 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF;
+        }
+    }
 }
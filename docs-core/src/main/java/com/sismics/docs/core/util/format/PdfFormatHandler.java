@@ -1,23 +1,23 @@
 package com.sismics.docs.core.util.format;
 
 import com.google.common.io.Closer;
-import com.sismics.docs.core.util.FileUtil;
+import com.sismics.docs.core.util.OcrUtil;
 import com.sismics.docs.core.util.ConfigUtil;
 import com.sismics.docs.core.constant.ConfigType;
+import com.sismics.docs.core.constant.Constants;
 import com.sismics.util.mime.MimeType;
 import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.multipdf.PDFMergerUtility;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.image.BufferedImage;
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Set;
 
 /**
  * PDF format handler.
@@ -31,47 +31,120 @@ public class PdfFormatHandler implements FormatHandler {
     private static final Logger log = LoggerFactory.getLogger(PdfFormatHandler.class);
 
     @Override
-    public boolean accept(String mimeType) {
-        return mimeType.equals(MimeType.APPLICATION_PDF);
+    public Set<String> getMimeTypes() {
+        return Set.of(MimeType.APPLICATION_PDF);
     }
 
     @Override
     public BufferedImage generateThumbnail(Path file) throws Exception {
-        try (InputStream inputStream = Files.newInputStream(file);
-             PDDocument pdfDocument = PDDocument.load(inputStream)) {
-            PDFRenderer renderer = new PDFRenderer(pdfDocument);
-            return renderer.renderImage(0);
+        try (ProcessingSession session = new ProcessingSession(file)) {
+            return generateThumbnail(session);
         }
     }
 
+    @Override
+    public BufferedImage generateThumbnail(ProcessingSession session) throws Exception {
+        return generateThumbnail(session.getPdfDocument(session.getFile()));
+    }
+
     @Override
     public String extractContent(String language, Path file) {
-        String content = null;
-        try (InputStream inputStream = Files.newInputStream(file);
-             PDDocument pdfDocument = PDDocument.load(inputStream)) {
-            content = new PDFTextStripper().getText(pdfDocument);
+        try (ProcessingSession session = new ProcessingSession(file)) {
+            return extractContent(language, session);
+        }
+    }
+
+    @Override
+    public String extractContent(String language, ProcessingSession session) {
+        PDDocument pdfDocument;
+        try {
+            pdfDocument = session.getPdfDocument(session.getFile());
+        } catch (Exception e) {
+            log.error("Error while extracting text from the PDF", e);
+            return null;
+        }
+        return extractContent(language, pdfDocument);
+    }
+
+    /**
+     * Generate a thumbnail from the first page of a parsed PDF.
+     *
+     * @param pdfDocument PDF document
+     * @return Thumbnail
+     * @throws Exception e
+     */
+    static BufferedImage generateThumbnail(PDDocument pdfDocument) throws Exception {
+        PDFRenderer renderer = new PDFRenderer(pdfDocument);
+        return renderer.renderImage(0);
+    }
+
+    @Override
+    public void extractContent(String language, ProcessingSession session, ContentSink sink) throws Exception {
+        PDDocument pdfDocument;
+        try {
+            pdfDocument = session.getPdfDocument(session.getFile());
+        } catch (Exception e) {
+            log.error("Error while extracting text from the PDF", e);
+            return;
+        }
+        extractContent(language, pdfDocument, sink);
+    }
+
+    /**
+     * Extract the text content of a parsed PDF, OCR-izing it if it contains only images.
+     *
+     * @param language Language
+     * @param pdfDocument PDF document
+     * @return Text content
+     */
+    static String extractContent(String language, PDDocument pdfDocument) {
+        try (ContentSink sink = ContentSink.create()) {
+            extractContent(language, pdfDocument, sink);
+            return sink.getContent();
+        } catch (IOException e) {
+            log.error("Error while extracting text from the PDF", e);
+            return null;
+        }
+    }
+
+    /**
+     * Extract the text content of a parsed PDF into a sink, OCR-izing it if it contains only images.
+     * The text is written page by page, until the sink is full.
+     *
+     * @param language Language
+     * @param pdfDocument PDF document
+     * @param sink Content sink
+     * @throws IOException e
+     */
+    static void extractContent(String language, PDDocument pdfDocument, ContentSink sink) throws IOException {
+        boolean extracted = false;
+        try {
+            // Mark the end of each page, the contents can be indexed page by page
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setPageEnd(stripper.getPageEnd() + Constants.PAGE_SEPARATOR);
+            for (int page = 1; page <= pdfDocument.getNumberOfPages() && !sink.isFull(); page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                stripper.writeText(pdfDocument, sink);
+            }
+            extracted = true;
         } catch (Exception e) {
             log.error("Error while extracting text from the PDF", e);
         }
 
         // No text content, try to OCR it
-        if (language != null && content != null && content.trim().isEmpty() && ConfigUtil.getConfigBooleanValue(ConfigType.OCR_ENABLED, true)) {
-            StringBuilder sb = new StringBuilder();
-            try (InputStream inputStream = Files.newInputStream(file);
-                 PDDocument pdfDocument = PDDocument.load(inputStream)) {
-                PDFRenderer renderer = new PDFRenderer(pdfDocument);
-                for (int pageIndex = 0; pageIndex < pdfDocument.getNumberOfPages(); pageIndex++) {
-                    log.info("OCR page " + (pageIndex + 1) + "/" + pdfDocument.getNumberOfPages() + " of PDF file containing only images");
-                    sb.append(" ");
-                    sb.append(FileUtil.ocrFile(language, renderer.renderImageWithDPI(pageIndex, 300, ImageType.GRAY)));
+        if (language != null && extracted && sink.isBlank() && ConfigUtil.getConfigBooleanValue(ConfigType.OCR_ENABLED, true)) {
+            try {
+                String content = OcrUtil.ocrPdf(language, pdfDocument, (pageIndex, completedPageCount, pageCount) ->
+                        log.info("OCR page " + (pageIndex + 1) + " done, " + completedPageCount + "/" + pageCount + " of PDF file containing only images"));
+                sink.reset();
+                if (content != null) {
+                    sink.write(content);
                 }
-                return sb.toString();
             } catch (Exception e) {
                 log.error("Error while OCR-izing the PDF", e);
             }
         }
-
-        return content;
     }
 
     @Override
@@ -17,9 +17,11 @@ import java.awt.*;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
 
 /**
  * PPTX format handler.
@@ -27,19 +29,21 @@ import java.util.List;
  * @author bgamard
  */
 public class PptxFormatHandler implements FormatHandler {
-    /**
-     * Cached PPTX loaded file.
-     */
-    private XMLSlideShow slideShow;
-
     @Override
-    public boolean accept(String mimeType) {
-        return MimeType.OFFICE_PRESENTATION.equals(mimeType);
+    public Set<String> getMimeTypes() {
+        return Set.of(MimeType.OFFICE_PRESENTATION);
     }
 
     @Override
     public BufferedImage generateThumbnail(Path file) throws Exception {
-        XMLSlideShow pptx = loadPPtxFile(file);
+        try (ProcessingSession session = new ProcessingSession(file)) {
+            return generateThumbnail(session);
+        }
+    }
+
+    @Override
+    public BufferedImage generateThumbnail(ProcessingSession session) throws Exception {
+        XMLSlideShow pptx = loadPptx(session);
         if (pptx.getSlides().size() > 0) {
             return generateImageFromSlide(pptx, 0);
         }
@@ -49,13 +53,51 @@ public class PptxFormatHandler implements FormatHandler {
 
     @Override
     public String extractContent(String language, Path file) throws Exception {
-        XMLSlideShow pptx = loadPPtxFile(file);
-        return new SlideShowExtractor<>(pptx).getText();
+        try (ProcessingSession session = new ProcessingSession(file)) {
+            return extractContent(language, session);
+        }
+    }
+
+    @Override
+    public String extractContent(String language, ProcessingSession session) throws Exception {
+        return new SlideShowExtractor<>(loadPptx(session)).getText();
     }
 
     @Override
     public void appendToPdf(Path file, PDDocument doc, boolean fitImageToPage, int margin, MemoryUsageSetting memUsageSettings, Closer closer) throws Exception {
-        XMLSlideShow pptx = loadPPtxFile(file);
+        try (ProcessingSession session = new ProcessingSession(file)) {
+            appendSlides(loadPptx(session), doc);
+        }
+    }
+
+    @Override
+    public void appendToPdf(ProcessingSession session, PDDocument doc, boolean fitImageToPage, int margin, MemoryUsageSetting memUsageSettings, Closer closer) throws Exception {
+        // The slides are rendered once, then the rendered PDF is reused
+        FormatHandlerUtil.find(MimeType.APPLICATION_PDF).appendToPdf(session.getConvertedPdf((file, outputStream) -> convertToPdf(loadPptx(session), outputStream)), doc, fitImageToPage, margin, memUsageSettings, closer);
+    }
+
+    /**
+     * Convert a PPTX to PDF.
+     *
+     * @param pptx PPTX
+     * @param outputStream PDF output stream
+     * @throws Exception e
+     */
+    private void convertToPdf(XMLSlideShow pptx, OutputStream outputStream) throws Exception {
+        try (PDDocument pdfDocument = new PDDocument(MemoryUsageSetting.setupTempFileOnly())) {
+            appendSlides(pptx, pdfDocument);
+            pdfDocument.save(outputStream);
+        }
+    }
+
+    /**
+     * Append the slides of a PPTX to a PDF, one page per slide.
+     *
+     * @param pptx PPTX
+     * @param doc PDF document
+     * @throws Exception e
+     */
+    private void appendSlides(XMLSlideShow pptx, PDDocument doc) throws Exception {
         List<XSLFSlide> slides = pptx.getSlides();
         Dimension pgsize = pptx.getPageSize();
         for (int slideIndex = 0; slideIndex < slides.size(); slideIndex++) {
@@ -70,13 +112,19 @@ public class PptxFormatHandler implements FormatHandler {
         }
     }
 
-    private XMLSlideShow loadPPtxFile(Path file) throws Exception {
-        if (slideShow == null) {
+    /**
+     * Load the PPTX of a session, parsed once for the whole session.
+     *
+     * @param session Processing session
+     * @return PPTX
+     * @throws Exception e
+     */
+    private XMLSlideShow loadPptx(ProcessingSession session) throws Exception {
+        return session.getDocument(XMLSlideShow.class, file -> {
             try (InputStream inputStream = Files.newInputStream(file)) {
-                slideShow = new XMLSlideShow(inputStream);
+                return new XMLSlideShow(inputStream);
             }
-        }
-        return slideShow;
+        });
     }
 
     /**
@@ -0,0 +1,228 @@
+package com.sismics.docs.core.util.format;
+
+import com.sismics.docs.core.model.context.AppContext;
+import com.sismics.docs.core.model.jpa.File;
+import com.sismics.docs.core.util.DirectoryUtil;
+import com.sismics.docs.core.util.EncryptionUtil;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Processing session of a file.
+ * The documents parsed during the processing are shared by the thumbnail, text extraction and OCR stages,
+ * and closed with the session.
+ */
+public class ProcessingSession implements Closeable {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(ProcessingSession.class);
+
+    /**
+     * Main memory used by a parsed PDF document, the rest is buffered in temporary files.
+     */
+    private static final long PDF_MAX_MAIN_MEMORY = 16 * 1024 * 1024;
+
+    /**
+     * File to process.
+     */
+    private final Path file;
+
+    /**
+     * Stored file, null if the file is not stored.
+     */
+    private final File storedFile;
+
+    /**
+     * Private key of the stored file.
+     */
+    private final String privateKey;
+
+    /**
+     * PDF converted from the file.
+     */
+    private Path convertedPdfFile;
+
+    /**
+     * Parsed PDF documents by file.
+     */
+    private final Map<Path, PDDocument> pdfDocumentMap = new HashMap<>();
+
+    /**
+     * Other parsed documents of the file, by type.
+     */
+    private final Map<Class<?>, Closeable> documentMap = new HashMap<>();
+
+    /**
+     * Open a processing session of a file which is not stored.
+     *
+     * @param file File to process
+     */
+    public ProcessingSession(Path file) {
+        this(file, null, null);
+    }
+
+    /**
+     * Open a processing session of a stored file.
+     * The derivatives of the file are reused from the storage.
+     *
+     * @param file Unencrypted file to process
+     * @param storedFile Stored file
+     * @param privateKey Private key of the stored file
+     */
+    public ProcessingSession(Path file, File storedFile, String privateKey) {
+        this.file = file;
+        this.storedFile = storedFile;
+        this.privateKey = privateKey;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns a PDF document, parsed on the first call.
+     * The file is read with random access, it is not loaded in memory.
+     *
+     * @param pdfFile PDF file, the processed file or a PDF generated from it
+     * @return PDF document, closed with the session
+     * @throws IOException e
+     */
+    public PDDocument getPdfDocument(Path pdfFile) throws IOException {
+        PDDocument pdfDocument = pdfDocumentMap.get(pdfFile);
+        if (pdfDocument == null) {
+            pdfDocument = PDDocument.load(pdfFile.toFile(), MemoryUsageSetting.setupMixed(PDF_MAX_MAIN_MEMORY));
+            pdfDocumentMap.put(pdfFile, pdfDocument);
+        }
+        return pdfDocument;
+    }
+
+    /**
+     * Returns the file parsed as a document of a given type, parsed on the first call.
+     * The format handlers are shared and stateless, the documents are cached by the session.
+     *
+     * @param type Document type
+     * @param parser Parser of the file
+     * @param <T> Document type
+     * @return Document, closed with the session
+     * @throws Exception e
+     */
+    public <T extends Closeable> T getDocument(Class<T> type, DocumentParser<T> parser) throws Exception {
+        Closeable document = documentMap.get(type);
+        if (document == null) {
+            document = parser.parse(file);
+            documentMap.put(type, document);
+        }
+        return type.cast(document);
+    }
+
+    /**
+     * Returns the PDF converted from the file.
+     * The conversion of a stored file is saved encrypted next to it, and reused by the next sessions.
+     *
+     * @param conversion Conversion of the file to PDF
+     * @return Unencrypted PDF file
+     * @throws Exception e
+     */
+    public Path getConvertedPdf(PdfConversion conversion) throws Exception {
+        if (convertedPdfFile != null) {
+            return convertedPdfFile;
+        }
+
+        Path storedPdfFile = storedFile == null ? null : DirectoryUtil.getStorageDirectory(storedFile).resolve(storedFile.getName() + "_pdf");
+        if (storedPdfFile != null && Files.exists(storedPdfFile)) {
+            try {
+                convertedPdfFile = EncryptionUtil.decryptFile(storedPdfFile, privateKey);
+                return convertedPdfFile;
+            } catch (Exception e) {
+                log.error("Unable to read the converted PDF, converting again: " + storedPdfFile, e);
+            }
+        }
+
+        Path pdfFile = AppContext.getInstance().getFileService().createTemporaryFile();
+        try (OutputStream outputStream = Files.newOutputStream(pdfFile)) {
+            conversion.convert(file, outputStream);
+        }
+
+        if (storedPdfFile != null) {
+            // Write then rename, a concurrent session never reads a partial PDF
+            Path partFile = storedPdfFile.resolveSibling(storedPdfFile.getFileName() + ".part");
+            try {
+                try (OutputStream outputStream = EncryptionUtil.encryptOutputStream(Files.newOutputStream(partFile), privateKey)) {
+                    Files.copy(pdfFile, outputStream);
+                }
+                Files.move(partFile, storedPdfFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (Exception e) {
+                log.error("Unable to save the converted PDF: " + storedPdfFile, e);
+                Files.deleteIfExists(partFile);
+            }
+        }
+
+        convertedPdfFile = pdfFile;
+        return convertedPdfFile;
+    }
+
+    @Override
+    public void close() {
+        for (PDDocument pdfDocument : pdfDocumentMap.values()) {
+            try {
+                pdfDocument.close();
+            } catch (IOException e) {
+                log.error("Error closing a PDF document", e);
+            }
+        }
+        pdfDocumentMap.clear();
+
+        for (Closeable document : documentMap.values()) {
+            try {
+                document.close();
+            } catch (IOException e) {
+                log.error("Error closing a document", e);
+            }
+        }
+        documentMap.clear();
+    }
+
+    /**
+     * Conversion of a file to PDF.
+     */
+    @FunctionalInterface
+    public interface PdfConversion {
+        /**
+         * Convert a file to PDF.
+         *
+         * @param file File
+         * @param outputStream PDF output stream
+         * @throws Exception e
+         */
+        void convert(Path file, OutputStream outputStream) throws Exception;
+    }
+
+    /**
+     * Parser of a file.
+     *
+     * @param <T> Document type
+     */
+    @FunctionalInterface
+    public interface DocumentParser<T extends Closeable> {
+        /**
+         * Parse a file.
+         *
+         * @param file File
+         * @return Document
+         * @throws Exception e
+         */
+        T parse(Path file) throws Exception;
+    }
+}
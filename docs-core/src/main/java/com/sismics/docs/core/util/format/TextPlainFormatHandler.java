@@ -1,18 +1,24 @@
 package com.sismics.docs.core.util.format;
 
 import com.google.common.io.Closer;
-import com.lowagie.text.*;
-import com.lowagie.text.pdf.PdfWriter;
-import com.sismics.docs.core.model.context.AppContext;
+import com.google.common.io.Resources;
 import com.sismics.util.mime.MimeType;
 import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 
+import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.OutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Text plain format handler.
@@ -20,33 +26,134 @@ import java.nio.file.Path;
  * @author bgamard
  */
 public class TextPlainFormatHandler implements FormatHandler {
+    /**
+     * Width of the thumbnail page, A4 at 72 DPI like the PDF thumbnails.
+     */
+    private static final int PAGE_WIDTH = 595;
+
+    /**
+     * Height of the thumbnail page.
+     */
+    private static final int PAGE_HEIGHT = 842;
+
+    /**
+     * Margin of the thumbnail page.
+     */
+    private static final int PAGE_MARGIN = 40;
+
+    /**
+     * Font size.
+     */
+    private static final float FONT_SIZE = 12f;
+
+    /**
+     * Line height.
+     */
+    private static final int LINE_HEIGHT = 18;
+
+    /**
+     * Monospaced font of the thumbnails.
+     */
+    private static final Font FONT = loadFont();
+
     @Override
-    public boolean accept(String mimeType) {
-        return mimeType.equals(MimeType.TEXT_CSV) || mimeType.equals(MimeType.TEXT_PLAIN);
+    public Set<String> getMimeTypes() {
+        return Set.of(MimeType.TEXT_CSV, MimeType.TEXT_PLAIN);
     }
 
     @Override
     public BufferedImage generateThumbnail(Path file) throws Exception {
-        Document output = new Document(PageSize.A4, 40, 40, 40, 40);
-        Path tempFile = AppContext.getInstance().getFileService().createTemporaryFile();
-        OutputStream pdfOutputStream = Files.newOutputStream(tempFile);
-        PdfWriter.getInstance(output, pdfOutputStream);
-
-        output.open();
-        String content = Files.readString(file, StandardCharsets.UTF_8);
-        Font font = FontFactory.getFont("LiberationMono-Regular");
-        Paragraph paragraph = new Paragraph(content, font);
-        paragraph.setAlignment(Element.ALIGN_LEFT);
-        output.add(paragraph);
-        output.close();
-
-        // Use the PDF format handler
-        return new PdfFormatHandler().generateThumbnail(tempFile);
+        // Draw the first page only, the rest of the file is never read
+        BufferedImage image = new BufferedImage(PAGE_WIDTH, PAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, PAGE_WIDTH, PAGE_HEIGHT);
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setColor(Color.BLACK);
+            graphics.setFont(FONT);
+
+            FontMetrics fontMetrics = graphics.getFontMetrics();
+            int lineCount = (PAGE_HEIGHT - 2 * PAGE_MARGIN) / LINE_HEIGHT;
+            int columnCount = (PAGE_WIDTH - 2 * PAGE_MARGIN) / Math.max(fontMetrics.charWidth('m'), 1);
+            int y = PAGE_MARGIN + fontMetrics.getAscent();
+            for (String line : readFirstLines(file, lineCount, columnCount)) {
+                graphics.drawString(line, PAGE_MARGIN, y);
+                y += LINE_HEIGHT;
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Read the first lines of a text file, wrapped to a number of columns.
+     *
+     * @param file File
+     * @param lineCount Maximum number of lines
+     * @param columnCount Number of columns
+     * @return List of lines
+     * @throws IOException e
+     */
+    private static List<String> readFirstLines(Path file, int lineCount, int columnCount) throws IOException {
+        List<String> lineList = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        try (Reader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+            for (int c = reader.read(); c != -1 && lineList.size() < lineCount; c = reader.read()) {
+                if (c == '\n') {
+                    lineList.add(line.toString());
+                    line.setLength(0);
+                } else if (c == '\t') {
+                    line.append("    ");
+                } else if (c != '\r') {
+                    line.append((char) c);
+                }
+                while (line.length() >= columnCount && lineList.size() < lineCount) {
+                    lineList.add(line.substring(0, columnCount));
+                    line.delete(0, columnCount);
+                }
+            }
+        }
+        if (line.length() > 0 && lineList.size() < lineCount) {
+            lineList.add(line.toString());
+        }
+        return lineList;
+    }
+
+    /**
+     * Load the font of the thumbnails.
+     *
+     * @return Font
+     */
+    private static Font loadFont() {
+        try (InputStream inputStream = Resources.getResource("fonts/LiberationMono-Regular.ttf").openStream()) {
+            return Font.createFont(Font.TRUETYPE_FONT, inputStream).deriveFont(FONT_SIZE);
+        } catch (Exception e) {
+            return new Font(Font.MONOSPACED, Font.PLAIN, (int) FONT_SIZE);
+        }
     }
 
     @Override
     public String extractContent(String language, Path file) throws Exception {
-        return Files.readString(file, StandardCharsets.UTF_8);
+        try (ProcessingSession session = new ProcessingSession(file);
+             ContentSink sink = ContentSink.create()) {
+            extractContent(language, session, sink);
+            return sink.getContent();
+        }
+    }
+
+    @Override
+    public void extractContent(String language, ProcessingSession session, ContentSink sink) throws Exception {
+        // Stream the text, the file is never loaded entirely in memory
+        try (Reader reader = Files.newBufferedReader(session.getFile(), StandardCharsets.UTF_8)) {
+            // An empty file has an empty content
+            sink.write("");
+            char[] buffer = new char[8192];
+            for (int count = reader.read(buffer); count != -1 && !sink.isFull(); count = reader.read(buffer)) {
+                sink.write(buffer, 0, count);
+            }
+        }
     }
 
     @Override
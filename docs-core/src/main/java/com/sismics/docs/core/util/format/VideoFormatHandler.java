@@ -3,7 +3,8 @@ package com.sismics.docs.core.util.format;
 import com.google.common.collect.Lists;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Closer;
-import com.sismics.util.io.InputStreamReaderThread;
+import com.sismics.docs.core.constant.ExternalTool;
+import com.sismics.docs.core.model.context.AppContext;
 import com.sismics.util.mime.MimeType;
 import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -11,11 +12,11 @@ import org.apache.pdfbox.pdmodel.PDDocument;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Video format handler.
@@ -24,8 +25,8 @@ import java.util.List;
  */
 public class VideoFormatHandler implements FormatHandler {
     @Override
-    public boolean accept(String mimeType) {
-        return mimeType.equals(MimeType.VIDEO_MP4) || mimeType.equals(MimeType.VIDEO_WEBM);
+    public Set<String> getMimeTypes() {
+        return Set.of(MimeType.VIDEO_MP4, MimeType.VIDEO_WEBM);
     }
 
     @Override
@@ -33,17 +34,9 @@ public class VideoFormatHandler implements FormatHandler {
         List<String> result = Lists.newLinkedList(Arrays.asList("ffmpeg", "-i"));
         result.add(file.toAbsolutePath().toString());
         result.addAll(Arrays.asList("-vf", "thumbnail", "-frames:v", "1", "-f", "mjpeg", "-"));
-        ProcessBuilder pb = new ProcessBuilder(result);
-        Process process = pb.start();
-
-        // Consume the process error stream
-        final String commandName = pb.command().get(0);
-        new InputStreamReaderThread(process.getErrorStream(), commandName).start();
 
         // Consume the data as an image
-        try (InputStream is = process.getInputStream()) {
-            return ImageIO.read(is);
-        }
+        return AppContext.getInstance().getProcessSupervisor().run(ExternalTool.FFMPEG, result, ImageIO::read);
     }
 
     @Override
@@ -51,22 +44,12 @@ public class VideoFormatHandler implements FormatHandler {
         List<String> result = Lists.newLinkedList();
         result.add("mediainfo");
         result.add(file.toAbsolutePath().toString());
-        ProcessBuilder pb = new ProcessBuilder(result);
-        Process process;
-        try {
-            process = pb.start();
-        } catch (IOException e) {
-            return null;
-        }
-
-        // Consume the process error stream
-        final String commandName = pb.command().get(0);
-        new InputStreamReaderThread(process.getErrorStream(), commandName).start();
 
         // Consume the data as a string
-        try (InputStream is = process.getInputStream()) {
-            return new String(ByteStreams.toByteArray(is), StandardCharsets.UTF_8);
-        } catch (Exception e) {
+        try {
+            return AppContext.getInstance().getProcessSupervisor().run(ExternalTool.MEDIAINFO, result,
+                    is -> new String(ByteStreams.toByteArray(is), StandardCharsets.UTF_8));
+        } catch (IOException e) {
             return null;
         }
     }
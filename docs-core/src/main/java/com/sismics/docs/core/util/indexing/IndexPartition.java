@@ -0,0 +1,70 @@
+package com.sismics.docs.core.util.indexing;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.Date;
+
+/**
+ * Partition of the index, holding the documents created in a period and their files.
+ * Orphan files belong to the partition of their own creation date.
+ */
+public class IndexPartition {
+    /**
+     * Partition of an index which is not partitioned.
+     */
+    public static final IndexPartition ALL = new IndexPartition("all", null, null);
+
+    /**
+     * Name, partitions are rebuilt in the order of their names.
+     */
+    private final String name;
+
+    /**
+     * Start of the period, inclusive. Null if unbounded.
+     */
+    private final Date startDate;
+
+    /**
+     * End of the period, exclusive. Null if unbounded.
+     */
+    private final Date endDate;
+
+    public IndexPartition(String name, Date startDate, Date endDate) {
+        this.name = name;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * Returns true if documents created between two dates may be in this partition.
+     *
+     * @param minDate Minimum creation date, inclusive. Null if unbounded
+     * @param maxDate Maximum creation date, inclusive. Null if unbounded
+     * @return True if the period overlaps this partition
+     */
+    public boolean overlaps(Date minDate, Date maxDate) {
+        return (minDate == null || endDate == null || endDate.after(minDate))
+                && (maxDate == null || startDate == null || !startDate.after(maxDate));
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("name", name)
+                .add("startDate", startDate)
+                .add("endDate", endDate)
+                .toString();
+    }
+}
@@ -0,0 +1,385 @@
+package com.sismics.docs.core.util.indexing;
+
+import com.google.common.base.Strings;
+import com.sismics.docs.core.dao.DocumentDao;
+import com.sismics.docs.core.dao.FileDao;
+import com.sismics.docs.core.model.context.AppContext;
+import com.sismics.docs.core.model.jpa.Document;
+import com.sismics.docs.core.model.jpa.File;
+import com.sismics.docs.core.util.TransactionUtil;
+import com.sismics.util.EnvironmentUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Full index rebuild.
+ * The partitions of the index are rebuilt one at a time, the others stay searchable.
+ * Documents and files are streamed from the database with keyset pagination in short transactions,
+ * and indexed by a pool of workers. A checkpoint is committed with the index regularly,
+ * so an interrupted rebuild can be resumed.
+ */
+public class IndexRebuilder {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(IndexRebuilder.class);
+
+    /**
+     * Number of rows loaded from the database at once.
+     */
+    private static final int PAGE_SIZE = 100;
+
+    /**
+     * Number of pages indexed between two checkpoints.
+     */
+    private static final int CHECKPOINT_PAGE_COUNT = 10;
+
+    /**
+     * Rebuild phases, in order.
+     */
+    public enum Phase {
+        DOCUMENT,
+        FILE
+    }
+
+    /**
+     * Rebuild status.
+     */
+    public enum Status {
+        IDLE,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    /**
+     * Executor running the rebuilds, outside of the async event bus.
+     */
+    private final ExecutorService rebuildExecutor;
+
+    /**
+     * True if a rebuild is running.
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Current status.
+     */
+    private volatile Status status = Status.IDLE;
+
+    /**
+     * Current partition.
+     */
+    private volatile String partition;
+
+    /**
+     * Current phase.
+     */
+    private volatile Phase phase;
+
+    /**
+     * True if the current rebuild has been resumed from a checkpoint.
+     */
+    private volatile boolean resumed;
+
+    /**
+     * Start date of the last rebuild.
+     */
+    private volatile Long startDate;
+
+    /**
+     * End date of the last rebuild.
+     */
+    private volatile Long endDate;
+
+    /**
+     * Number of documents to index.
+     */
+    private volatile long documentTotal;
+
+    /**
+     * Number of files to index.
+     */
+    private volatile long fileTotal;
+
+    /**
+     * Number of documents indexed.
+     */
+    private final AtomicLong documentCount = new AtomicLong();
+
+    /**
+     * Number of files indexed.
+     */
+    private final AtomicLong fileCount = new AtomicLong();
+
+    public IndexRebuilder() {
+        rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start a rebuild of the index, if none is running.
+     *
+     * @param resume True to resume from the last checkpoint of an interrupted rebuild
+     */
+    public void rebuild(boolean resume) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("An index rebuild is already running");
+            return;
+        }
+
+        if (EnvironmentUtil.isUnitTest()) {
+            // Unit tests expect the index to be rebuilt when the event is processed
+            run(resume);
+        } else {
+            rebuildExecutor.submit(() -> run(resume));
+        }
+    }
+
+    /**
+     * Run a rebuild of the index.
+     *
+     * @param resume True to resume from the last checkpoint of an interrupted rebuild
+     */
+    private void run(boolean resume) {
+        IndexingHandler indexingHandler = AppContext.getInstance().getIndexingHandler();
+        int threadCount = Math.max(Runtime.getRuntime().availableProcessors(), 2);
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService workerExecutor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "index-rebuild-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            startDate = System.currentTimeMillis();
+            endDate = null;
+            documentCount.set(0);
+            fileCount.set(0);
+            status = Status.RUNNING;
+            TransactionUtil.handle(() -> {
+                documentTotal = new DocumentDao().countAll();
+                fileTotal = new FileDao().countAll();
+            });
+
+            AtomicReference<List<IndexPartition>> partitionList = new AtomicReference<>();
+            TransactionUtil.handle(() -> partitionList.set(indexingHandler.getPartitions()));
+            if (partitionList.get() == null) {
+                throw new Exception("Error listing the index partitions");
+            }
+
+            // Start from the last checkpoint, or from the first partition
+            String checkpoint = resume ? indexingHandler.getRebuildCheckpoint() : null;
+            int partitionIndex = 0;
+            String lastId = null;
+            phase = Phase.DOCUMENT;
+            if (checkpoint != null && checkpoint.indexOf('/') > 0) {
+                String partitionName = checkpoint.substring(0, checkpoint.indexOf('/'));
+                partitionIndex = findPartition(partitionList.get(), partitionName);
+                phase = Phase.valueOf(checkpoint.substring(checkpoint.indexOf('/') + 1, checkpoint.indexOf(':')));
+                lastId = Strings.emptyToNull(checkpoint.substring(checkpoint.indexOf(':') + 1));
+            }
+            resumed = checkpoint != null && partitionIndex >= 0;
+            if (!resumed) {
+                partitionIndex = 0;
+                phase = Phase.DOCUMENT;
+                lastId = null;
+            }
+            log.info("Rebuilding {} index partitions from checkpoint {} with {} workers", partitionList.get().size(), checkpoint, threadCount);
+
+            for (; partitionIndex < partitionList.get().size(); partitionIndex++) {
+                IndexPartition indexPartition = partitionList.get().get(partitionIndex);
+                partition = indexPartition.getName();
+                if (lastId == null && phase == Phase.DOCUMENT) {
+                    // Start the partition from scratch
+                    indexingHandler.clearIndex(indexPartition);
+                    indexingHandler.commitRebuildCheckpoint(getCheckpoint(indexPartition, Phase.DOCUMENT, null));
+                }
+
+                if (phase == Phase.DOCUMENT) {
+                    indexAll(indexPartition, Phase.DOCUMENT, lastId, workerExecutor, documentCount,
+                            id -> new DocumentDao().findAllAfter(id, PAGE_SIZE, indexPartition.getStartDate(), indexPartition.getEndDate()),
+                            Document::getId, indexingHandler::createDocuments);
+                    phase = Phase.FILE;
+                    lastId = null;
+                    indexingHandler.commitRebuildCheckpoint(getCheckpoint(indexPartition, Phase.FILE, null));
+                }
+                indexAll(indexPartition, Phase.FILE, lastId, workerExecutor, fileCount,
+                        id -> new FileDao().findAllAfter(id, PAGE_SIZE, indexPartition.getStartDate(), indexPartition.getEndDate()),
+                        File::getId, indexingHandler::createFiles);
+                phase = Phase.DOCUMENT;
+                lastId = null;
+            }
+
+            // The rebuild is complete
+            indexingHandler.commitRebuildCheckpoint(null);
+            status = Status.DONE;
+            log.info("Rebuilding index done: {} documents and {} files in {}ms",
+                    documentCount.get(), fileCount.get(), System.currentTimeMillis() - startDate);
+        } catch (InterruptedException e) {
+            // Shutting down, the rebuild will be resumed on the next start
+            Thread.currentThread().interrupt();
+            status = Status.FAILED;
+            log.info("Index rebuild interrupted");
+        } catch (Exception e) {
+            status = Status.FAILED;
+            log.error("Error rebuilding the index, it will be resumed on the next start", e);
+        } finally {
+            workerExecutor.shutdownNow();
+            endDate = System.currentTimeMillis();
+            running.set(false);
+        }
+    }
+
+    /**
+     * Index all the entities of a phase in a partition, after a last indexed ID.
+     *
+     * @param partition Partition
+     * @param phase Phase
+     * @param lastId ID of the last indexed entity, null to start from the beginning
+     * @param workerExecutor Executor indexing the pages
+     * @param counter Counter of indexed entities
+     * @param pageLoader Loads the page following an ID
+     * @param idGetter Returns the ID of an entity
+     * @param indexer Indexes a page
+     * @param <T> Entity type
+     * @throws Exception e
+     */
+    private <T> void indexAll(IndexPartition partition, Phase phase, String lastId, ExecutorService workerExecutor, AtomicLong counter,
+                              Function<String, List<T>> pageLoader, Function<T, String> idGetter, Consumer<List<T>> indexer) throws Exception {
+        IndexingHandler indexingHandler = AppContext.getInstance().getIndexingHandler();
+        List<Future<?>> pendingList = new ArrayList<>();
+        while (true) {
+            // Load the next page in its own transaction
+            String pageLastId = lastId;
+            AtomicReference<List<T>> page = new AtomicReference<>();
+            TransactionUtil.handle(() -> page.set(pageLoader.apply(pageLastId)));
+            if (page.get() == null) {
+                throw new Exception("Error loading the entities after " + lastId);
+            }
+            List<T> entityList = page.get();
+            if (entityList.isEmpty()) {
+                break;
+            }
+
+            // Index it on a worker
+            pendingList.add(workerExecutor.submit(() -> {
+                TransactionUtil.handle(() -> indexer.accept(entityList));
+                counter.addAndGet(entityList.size());
+            }));
+            lastId = idGetter.apply(entityList.get(entityList.size() - 1));
+
+            // Checkpoint when all the pages up to the last ID are indexed
+            if (pendingList.size() >= CHECKPOINT_PAGE_COUNT) {
+                awaitAll(pendingList);
+                indexingHandler.commitRebuildCheckpoint(getCheckpoint(partition, phase, lastId));
+            }
+        }
+        awaitAll(pendingList);
+    }
+
+    /**
+     * Wait for pending tasks to complete.
+     *
+     * @param pendingList Pending tasks, cleared after completion
+     * @throws InterruptedException e
+     * @throws ExecutionException e
+     */
+    private void awaitAll(List<Future<?>> pendingList) throws InterruptedException, ExecutionException {
+        for (Future<?> future : pendingList) {
+            future.get();
+        }
+        pendingList.clear();
+    }
+
+    /**
+     * Build a checkpoint.
+     *
+     * @param partition Partition
+     * @param phase Phase
+     * @param lastId ID of the last indexed entity of this phase
+     * @return Checkpoint
+     */
+    private String getCheckpoint(IndexPartition partition, Phase phase, String lastId) {
+        return partition.getName() + "/" + phase.name() + ":" + Strings.nullToEmpty(lastId);
+    }
+
+    /**
+     * Find a partition by name.
+     *
+     * @param partitionList Partitions
+     * @param name Partition name
+     * @return Index of the partition, -1 if not found
+     */
+    private int findPartition(List<IndexPartition> partitionList, String name) {
+        for (int i = 0; i < partitionList.size(); i++) {
+            if (partitionList.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Stop the running rebuild, it will be resumed on the next start.
+     */
+    public void shutDown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getPartition() {
+        return partition;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    public Long getStartDate() {
+        return startDate;
+    }
+
+    public Long getEndDate() {
+        return endDate;
+    }
+
+    public long getDocumentTotal() {
+        return documentTotal;
+    }
+
+    public long getFileTotal() {
+        return fileTotal;
+    }
+
+    public long getDocumentCount() {
+        return documentCount.get();
+    }
+
+    public long getFileCount() {
+        return fileCount.get();
+    }
+}
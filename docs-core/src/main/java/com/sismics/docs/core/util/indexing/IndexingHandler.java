@@ -9,6 +9,7 @@ import com.sismics.docs.core.util.jpa.PaginatedList;
 import com.sismics.docs.core.util.jpa.SortCriteria;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Indexing handler.
@@ -36,12 +37,44 @@ public interface IndexingHandler {
     void shutDown();
 
     /**
-     * Clear the index.
+     * Returns the partitions of the index, rebuilt one at a time.
+     *
+     * @return Partitions, in rebuild order
+     */
+    List<IndexPartition> getPartitions();
+
+    /**
+     * Clear a partition of the index.
+     *
+     * @param partition Partition
+     */
+    void clearIndex(IndexPartition partition);
+
+    /**
+     * Verify the integrity of the whole index.
+     * The documents and files of the corrupted parts of the index are indexed again.
+     *
+     * @throws Exception e
      */
-    void clearIndex();
+    void checkIndex() throws Exception;
+
+    /**
+     * Returns the checkpoint of an interrupted index rebuild.
+     *
+     * @return Checkpoint, null if no rebuild is in progress
+     */
+    String getRebuildCheckpoint();
+
+    /**
+     * Persist the indexed data along with an index rebuild checkpoint.
+     *
+     * @param checkpoint Checkpoint, null when the rebuild is done
+     */
+    void commitRebuildCheckpoint(String checkpoint);
 
     /**
      * Index a list of documents.
+     * Documents already in the index are replaced.
      *
      * @param documentList All documents
      */
@@ -49,6 +82,7 @@ public interface IndexingHandler {
 
     /**
      * Index a list of files.
+     * Files already in the index are replaced.
      *
      * @param fileList All files
      */
@@ -109,12 +143,26 @@ public interface IndexingHandler {
 
     /**
      * Searches documents by criteria.
+     * Facets count the matching documents by value of the fields "tag", "mime_type", "language" and "creator" (user ID),
+     * they are left empty when the search cannot be resolved by the index.
      *
      * @param paginatedList List of documents (updated by side effects)
      * @param suggestionList Suggestion of search query (updated by side effects)
+     * @param facetMap Number of documents by value, by facet field (updated by side effects)
      * @param criteria Search criteria
      * @param sortCriteria Sort criteria
      * @throws Exception e
      */
-    void findByCriteria(PaginatedList<DocumentDto> paginatedList, List<String> suggestionList, DocumentCriteria criteria, SortCriteria sortCriteria) throws Exception;
+    void findByCriteria(PaginatedList<DocumentDto> paginatedList, List<String> suggestionList, Map<String, Map<String, Long>> facetMap,
+                        DocumentCriteria criteria, SortCriteria sortCriteria) throws Exception;
+
+    /**
+     * Suggest search terms according to a user query.
+     *
+     * @param search User search query
+     * @param limit Maximum number of suggestions
+     * @return List of suggested search terms
+     * @throws Exception e
+     */
+    List<String> suggestSearchTerms(String search, int limit) throws Exception;
 }
@@ -2,71 +2,118 @@ package com.sismics.docs.core.util.indexing;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.sismics.docs.core.constant.ConfigType;
+import com.sismics.docs.core.constant.Constants;
 import com.sismics.docs.core.constant.PermType;
+import com.sismics.docs.core.dao.AclDao;
 import com.sismics.docs.core.dao.ConfigDao;
+import com.sismics.docs.core.dao.DocumentDao;
+import com.sismics.docs.core.dao.FileDao;
+import com.sismics.docs.core.dao.TagDao;
 import com.sismics.docs.core.dao.criteria.DocumentCriteria;
 import com.sismics.docs.core.dao.dto.DocumentDto;
+import com.sismics.docs.core.event.CheckIndexAsyncEvent;
 import com.sismics.docs.core.event.RebuildIndexAsyncEvent;
 import com.sismics.docs.core.model.context.AppContext;
 import com.sismics.docs.core.model.jpa.Config;
 import com.sismics.docs.core.model.jpa.Document;
 import com.sismics.docs.core.model.jpa.File;
+import com.sismics.docs.core.util.ConfigUtil;
 import com.sismics.docs.core.util.DirectoryUtil;
 import com.sismics.docs.core.util.SecurityUtil;
 import com.sismics.docs.core.util.jpa.PaginatedList;
 import com.sismics.docs.core.util.jpa.PaginatedLists;
 import com.sismics.docs.core.util.jpa.QueryParam;
+import com.sismics.docs.core.util.jpa.QueryUtil;
 import com.sismics.docs.core.util.jpa.SortCriteria;
 import com.sismics.util.ClasspathScanner;
+import com.sismics.util.EnvironmentUtil;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
-import org.apache.lucene.index.CheckIndex;
-import org.apache.lucene.index.ConcurrentMergeScheduler;
-import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.queryparser.simple.SimpleQueryParser;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.Scorable;
 import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.search.highlight.Highlighter;
-import org.apache.lucene.search.highlight.QueryScorer;
-import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
-import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.LengthGoalBreakIterator;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
 import org.apache.lucene.search.spell.LuceneDictionary;
 import org.apache.lucene.search.suggest.Lookup;
 import org.apache.lucene.search.suggest.analyzing.FuzzySuggester;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.NIOFSDirectory;
-import org.apache.lucene.store.NoLockFactory;
-import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.store.LockObtainFailedException;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.sql.Timestamp;
+import java.text.BreakIterator;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Lucene indexing handler.
- * Documents and files are indexed in Lucene, but only used for fulltext search.
- * Other search criteria are still using the database.
+ * Documents and files are indexed in Lucene, with the targets allowed to read each document.
+ * Searches are resolved by Lucene when possible, with their facets, other search criteria are using the database.
  *
  * @author bgamard
  */
@@ -78,19 +125,151 @@ public class LuceneIndexingHandler implements IndexingHandler {
     private static final Logger log = LoggerFactory.getLogger(LuceneIndexingHandler.class);
 
     /**
-     * Lucene directory.
+     * Version of the indexed fields, bumped when the index needs to be rebuilt.
      */
-    private Directory directory;
+    private static final int INDEX_VERSION = 5;
 
     /**
-     * Directory reader.
+     * Commit user data key holding the checkpoint of a running index rebuild.
      */
-    private DirectoryReader directoryReader;
+    private static final String REBUILD_CHECKPOINT_KEY = "docs.index.rebuild.checkpoint";
 
     /**
-     * Index writer.
+     * Target length of a highlight fragment.
      */
-    private IndexWriter indexWriter;
+    private static final int HIGHLIGHT_FRAGMENT_SIZE = 100;
+
+    /**
+     * Maximum number of characters of a file content considered for highlighting.
+     */
+    private static final int HIGHLIGHT_MAX_LENGTH = 50 * 1024;
+
+    /**
+     * Entries holding the file contents, files or their pages.
+     */
+    private static final Query FILE_DOCTYPE_QUERY = new TermInSetQuery("doctype", new BytesRef("file"), new BytesRef("page"));
+
+    /**
+     * Boost of the metadata fields searched by the fulltext query.
+     */
+    private static final Map<String, Float> METADATA_FIELD_BOOST_MAP = ImmutableMap.<String, Float>builder()
+            .put("title", 2f)
+            .put("description", 1f)
+            .put("subject", 1f)
+            .put("identifier", 1f)
+            .put("publisher", 1f)
+            .put("format", 1f)
+            .put("source", 1f)
+            .put("type", 1f)
+            .put("coverage", 1f)
+            .put("rights", 1f)
+            .put("filename", 1f)
+            .build();
+
+    /**
+     * Maximum number of compiled search queries kept in cache.
+     */
+    private static final int QUERY_CACHE_SIZE = 1000;
+
+    /**
+     * Minimum number of sorted hits collected and cached by a search.
+     */
+    private static final int RESULT_CACHE_MIN_HITS = 100;
+
+    /**
+     * Index shards.
+     */
+    private ShardedIndex shardedIndex;
+
+    /**
+     * True if the index has been created with an older version of the indexed fields.
+     */
+    private boolean indexOutdated;
+
+    /**
+     * Analyzer of the indexed and searched texts, shared by all the threads.
+     */
+    private final Analyzer analyzer = new StandardAnalyzer();
+
+    /**
+     * Compiler of the fulltext queries on the metadata fields.
+     */
+    private final SearchQueryCompiler metadataQueryCompiler = new SearchQueryCompiler(analyzer, METADATA_FIELD_BOOST_MAP, QUERY_CACHE_SIZE);
+
+    /**
+     * Compiler of the fulltext queries on the file contents.
+     */
+    private final SearchQueryCompiler contentQueryCompiler = new SearchQueryCompiler(analyzer, Collections.singletonMap("content", 1f), QUERY_CACHE_SIZE);
+
+    /**
+     * Field type of the file contents.
+     */
+    private FieldType contentFieldType;
+
+    /**
+     * True if the contents of multi-page files are indexed page by page.
+     */
+    private boolean pageIndexing;
+
+    /**
+     * Near-real-time searcher manager, reopening readers from the index writers.
+     */
+    private ReferenceManager<IndexSearcher> searcherManager;
+
+    /**
+     * Scheduler committing the index writer periodically.
+     */
+    private ScheduledExecutorService commitScheduler;
+
+    /**
+     * Number of index operations since the last commit.
+     */
+    private final AtomicInteger uncommittedOperationCount = new AtomicInteger();
+
+    /**
+     * Maximum number of index operations before forcing a commit.
+     */
+    private int commitMaxOperations;
+
+    /**
+     * Search terms suggester, built from the index generation in suggesterVersion.
+     */
+    private volatile FuzzySuggester suggester;
+
+    /**
+     * Version of the index reader used to build the current suggester.
+     */
+    private volatile long suggesterVersion = -1;
+
+    /**
+     * Search results of the current index generation, by search.
+     */
+    private Cache<String, SearchResult> resultCache;
+
+    /**
+     * Time budget of a search in milliseconds, 0 if unbounded.
+     */
+    private int searchTimeout;
+
+    /**
+     * Executor rebuilding the suggester in the background.
+     */
+    private ScheduledExecutorService suggesterExecutor;
+
+    /**
+     * Minimum interval between two rebuilds of the suggester in milliseconds.
+     */
+    private long suggesterInterval;
+
+    /**
+     * Start time of the last suggester rebuild in milliseconds.
+     */
+    private volatile long suggesterRebuildTime;
+
+    /**
+     * True if a suggester rebuild is waiting to be executed.
+     */
+    private final AtomicBoolean suggesterRebuildPending = new AtomicBoolean();
 
     @Override
     public boolean accept() {
@@ -100,11 +279,24 @@ public class LuceneIndexingHandler implements IndexingHandler {
 
     @Override
     public void startUp() throws Exception {
+        // File contents are indexed with their offsets, highlighting doesn't need to analyze them again
+        contentFieldType = new FieldType(TextField.TYPE_NOT_STORED);
+        contentFieldType.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        contentFieldType.setStored(ConfigUtil.getEnvBooleanValue(Constants.LUCENE_STORE_CONTENT_ENV, true));
+        contentFieldType.freeze();
+        pageIndexing = ConfigUtil.getEnvBooleanValue(Constants.LUCENE_PAGE_INDEXING_ENV, false);
+
         try {
             initLucene();
+        } catch (LockObtainFailedException e) {
+            // Another process is using the index, it must not be deleted
+            throw e;
         } catch (Exception e) {
             // An error occurred initializing Lucene, the index is out of date or broken, delete everything
             log.info("Unable to initialize Lucene, cleaning up the index: " + e.getMessage());
+            if (shardedIndex != null) {
+                shardedIndex.close();
+            }
             Path luceneDirectory = DirectoryUtil.getLuceneDirectory();
             Files.walk(luceneDirectory)
                     .sorted(Comparator.reverseOrder())
@@ -113,9 +305,67 @@ public class LuceneIndexingHandler implements IndexingHandler {
 
             // Re-initialize and schedule a full reindex
             initLucene();
+            indexOutdated = true;
+        }
+
+        if (indexOutdated) {
+            log.info("The index is out of date, scheduling a full reindex");
             RebuildIndexAsyncEvent rebuildIndexAsyncEvent = new RebuildIndexAsyncEvent();
             AppContext.getInstance().getAsyncEventBus().post(rebuildIndexAsyncEvent);
+        } else if (getRebuildCheckpoint() != null) {
+            log.info("An index rebuild has been interrupted, resuming it");
+            RebuildIndexAsyncEvent rebuildIndexAsyncEvent = new RebuildIndexAsyncEvent();
+            rebuildIndexAsyncEvent.setResume(true);
+            AppContext.getInstance().getAsyncEventBus().post(rebuildIndexAsyncEvent);
+        } else if (ConfigUtil.getEnvBooleanValue(Constants.LUCENE_CHECK_ON_STARTUP_ENV, false)) {
+            // Verify the whole index in the background, the application is available in the meantime
+            AppContext.getInstance().getAsyncEventBus().post(new CheckIndexAsyncEvent());
         }
+
+        // Commit periodically instead of after each operation
+        commitMaxOperations = ConfigUtil.getEnvIntegerValue(Constants.LUCENE_COMMIT_MAX_OPERATIONS_ENV, Constants.DEFAULT_LUCENE_COMMIT_MAX_OPERATIONS);
+        int commitInterval = ConfigUtil.getEnvIntegerValue(Constants.LUCENE_COMMIT_INTERVAL_ENV, Constants.DEFAULT_LUCENE_COMMIT_INTERVAL);
+        commitScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lucene-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        commitScheduler.scheduleWithFixedDelay(() -> {
+            if (shardedIndex.hasUncommittedChanges()) {
+                commit();
+            }
+        }, commitInterval, commitInterval, TimeUnit.SECONDS);
+        log.info("Lucene commit policy: every {}s or {} operations", commitInterval, commitMaxOperations);
+
+        // Search results are dropped with their index generation
+        resultCache = CacheBuilder.newBuilder()
+                .maximumSize(ConfigUtil.getEnvIntegerValue(Constants.LUCENE_RESULT_CACHE_SIZE_ENV, Constants.DEFAULT_LUCENE_RESULT_CACHE_SIZE))
+                .build();
+        searchTimeout = ConfigUtil.getEnvIntegerValue(Constants.SEARCH_TIMEOUT_ENV, Constants.DEFAULT_SEARCH_TIMEOUT);
+
+        // Rebuild the suggester when the searcher is refreshed on a new index generation, at most once per interval
+        suggesterInterval = TimeUnit.SECONDS.toMillis(ConfigUtil.getEnvIntegerValue(Constants.LUCENE_SUGGESTER_INTERVAL_ENV,
+                Constants.DEFAULT_LUCENE_SUGGESTER_INTERVAL));
+        suggesterExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lucene-suggester");
+            thread.setDaemon(true);
+            return thread;
+        });
+        searcherManager.addListener(new ReferenceManager.RefreshListener() {
+            @Override
+            public void beforeRefresh() {
+                // NOP
+            }
+
+            @Override
+            public void afterRefresh(boolean didRefresh) {
+                if (didRefresh) {
+                    resultCache.invalidateAll();
+                    scheduleSuggesterRebuild();
+                }
+            }
+        });
+        scheduleSuggesterRebuild();
     }
 
     private void initLucene() throws Exception {
@@ -123,161 +373,438 @@ public class LuceneIndexingHandler implements IndexingHandler {
         Config luceneStorageConfig = configDao.getById(ConfigType.LUCENE_DIRECTORY_STORAGE);
         String luceneStorage = luceneStorageConfig == null ? null : luceneStorageConfig.getValue();
 
-        // RAM directory storage by default
-        if (luceneStorage == null || luceneStorage.equals("RAM")) {
-            directory = new RAMDirectory();
+        // Memory-mapped directory storage by default
+        ShardedIndex.Storage storage;
+        Path luceneDirectory = DirectoryUtil.getLuceneDirectory();
+        if ("RAM".equals(luceneStorage)) {
+            storage = ShardedIndex.Storage.RAM;
             log.info("Using RAM Lucene storage");
-        } else if (luceneStorage.equals("FILE")) {
-            Path luceneDirectory = DirectoryUtil.getLuceneDirectory();
+        } else if (luceneStorage == null || luceneStorage.equals("MMAP")) {
+            // Off-heap index served from the OS page cache, locked against other writers
+            storage = ShardedIndex.Storage.MMAP;
+            log.info("Using memory-mapped Lucene storage: {}", luceneDirectory);
+        } else {
+            storage = ShardedIndex.Storage.FILE;
             log.info("Using file Lucene storage: {}", luceneDirectory);
-            directory = new NIOFSDirectory(luceneDirectory, NoLockFactory.INSTANCE);
-        }
-
-        // Create an index writer
-        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
-        config.setCommitOnClose(true);
-        config.setMergeScheduler(new ConcurrentMergeScheduler());
-        indexWriter = new IndexWriter(directory, config);
-
-        // Check index version and rebuild it if necessary
-        if (DirectoryReader.indexExists(directory)) {
-            log.info("Checking index health and version");
-            try (CheckIndex checkIndex = new CheckIndex(directory)) {
-                CheckIndex.Status status = checkIndex.checkIndex();
-                if (!status.clean) {
-                    throw new Exception("Index is dirty");
-                }
+        }
+
+        // Partition the index by creation period if configured
+        ShardedIndex.Period period = ShardedIndex.Period.NONE;
+        String shardPeriod = System.getenv(Constants.LUCENE_SHARD_PERIOD_ENV);
+        if (!Strings.isNullOrEmpty(shardPeriod)) {
+            try {
+                period = ShardedIndex.Period.valueOf(shardPeriod.toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                log.error("Unknown index shard period: " + shardPeriod);
             }
         }
+        if (period != ShardedIndex.Period.NONE) {
+            log.info("Lucene index partitioned by {}", period.name().toLowerCase(Locale.ENGLISH));
+        }
+        if (pageIndexing) {
+            log.info("Lucene contents indexed by page");
+        }
+
+        // Opening the writers and the readers verifies the checksum of the last commit and the segments structure,
+        // the checksums of the whole segments are verified by checkIndex()
+        // Switching the page indexing changes the indexed entries
+        String version = INDEX_VERSION + (pageIndexing ? "-pages" : "");
+        int refreshInterval = ConfigUtil.getEnvIntegerValue(Constants.LUCENE_REFRESH_INTERVAL_ENV, Constants.DEFAULT_LUCENE_REFRESH_INTERVAL);
+        shardedIndex = new ShardedIndex(storage, luceneDirectory, period, version, analyzer, refreshInterval);
+        shardedIndex.open();
+        indexOutdated = shardedIndex.isOutdated();
+
+        // Readers are opened from the writers and see uncommitted changes
+        searcherManager = shardedIndex.getSearcherManager();
     }
 
     @Override
     public void shutDown() {
-        if (directoryReader != null) {
-            try {
-                directoryReader.close();
-            } catch (IOException e) {
-                log.error("Error closing the index reader", e);
+        if (commitScheduler != null) {
+            commitScheduler.shutdown();
+        }
+        if (suggesterExecutor != null) {
+            suggesterExecutor.shutdownNow();
+        }
+        if (shardedIndex != null) {
+            shardedIndex.close();
+        }
+    }
+
+    @Override
+    public List<IndexPartition> getPartitions() {
+        if (!shardedIndex.isPartitioned()) {
+            return shardedIndex.getPartitions(Collections.emptySet());
+        }
+        Set<YearMonth> createMonthSet = new HashSet<>(new DocumentDao().getCreateMonths());
+        createMonthSet.addAll(new FileDao().getOrphanCreateMonths());
+        return shardedIndex.getPartitions(createMonthSet);
+    }
+
+    @Override
+    public void clearIndex(IndexPartition partition) {
+        handle(() -> {
+            ShardedIndex.Shard shard = shardedIndex.getShard(partition.getName());
+            shardedIndex.clear(shard);
+
+            // Everything indexed from now on uses the current version of the fields
+            shard.reset();
+            indexOutdated = shardedIndex.isOutdated();
+        });
+    }
+
+    @Override
+    public void checkIndex() throws Exception {
+        log.info("Checking the index integrity");
+        long startTime = System.currentTimeMillis();
+        Set<String> documentIdSet = new HashSet<>();
+        Set<String> fileIdSet = new HashSet<>();
+        int corruptedSegmentCount = 0;
+        IndexSearcher searcher;
+        try {
+            searcher = acquireSearcher();
+        } catch (IOException e) {
+            // A new segment cannot even be opened, rebuild everything
+            log.error("Unable to open the index, scheduling a full reindex", e);
+            AppContext.getInstance().getAsyncEventBus().post(new RebuildIndexAsyncEvent());
+            return;
+        }
+        try {
+            for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
+                try {
+                    context.reader().checkIntegrity();
+                } catch (IOException e) {
+                    log.error("Corrupted index segment: " + context.reader(), e);
+                    corruptedSegmentCount++;
+                    try {
+                        collectIds(context.reader(), documentIdSet, fileIdSet);
+                    } catch (Exception ce) {
+                        // The content of this segment is unknown, rebuild everything
+                        log.error("Unable to read the corrupted segment, scheduling a full reindex", ce);
+                        AppContext.getInstance().getAsyncEventBus().post(new RebuildIndexAsyncEvent());
+                        return;
+                    }
+                }
             }
+        } finally {
+            searcherManager.release(searcher);
         }
-        if (indexWriter != null) {
-            try {
-                indexWriter.close();
-            } catch (IOException e) {
-                log.error("Error closing the index writer, index may be corrupt", e);
+
+        if (corruptedSegmentCount == 0) {
+            log.info("Index integrity checked in {}ms", System.currentTimeMillis() - startTime);
+            return;
+        }
+
+        // Replace the documents and files of the corrupted segments, the segments are dropped once empty
+        log.info("Reindexing {} documents and {} files from {} corrupted segments", documentIdSet.size(), fileIdSet.size(), corruptedSegmentCount);
+        handle(() -> {
+            for (String id : Iterables.concat(documentIdSet, fileIdSet)) {
+                shardedIndex.delete(id);
+            }
+        });
+        DocumentDao documentDao = new DocumentDao();
+        List<Document> documentList = new ArrayList<>();
+        for (String documentId : documentIdSet) {
+            Document document = documentDao.getById(documentId);
+            if (document != null) {
+                documentList.add(document);
             }
         }
-        if (directory != null) {
-            try {
-                directory.close();
-            } catch (IOException e) {
-                log.error("Error closing Lucene index", e);
+        createDocuments(documentList);
+        if (!fileIdSet.isEmpty()) {
+            createFiles(new FileDao().getFiles(new ArrayList<>(fileIdSet)));
+        }
+        commit();
+    }
+
+    /**
+     * Collect the IDs of the documents and files of a segment.
+     *
+     * @param reader Segment reader
+     * @param documentIdSet Document IDs (updated by side effects)
+     * @param fileIdSet File IDs (updated by side effects)
+     * @throws IOException e
+     */
+    private void collectIds(LeafReader reader, Set<String> documentIdSet, Set<String> fileIdSet) throws IOException {
+        Bits liveDocs = reader.getLiveDocs();
+        for (int i = 0; i < reader.maxDoc(); i++) {
+            if (liveDocs != null && !liveDocs.get(i)) {
+                continue;
+            }
+            org.apache.lucene.document.Document document = reader.document(i, Sets.newHashSet("id", "doctype"));
+            if ("document".equals(document.get("doctype"))) {
+                documentIdSet.add(document.get("id"));
+            } else {
+                fileIdSet.add(document.get("id"));
             }
         }
     }
 
     @Override
-    public void clearIndex() {
-        handle(IndexWriter::deleteAll);
+    public String getRebuildCheckpoint() {
+        // Shards are committed one after the other, the oldest checkpoint is safe to resume from
+        String checkpoint = null;
+        for (ShardedIndex.Shard shard : shardedIndex.getShards()) {
+            String shardCheckpoint = shard.getCommitUserData(REBUILD_CHECKPOINT_KEY);
+            if (shardCheckpoint != null && (checkpoint == null || shardCheckpoint.compareTo(checkpoint) < 0)) {
+                checkpoint = shardCheckpoint;
+            }
+        }
+        return checkpoint;
     }
 
     @Override
-    public void createDocuments(List<Document> documentList) {
-        handle(indexWriter -> {
-            for (Document document : documentList) {
-                org.apache.lucene.document.Document luceneDocument = getDocumentFromDocument(document);
-                indexWriter.addDocument(luceneDocument);
-            }
-        });
+    public void commitRebuildCheckpoint(String checkpoint) {
+        for (ShardedIndex.Shard shard : shardedIndex.getShards()) {
+            shard.setCommitUserData(REBUILD_CHECKPOINT_KEY, checkpoint);
+        }
+        commit();
     }
 
     @Override
     public void createFiles(List<File> fileList) {
-        handle(indexWriter -> {
-            for (File file : fileList) {
-                org.apache.lucene.document.Document luceneDocument = getDocumentFromFile(file);
-                indexWriter.addDocument(luceneDocument);
-            }
-        });
+        handle(() -> updateFiles(fileList));
     }
 
     @Override
     public void createDocument(final Document document) {
-        handle(indexWriter -> {
-            org.apache.lucene.document.Document luceneDocument = getDocumentFromDocument(document);
-            indexWriter.addDocument(luceneDocument);
-        });
+        handle(() -> shardedIndex.add(document.getId(), shardedIndex.getShard(document.getCreateDate()),
+                getDocumentsFromDocuments(Collections.singletonList(document))));
     }
 
     @Override
     public void createFile(final File file) {
-        handle(indexWriter -> {
-            org.apache.lucene.document.Document luceneDocument = getDocumentFromFile(file);
-            indexWriter.addDocument(luceneDocument);
+        handle(() -> {
+            List<org.apache.lucene.document.Document> luceneDocumentList = getDocumentsFromFile(file);
+            Date shardDate = getShardDateMap(Collections.singletonList(file)).get(file.getId());
+            shardedIndex.add(file.getId(), shardedIndex.getShard(shardDate), luceneDocumentList);
         });
     }
 
     @Override
     public void updateFile(final File file) {
-        handle(indexWriter -> {
-            org.apache.lucene.document.Document luceneDocument = getDocumentFromFile(file);
-            indexWriter.updateDocument(new Term("id", file.getId()), luceneDocument);
-        });
+        handle(() -> updateFiles(Collections.singletonList(file)));
     }
 
     @Override
     public void updateDocument(final Document document) {
-        handle(indexWriter -> {
-            org.apache.lucene.document.Document luceneDocument = getDocumentFromDocument(document);
-            indexWriter.updateDocument(new Term("id", document.getId()), luceneDocument);
+        updateDocuments(Collections.singletonList(document), true);
+    }
+
+    @Override
+    public void createDocuments(List<Document> documentList) {
+        // Replace existing documents, a resumed rebuild may index them twice.
+        // The files are indexed afterwards by the rebuild, they don't need to follow their documents
+        updateDocuments(documentList, false);
+    }
+
+    /**
+     * Update a list of indexed documents.
+     *
+     * @param documentList Documents
+     * @param moveFiles True to index again the files of the documents moved to another shard
+     */
+    private void updateDocuments(List<Document> documentList, boolean moveFiles) {
+        handle(() -> {
+            List<org.apache.lucene.document.Document> luceneDocumentList = getDocumentsFromDocuments(documentList);
+            List<String> movedDocumentIdList = new ArrayList<>();
+            for (int i = 0; i < documentList.size(); i++) {
+                Document document = documentList.get(i);
+                ShardedIndex.Shard shard = shardedIndex.getShard(document.getCreateDate());
+                if (moveFiles && shardedIndex.isPartitioned() && shardedIndex.isInOtherShard(document.getId(), shard)) {
+                    // The creation date has changed
+                    movedDocumentIdList.add(document.getId());
+                }
+                shardedIndex.update(document.getId(), shard, Collections.singletonList(luceneDocumentList.get(i)));
+            }
+
+            // Files are in the shard of their document
+            if (!movedDocumentIdList.isEmpty()) {
+                updateFiles(new FileDao().getAllVersionsByDocumentsIds(movedDocumentIdList));
+            }
         });
     }
 
+    /**
+     * Update a list of indexed files.
+     *
+     * @param fileList Files
+     * @throws IOException e
+     */
+    private void updateFiles(List<File> fileList) throws IOException {
+        Map<String, Date> shardDateMap = getShardDateMap(fileList);
+        for (File file : fileList) {
+            // The pages of a file share its ID, they are replaced together
+            List<org.apache.lucene.document.Document> luceneDocumentList = getDocumentsFromFile(file);
+            ShardedIndex.Shard shard = shardedIndex.getShard(shardDateMap.get(file.getId()));
+            shardedIndex.update(file.getId(), shard, luceneDocumentList);
+        }
+    }
+
+    /**
+     * Returns the dates deciding the shards of files.
+     * Files are in the shard of their document, orphan files in the shard of their own creation date.
+     *
+     * @param fileList Files
+     * @return Dates by file ID
+     */
+    private Map<String, Date> getShardDateMap(List<File> fileList) {
+        Map<String, Date> documentCreateDateMap = new HashMap<>();
+        if (shardedIndex.isPartitioned()) {
+            Set<String> documentIdSet = new HashSet<>();
+            for (File file : fileList) {
+                if (file.getDocumentId() != null) {
+                    documentIdSet.add(file.getDocumentId());
+                }
+            }
+            documentCreateDateMap = new DocumentDao().getCreateDateMap(documentIdSet);
+        }
+
+        Map<String, Date> shardDateMap = new HashMap<>();
+        for (File file : fileList) {
+            Date documentCreateDate = file.getDocumentId() == null ? null : documentCreateDateMap.get(file.getDocumentId());
+            shardDateMap.put(file.getId(), documentCreateDate == null ? file.getCreateDate() : documentCreateDate);
+        }
+        return shardDateMap;
+    }
+
     @Override
     public void deleteDocument(final String id) {
-        handle(indexWriter -> indexWriter.deleteDocuments(new Term("id", id)));
+        handle(() -> shardedIndex.delete(id));
     }
 
     @Override
     public void createAcl(String sourceId, PermType perm, String targetId) {
-        // Lucene does not index ACLs
+        if (perm == PermType.READ) {
+            updateReadTargets(sourceId);
+        }
     }
 
     @Override
     public void deleteAcl(String sourceId, PermType perm, String targetId) {
-        // Lucene does not index ACLs
+        if (perm == PermType.READ) {
+            updateReadTargets(sourceId);
+        }
+    }
+
+    /**
+     * Update the indexed READ targets of the documents affected by an ACL change.
+     *
+     * @param sourceId ACL source ID, a document or a tag
+     */
+    private void updateReadTargets(String sourceId) {
+        DocumentDao documentDao = new DocumentDao();
+        Document document = documentDao.getById(sourceId);
+        if (document != null) {
+            updateDocument(document);
+            return;
+        }
+
+        // Documents inherit the ACLs of their tags
+        List<Document> documentList = documentDao.findByTagId(sourceId);
+        if (!documentList.isEmpty()) {
+            updateDocuments(documentList, false);
+        }
+    }
+
+    /**
+     * Build Lucene documents from database documents.
+     * The read targets, tags and MIME types of all the documents are loaded at once.
+     *
+     * @param documentList Documents
+     * @return Lucene documents, in the same order
+     */
+    private List<org.apache.lucene.document.Document> getDocumentsFromDocuments(List<Document> documentList) {
+        List<String> documentIdList = new ArrayList<>();
+        for (Document document : documentList) {
+            documentIdList.add(document.getId());
+        }
+        Map<String, Set<String>> readTargetIdMap = new AclDao().getReadTargetIdMap(documentIdList);
+        Map<String, Set<String>> tagIdMap = new TagDao().getTagIdMap(documentIdList);
+        Map<String, Set<String>> mimeTypeMap = new FileDao().getMimeTypeMap(documentIdList);
+
+        List<org.apache.lucene.document.Document> luceneDocumentList = new ArrayList<>();
+        for (Document document : documentList) {
+            luceneDocumentList.add(getDocumentFromDocument(document, readTargetIdMap.get(document.getId()),
+                    tagIdMap.get(document.getId()), mimeTypeMap.get(document.getId())));
+        }
+        return luceneDocumentList;
     }
 
     @Override
-    public void findByCriteria(PaginatedList<DocumentDto> paginatedList, List<String> suggestionList, DocumentCriteria criteria, SortCriteria sortCriteria) throws Exception {
+    public void findByCriteria(PaginatedList<DocumentDto> paginatedList, List<String> suggestionList, Map<String, Map<String, Long>> facetMap,
+                               DocumentCriteria criteria, SortCriteria sortCriteria) throws Exception {
+        SearchBudget budget = new SearchBudget(searchTimeout);
+        if (isSearchableInIndex(criteria, sortCriteria)) {
+            // Everything can be resolved by Lucene, the database is only used to load the page
+            findByCriteriaInIndex(paginatedList, suggestionList, facetMap, criteria, sortCriteria, budget);
+            return;
+        }
+
+        // The same searcher is used to find the documents and to highlight the page
+        IndexSearcher searcher = null;
+        boolean fulltextSearch = !Strings.isNullOrEmpty(criteria.getSimpleSearch()) || !Strings.isNullOrEmpty(criteria.getFullSearch());
+        if (fulltextSearch) {
+            searcher = acquireSearcher(criteria);
+        }
+        try {
+            findByCriteriaInDatabase(paginatedList, suggestionList, criteria, sortCriteria, searcher, budget);
+        } finally {
+            if (searcher != null) {
+                searcherManager.release(searcher);
+            }
+        }
+
+        if (!fulltextSearch && isResolvableInIndex(criteria, sortCriteria) && isIndexComplete()) {
+            countFacetsInIndex(facetMap, criteria, sortCriteria, budget);
+        }
+    }
+
+    /**
+     * Count the facets of the documents matching the criteria in Lucene.
+     * The counts may lag behind the listing read from the database until the index is refreshed.
+     *
+     * @param facetMap Facet counts (updated by side effects)
+     * @param criteria Search criteria
+     * @param sortCriteria Sort criteria
+     * @param budget Search time budget
+     * @throws IOException e
+     */
+    private void countFacetsInIndex(Map<String, Map<String, Long>> facetMap, DocumentCriteria criteria, SortCriteria sortCriteria,
+                                    SearchBudget budget) throws IOException {
+        IndexSearcher searcher = acquireSearcher(criteria);
+        try {
+            facetMap.putAll(getSearchResult(searcher, null, criteria, sortCriteria, 0, budget).facetMap);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Searches documents by criteria in the database, the fulltext search being resolved by Lucene.
+     *
+     * @param paginatedList List of documents (updated by side effects)
+     * @param suggestionList Suggestion of search query (updated by side effects)
+     * @param criteria Search criteria
+     * @param sortCriteria Sort criteria
+     * @param searcher Searcher used for the fulltext search, null if there is no fulltext search
+     * @param budget Search time budget
+     * @throws Exception e
+     */
+    private void findByCriteriaInDatabase(PaginatedList<DocumentDto> paginatedList, List<String> suggestionList, DocumentCriteria criteria, SortCriteria sortCriteria,
+                                          IndexSearcher searcher, SearchBudget budget) throws Exception {
         Map<String, Object> parameterMap = new HashMap<>();
         List<String> criteriaList = new ArrayList<>();
-        Map<String, String> documentSearchMap = Maps.newHashMap();
-
-        StringBuilder sb = new StringBuilder("select distinct d.DOC_ID_C c0, d.DOC_TITLE_C c1, d.DOC_DESCRIPTION_C c2, d.DOC_CREATEDATE_D c3, d.DOC_LANGUAGE_C c4, d.DOC_IDFILE_C, ");
-        sb.append(" s.count c5, ");
-        sb.append(" rs2.RTP_ID_C c7, rs2.RTP_NAME_C, d.DOC_UPDATEDATE_D c8 ");
-        sb.append(" from T_DOCUMENT d ");
-        sb.append(" left join (SELECT count(s.SHA_ID_C) count, ac.ACL_SOURCEID_C " +
-                "   FROM T_SHARE s, T_ACL ac " +
-                "   WHERE ac.ACL_TARGETID_C = s.SHA_ID_C AND ac.ACL_DELETEDATE_D IS NULL AND " +
-                "         s.SHA_DELETEDATE_D IS NULL group by ac.ACL_SOURCEID_C) s on s.ACL_SOURCEID_C = d.DOC_ID_C ");
-        sb.append(" left join (select rs.*, rs3.idDocument " +
-                "from T_ROUTE_STEP rs " +
-                "join (select r.RTE_IDDOCUMENT_C idDocument, rs.RTP_IDROUTE_C idRoute, min(rs.RTP_ORDER_N) minOrder from T_ROUTE_STEP rs join T_ROUTE r on r.RTE_ID_C = rs.RTP_IDROUTE_C and r.RTE_DELETEDATE_D is null where rs.RTP_DELETEDATE_D is null and rs.RTP_ENDDATE_D is null group by rs.RTP_IDROUTE_C, r.RTE_IDDOCUMENT_C) rs3 on rs.RTP_IDROUTE_C = rs3.idRoute and rs.RTP_ORDER_N = rs3.minOrder " +
-                "where rs.RTP_IDTARGET_C in (:targetIdList)) rs2 on rs2.idDocument = d.DOC_ID_C ");
+        Map<String, FileHit> documentSearchMap = Maps.newHashMap();
+        Query searchQuery = null;
+
+        StringBuilder sb = DocumentQueryUtil.buildDocumentSelect();
 
         // Add search criterias
-        if (!SecurityUtil.skipAclCheck(criteria.getTargetIdList())) {
-            // Read permission is enough for searching
-            sb.append(" left join T_ACL a on a.ACL_TARGETID_C in (:targetIdList) and a.ACL_SOURCEID_C = d.DOC_ID_C and a.ACL_PERM_C = 'READ' and a.ACL_DELETEDATE_D is null ");
-            sb.append(" left join T_DOCUMENT_TAG dta on dta.DOT_IDDOCUMENT_C = d.DOC_ID_C and dta.DOT_DELETEDATE_D is null ");
-            sb.append(" left join T_ACL a2 on a2.ACL_TARGETID_C in (:targetIdList) and a2.ACL_SOURCEID_C = dta.DOT_IDTAG_C and a2.ACL_PERM_C = 'READ' and a2.ACL_DELETEDATE_D is null ");
-            criteriaList.add("(a.ACL_ID_C is not null or a2.ACL_ID_C is not null)");
-        }
-        parameterMap.put("targetIdList", criteria.getTargetIdList());
-        if (!Strings.isNullOrEmpty(criteria.getSimpleSearch()) || !Strings.isNullOrEmpty(criteria.getFullSearch())) {
-            documentSearchMap = search(criteria.getSimpleSearch(), criteria.getFullSearch());
+        DocumentQueryUtil.addCriteria(sb, criteriaList, parameterMap, criteria);
+        if (searcher != null) {
+            searchQuery = buildSearchQuery(criteria.getSimpleSearch(), criteria.getFullSearch());
+            documentSearchMap = search(searcher, searchQuery, budget);
             if (documentSearchMap.isEmpty()) {
                 // If the search doesn't find any document, the request should return nothing
                 documentSearchMap.put(UUID.randomUUID().toString(), null);
@@ -285,194 +812,441 @@ public class LuceneIndexingHandler implements IndexingHandler {
             criteriaList.add("d.DOC_ID_C in :documentIdList");
             parameterMap.put("documentIdList", documentSearchMap.keySet());
 
-            suggestSearchTerms(criteria.getFullSearch(), suggestionList);
-        }
-        if (criteria.getCreateDateMin() != null) {
-            criteriaList.add("d.DOC_CREATEDATE_D >= :createDateMin");
-            parameterMap.put("createDateMin", criteria.getCreateDateMin());
-        }
-        if (criteria.getCreateDateMax() != null) {
-            criteriaList.add("d.DOC_CREATEDATE_D <= :createDateMax");
-            parameterMap.put("createDateMax", criteria.getCreateDateMax());
-        }
-        if (criteria.getUpdateDateMin() != null) {
-            criteriaList.add("d.DOC_UPDATEDATE_D >= :updateDateMin");
-            parameterMap.put("updateDateMin", criteria.getUpdateDateMin());
-        }
-        if (criteria.getUpdateDateMax() != null) {
-            criteriaList.add("d.DOC_UPDATEDATE_D <= :updateDateMax");
-            parameterMap.put("updateDateMax", criteria.getUpdateDateMax());
-        }
-        if (!criteria.getTitleList().isEmpty()) {
-            criteriaList.add("d.DOC_TITLE_C in :title");
-            parameterMap.put("title", criteria.getTitleList());
-        }
-        if (!criteria.getTagIdList().isEmpty()) {
-            int index = 0;
-            for (List<String> tagIdList : criteria.getTagIdList()) {
-                List<String> tagCriteriaList = Lists.newArrayList();
-                for (String tagId : tagIdList) {
-                    sb.append(String.format("left join T_DOCUMENT_TAG dt%d on dt%d.DOT_IDDOCUMENT_C = d.DOC_ID_C and dt%d.DOT_IDTAG_C = :tagId%d and dt%d.DOT_DELETEDATE_D is null ", index, index, index, index, index));
-                    parameterMap.put("tagId" + index, tagId);
-                    tagCriteriaList.add(String.format("dt%d.DOT_ID_C is not null", index));
-                    index++;
-                }
-                criteriaList.add("(" + Joiner.on(" OR ").join(tagCriteriaList) + ")");
-            }
-        }
-        if (!criteria.getExcludedTagIdList().isEmpty()) {
-            int index = 0;
-            for (List<String> tagIdList : criteria.getExcludedTagIdList()) {
-                List<String> tagCriteriaList = Lists.newArrayList();
-                for (String tagId : tagIdList) {
-                    sb.append(String.format("left join T_DOCUMENT_TAG dtex%d on dtex%d.DOT_IDDOCUMENT_C = d.DOC_ID_C and dtex%d.DOT_IDTAG_C = :tagIdEx%d and dtex%d.DOT_DELETEDATE_D is null ", index, index, index, index, index));
-                    parameterMap.put("tagIdEx" + index, tagId);
-                    tagCriteriaList.add(String.format("dtex%d.DOT_ID_C is null", index));
-                    index++;
-                }
-                criteriaList.add("(" + Joiner.on(" AND ").join(tagCriteriaList) + ")");
-            }
-        }
-        if (criteria.getShared() != null && criteria.getShared()) {
-            criteriaList.add("s.count > 0");
-        }
-        if (criteria.getMimeType() != null) {
-            sb.append("left join T_FILE f0 on f0.FIL_IDDOC_C = d.DOC_ID_C and f0.FIL_MIMETYPE_C = :mimeType and f0.FIL_DELETEDATE_D is null");
-            parameterMap.put("mimeType", criteria.getMimeType());
-            criteriaList.add("f0.FIL_ID_C is not null");
-        }
-        if (criteria.getLanguage() != null) {
-            criteriaList.add("d.DOC_LANGUAGE_C = :language");
-            parameterMap.put("language", criteria.getLanguage());
-        }
-        if (criteria.getCreatorId() != null) {
-            criteriaList.add("d.DOC_IDUSER_C = :creatorId");
-            parameterMap.put("creatorId", criteria.getCreatorId());
-        }
-        if (criteria.getActiveRoute() != null && criteria.getActiveRoute()) {
-            criteriaList.add("rs2.RTP_ID_C is not null");
+            suggestionList.addAll(suggestSearchTerms(criteria.getFullSearch(), 10));
         }
 
-        criteriaList.add("d.DOC_DELETEDATE_D is null");
-
         sb.append(" where ");
         sb.append(Joiner.on(" and ").join(criteriaList));
 
-        // Perform the search
-        QueryParam queryParam = new QueryParam(sb.toString(), parameterMap);
-        List<Object[]> l = PaginatedLists.executePaginatedQuery(paginatedList, queryParam, sortCriteria);
+        // Perform the search, the queries are cancelled by the database when the budget is exhausted
+        QueryParam queryParam = new QueryParam(sb.toString(), parameterMap, budget.getQueryTimeout());
+        List<Object[]> l = budget.runQuery(() -> PaginatedLists.executePaginatedQuery(paginatedList, queryParam, sortCriteria), new ArrayList<>());
 
         // Assemble results
         List<DocumentDto> documentDtoList = new ArrayList<>();
         for (Object[] o : l) {
-            int i = 0;
-            DocumentDto documentDto = new DocumentDto();
-            documentDto.setId((String) o[i++]);
-            documentDto.setTitle((String) o[i++]);
-            documentDto.setDescription((String) o[i++]);
-            documentDto.setCreateTimestamp(((Timestamp) o[i++]).getTime());
-            documentDto.setLanguage((String) o[i++]);
-            documentDto.setFileId((String) o[i++]);
-            Number shareCount = (Number) o[i++];
-            documentDto.setShared(shareCount != null && shareCount.intValue() > 0);
-            documentDto.setActiveRoute(o[i++] != null);
-            documentDto.setCurrentStepName((String) o[i++]);
-            documentDto.setUpdateTimestamp(((Timestamp) o[i]).getTime());
-            documentDto.setHighlight(documentSearchMap.get(documentDto.getId()));
-            documentDtoList.add(documentDto);
+            documentDtoList.add(DocumentQueryUtil.getDocumentDto(o));
+        }
+
+        // Highlight only the files of the documents in this page
+        if (searcher != null) {
+            List<String> documentIdList = new ArrayList<>();
+            for (DocumentDto documentDto : documentDtoList) {
+                documentIdList.add(documentDto.getId());
+            }
+            Map<String, String> highlightMap = highlight(searcher, searchQuery, documentSearchMap, documentIdList);
+            for (DocumentDto documentDto : documentDtoList) {
+                documentDto.setHighlight(highlightMap.get(documentDto.getId()));
+                setHighlightPages(documentDto, documentSearchMap.get(documentDto.getId()));
+            }
         }
 
         paginatedList.setResultList(documentDtoList);
+        paginatedList.setPartial(budget.isPartial());
     }
 
     /**
-     * Suggest search terms according to the user query.
+     * Returns true if the criteria can be fully resolved, sorted and paginated by Lucene.
+     * The other criteria need the database.
      *
-     * @param search User search query
-     * @param suggestionList Suggestion of search query (updated by side effects)
-     * @throws Exception e
+     * @param criteria Search criteria
+     * @param sortCriteria Sort criteria
+     * @return True if searchable in the index
      */
-    private void suggestSearchTerms(String search, List<String> suggestionList) throws Exception {
-        DirectoryReader directoryReader = getDirectoryReader();
-        if (directoryReader == null) {
-            return;
+    private boolean isSearchableInIndex(DocumentCriteria criteria, SortCriteria sortCriteria) {
+        if (Strings.isNullOrEmpty(criteria.getSimpleSearch()) && Strings.isNullOrEmpty(criteria.getFullSearch())) {
+            // Without fulltext search, the listing is read from the database:
+            // the index is updated after the request commits, it would miss the documents just created or deleted
+            return false;
         }
 
-        FuzzySuggester suggester = new FuzzySuggester(directory, "", new StandardAnalyzer());
-        LuceneDictionary dictionary = new LuceneDictionary(directoryReader, "title");
-        suggester.build(dictionary);
-        int lastIndex = search.lastIndexOf(' ');
-        String suggestQuery = search.substring(Math.max(lastIndex, 0));
-        List<Lookup.LookupResult> lookupResultList = suggester.lookup(suggestQuery, false, 10);
-        for (Lookup.LookupResult lookupResult : lookupResultList) {
-            suggestionList.add(lookupResult.key.toString());
-        }
+        return isResolvableInIndex(criteria, sortCriteria);
     }
 
     /**
-     * Fulltext search in files and documents.
+     * Returns true if the criteria other than the fulltext search can be resolved and sorted by Lucene.
      *
-     * @param simpleSearchQuery Search query on metadatas
-     * @param fullSearchQuery Search query on all fields
-     * @return Map of document IDs as key and highlight as value
-     * @throws Exception e
+     * @param criteria Search criteria
+     * @param sortCriteria Sort criteria
+     * @return True if resolvable in the index
      */
-    private Map<String, String> search(String simpleSearchQuery, String fullSearchQuery) throws Exception {
-        // The fulltext query searches in all fields
-        String searchQuery = simpleSearchQuery + " " + fullSearchQuery;
-
-        // Build search query
-        Analyzer analyzer = new StandardAnalyzer();
+    private boolean isResolvableInIndex(DocumentCriteria criteria, SortCriteria sortCriteria) {
+        return criteria.getTitleList().isEmpty()
+                && (criteria.getShared() == null || !criteria.getShared())
+                && (criteria.getActiveRoute() == null || !criteria.getActiveRoute())
+                && getSort(sortCriteria) != null;
+    }
 
-        // Search on documents and files
-        BooleanQuery query = new BooleanQuery.Builder()
-                .add(buildQueryParser(analyzer, "title").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "description").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "subject").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "identifier").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "publisher").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "format").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "source").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "type").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "coverage").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "rights").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "filename").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "content").parse(fullSearchQuery), BooleanClause.Occur.SHOULD)
-                .build();
+    /**
+     * Returns true if all the documents are indexed with the current version of the fields.
+     *
+     * @return True if the index is complete
+     */
+    private boolean isIndexComplete() {
+        return !indexOutdated
+                && getRebuildCheckpoint() == null
+                && AppContext.getInstance().getIndexRebuilder().getStatus() != IndexRebuilder.Status.RUNNING;
+    }
+
+    /**
+     * Returns the Lucene sort matching a sort criteria.
+     *
+     * @param sortCriteria Sort criteria
+     * @return Lucene sort, null if the column cannot be sorted by Lucene
+     */
+    private Sort getSort(SortCriteria sortCriteria) {
+        if (sortCriteria == null) {
+            return Sort.RELEVANCE;
+        }
+
+        // Columns of the database query
+        boolean reverse = !sortCriteria.isAsc();
+        SortField sortField;
+        switch (sortCriteria.getColumn()) {
+            case 0:
+                sortField = new SortField("id", SortField.Type.STRING, reverse);
+                break;
+            case 1:
+                sortField = new SortField("title_sort", SortField.Type.STRING, reverse);
+                break;
+            case 3:
+                sortField = new SortField("create_date", SortField.Type.LONG, reverse);
+                break;
+            case 4:
+                sortField = new SortField("language", SortField.Type.STRING, reverse);
+                break;
+            case 8:
+                sortField = new SortField("update_date", SortField.Type.LONG, reverse);
+                break;
+            default:
+                return null;
+        }
+
+        // Break ties by index order to keep pages stable
+        return new Sort(sortField, SortField.FIELD_DOC);
+    }
+
+    /**
+     * Searches documents by criteria, sorting, paginating and counting facets in Lucene.
+     * The results are cached for the current index generation, paging through them doesn't search again.
+     * Partial results are not cached.
+     * Only the documents of the requested page are loaded from the database.
+     *
+     * @param paginatedList List of documents (updated by side effects)
+     * @param suggestionList Suggestion of search query (updated by side effects)
+     * @param facetMap Facet counts (updated by side effects)
+     * @param criteria Search criteria
+     * @param sortCriteria Sort criteria
+     * @param budget Search time budget
+     * @throws Exception e
+     */
+    private void findByCriteriaInIndex(PaginatedList<DocumentDto> paginatedList, List<String> suggestionList, Map<String, Map<String, Long>> facetMap,
+                                       DocumentCriteria criteria, SortCriteria sortCriteria, SearchBudget budget) throws Exception {
+        boolean fulltextSearch = !Strings.isNullOrEmpty(criteria.getSimpleSearch()) || !Strings.isNullOrEmpty(criteria.getFullSearch());
+        Query searchQuery = fulltextSearch ? buildSearchQuery(criteria.getSimpleSearch(), criteria.getFullSearch()) : null;
+        List<String> documentIdList;
+        Map<String, String> highlightMap = new HashMap<>();
+        Map<String, FileHit> fileHitMap;
+
+        IndexSearcher searcher = acquireSearcher(criteria);
+        try {
+            int pageEnd = paginatedList.getOffset() + paginatedList.getLimit();
+            SearchResult searchResult = getSearchResult(searcher, searchQuery, criteria, sortCriteria, pageEnd, budget);
+            paginatedList.setResultCount(searchResult.totalHits);
+            paginatedList.setPartial(searchResult.partial);
+            facetMap.putAll(searchResult.facetMap);
+            documentIdList = searchResult.documentIdList.subList(Math.min(paginatedList.getOffset(), searchResult.documentIdList.size()),
+                    Math.min(pageEnd, searchResult.documentIdList.size()));
+
+            // Highlight only the files of the documents in this page
+            fileHitMap = searchResult.fileHitMap;
+            if (searchQuery != null) {
+                highlightMap = highlight(searcher, searchQuery, fileHitMap, documentIdList);
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+
+        if (fulltextSearch) {
+            suggestionList.addAll(suggestSearchTerms(criteria.getFullSearch(), 10));
+        }
+
+        // Load the documents of this page from the database
+        // ACLs are checked again, the index may not have seen a revoked permission yet
+        List<DocumentDto> documentDtoList = new ArrayList<>();
+        if (!documentIdList.isEmpty()) {
+            Map<String, Object> parameterMap = new HashMap<>();
+            List<String> criteriaList = new ArrayList<>();
+            parameterMap.put("documentIdList", documentIdList);
+            criteriaList.add("d.DOC_ID_C in :documentIdList");
+            criteriaList.add("d.DOC_DELETEDATE_D is null");
+            StringBuilder sb = DocumentQueryUtil.buildDocumentSelect();
+            DocumentQueryUtil.addAclCheck(sb, criteriaList, parameterMap, criteria);
+            sb.append(" where ");
+            sb.append(Joiner.on(" and ").join(criteriaList));
+
+            @SuppressWarnings("unchecked")
+            List<Object[]> l = budget.runQuery(() -> QueryUtil.getNativeQuery(new QueryParam(sb.toString(), parameterMap, budget.getQueryTimeout())).getResultList(),
+                    new ArrayList<>());
+            Map<String, DocumentDto> documentDtoMap = new HashMap<>();
+            for (Object[] o : l) {
+                DocumentDto documentDto = DocumentQueryUtil.getDocumentDto(o);
+                documentDto.setHighlight(highlightMap.get(documentDto.getId()));
+                setHighlightPages(documentDto, fileHitMap.get(documentDto.getId()));
+                documentDtoMap.put(documentDto.getId(), documentDto);
+            }
+
+            // Keep the order computed by Lucene, without the documents no longer readable
+            for (String documentId : documentIdList) {
+                DocumentDto documentDto = documentDtoMap.get(documentId);
+                if (documentDto != null) {
+                    documentDtoList.add(documentDto);
+                }
+            }
+        }
+
+        paginatedList.setResultList(documentDtoList);
+        paginatedList.setPartial(paginatedList.isPartial() || budget.isPartial());
+    }
+
+    /**
+     * Returns the search result from the cache, or search the documents in the index.
+     *
+     * @param searcher Index searcher
+     * @param searchQuery Fulltext query, null to match all the documents
+     * @param criteria Search criteria
+     * @param sortCriteria Sort criteria
+     * @param pageEnd Number of sorted hits needed
+     * @param budget Search time budget
+     * @return Search result
+     * @throws IOException e
+     */
+    private SearchResult getSearchResult(IndexSearcher searcher, Query searchQuery, DocumentCriteria criteria, SortCriteria sortCriteria,
+                                         int pageEnd, SearchBudget budget) throws IOException {
+        // Results are only reused on the same index generation, ACLs being part of the indexed documents
+        long version = shardedIndex.getVersion(searcher);
+        String cacheKey = getResultCacheKey(version, criteria, sortCriteria);
+        SearchResult searchResult = resultCache.getIfPresent(cacheKey);
+        if (searchResult == null || !searchResult.contains(pageEnd)) {
+            // Collect the hits beyond this page, the following pages are served from the cache
+            searchResult = searchDocuments(searcher, searchQuery, criteria, sortCriteria, Math.max(pageEnd * 2, RESULT_CACHE_MIN_HITS), budget);
+            if (!searchResult.partial) {
+                resultCache.put(cacheKey, searchResult);
+            }
+        }
+        return searchResult;
+    }
+
+    /**
+     * Search documents in the index, sorting the hits and counting the facets.
+     *
+     * @param searcher Index searcher
+     * @param searchQuery Fulltext query, null to match all the documents
+     * @param criteria Search criteria
+     * @param sortCriteria Sort criteria
+     * @param numHits Number of sorted hits to collect
+     * @param budget Search time budget
+     * @return Search result
+     * @throws IOException e
+     */
+    private SearchResult searchDocuments(IndexSearcher searcher, Query searchQuery, DocumentCriteria criteria, SortCriteria sortCriteria,
+                                         int numHits, SearchBudget budget) throws IOException {
+        BooleanQuery.Builder query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term("doctype", "document")), BooleanClause.Occur.FILTER);
+        Map<String, FileHit> fileHitMap = new HashMap<>();
+        if (searchQuery != null) {
+            // Find the documents of matching files, keeping the best file hit of each document
+            FileHitCollector fileHitCollector = new FileHitCollector();
+            searcher.search(new BooleanQuery.Builder()
+                    .add(FILE_DOCTYPE_QUERY, BooleanClause.Occur.FILTER)
+                    .add(searchQuery, BooleanClause.Occur.MUST)
+                    .build(), budget.wrap(fileHitCollector));
+            fileHitMap = fileHitCollector.getFileHitMap();
+
+            // Documents matching directly or through one of their files
+            BooleanQuery.Builder matchQuery = new BooleanQuery.Builder()
+                    .add(searchQuery, BooleanClause.Occur.SHOULD);
+            if (!fileHitMap.isEmpty()) {
+                matchQuery.add(new TermInSetQuery("id", toBytesRefList(fileHitMap.keySet())), BooleanClause.Occur.SHOULD);
+            }
+            query.add(matchQuery.build(), BooleanClause.Occur.MUST);
+        }
+
+        // Other criteria
+        if (criteria.getCreateDateMin() != null || criteria.getCreateDateMax() != null) {
+            query.add(LongPoint.newRangeQuery("create_date",
+                    criteria.getCreateDateMin() == null ? Long.MIN_VALUE : criteria.getCreateDateMin().getTime(),
+                    criteria.getCreateDateMax() == null ? Long.MAX_VALUE : criteria.getCreateDateMax().getTime()), BooleanClause.Occur.FILTER);
+        }
+        if (criteria.getUpdateDateMin() != null || criteria.getUpdateDateMax() != null) {
+            query.add(LongPoint.newRangeQuery("update_date",
+                    criteria.getUpdateDateMin() == null ? Long.MIN_VALUE : criteria.getUpdateDateMin().getTime(),
+                    criteria.getUpdateDateMax() == null ? Long.MAX_VALUE : criteria.getUpdateDateMax().getTime()), BooleanClause.Occur.FILTER);
+        }
+        for (List<String> tagIdList : criteria.getTagIdList()) {
+            // One of the tags of each group
+            query.add(new TermInSetQuery("tag", toBytesRefList(tagIdList)), BooleanClause.Occur.FILTER);
+        }
+        for (List<String> tagIdList : criteria.getExcludedTagIdList()) {
+            query.add(new TermInSetQuery("tag", toBytesRefList(tagIdList)), BooleanClause.Occur.MUST_NOT);
+        }
+        if (criteria.getMimeType() != null) {
+            query.add(new TermQuery(new Term("mime_type", criteria.getMimeType())), BooleanClause.Occur.FILTER);
+        }
+        if (criteria.getLanguage() != null) {
+            query.add(new TermQuery(new Term("language", criteria.getLanguage())), BooleanClause.Occur.FILTER);
+        }
+        if (criteria.getCreatorId() != null) {
+            query.add(new TermQuery(new Term("creator", criteria.getCreatorId())), BooleanClause.Occur.FILTER);
+        }
+        if (!SecurityUtil.skipAclCheck(criteria.getTargetIdList())) {
+            // Read permission is enough for searching
+            query.add(new TermInSetQuery("acl_read", toBytesRefList(criteria.getTargetIdList())), BooleanClause.Occur.FILTER);
+        }
+
+        // Sort with a bounded collector, counting the facets of all the hits
+        TopFieldCollector collector = TopFieldCollector.create(getSort(sortCriteria), numHits, Integer.MAX_VALUE);
+        FacetCollector facetCollector = new FacetCollector("tag", "mime_type", "language", "creator");
+        searcher.search(query.build(), budget.wrap(MultiCollector.wrap(collector, facetCollector)));
+
+        List<String> documentIdList = new ArrayList<>();
+        for (ScoreDoc scoreDoc : collector.topDocs().scoreDocs) {
+            documentIdList.add(searcher.doc(scoreDoc.doc, Collections.singleton("id")).get("id"));
+        }
+        return new SearchResult(documentIdList, collector.getTotalHits(), facetCollector.getFacetMap(), fileHitMap, budget.isPartial());
+    }
+
+    /**
+     * Returns the key of a search in the result cache.
+     *
+     * @param version Version of the index reader
+     * @param criteria Search criteria
+     * @param sortCriteria Sort criteria
+     * @return Cache key
+     */
+    private String getResultCacheKey(long version, DocumentCriteria criteria, SortCriteria sortCriteria) {
+        // Only the criteria resolved by the index, in a stable order
+        List<String> tagKeyList = new ArrayList<>();
+        for (List<String> tagIdList : criteria.getTagIdList()) {
+            tagKeyList.add(Joiner.on(",").join(Sets.newTreeSet(tagIdList)));
+        }
+        Collections.sort(tagKeyList);
+        List<String> excludedTagIdList = new ArrayList<>();
+        for (List<String> tagIdList : criteria.getExcludedTagIdList()) {
+            excludedTagIdList.addAll(tagIdList);
+        }
+        return Joiner.on('|').useForNull("").join(Lists.newArrayList(
+                version,
+                Strings.nullToEmpty(criteria.getSimpleSearch()).trim(),
+                Strings.nullToEmpty(criteria.getFullSearch()).trim(),
+                criteria.getCreateDateMin() == null ? null : criteria.getCreateDateMin().getTime(),
+                criteria.getCreateDateMax() == null ? null : criteria.getCreateDateMax().getTime(),
+                criteria.getUpdateDateMin() == null ? null : criteria.getUpdateDateMin().getTime(),
+                criteria.getUpdateDateMax() == null ? null : criteria.getUpdateDateMax().getTime(),
+                Joiner.on(";").join(tagKeyList),
+                Joiner.on(",").join(Sets.newTreeSet(excludedTagIdList)),
+                criteria.getMimeType(),
+                criteria.getLanguage(),
+                criteria.getCreatorId(),
+                sortCriteria == null ? null : sortCriteria.getColumn() + (sortCriteria.isAsc() ? "+" : "-"),
+                Joiner.on(",").join(Sets.newTreeSet(criteria.getTargetIdList()))));
+    }
+
+    @Override
+    public List<String> suggestSearchTerms(String search, int limit) throws Exception {
+        List<String> suggestionList = new ArrayList<>();
+        FuzzySuggester suggester = this.suggester;
+        if (suggester == null || suggester.getCount() == 0 || Strings.isNullOrEmpty(search)) {
+            // The suggester is not built yet or there is nothing to suggest
+            return suggestionList;
+        }
+
+        int lastIndex = search.lastIndexOf(' ');
+        String suggestQuery = search.substring(Math.max(lastIndex, 0));
+        List<Lookup.LookupResult> lookupResultList = suggester.lookup(suggestQuery, false, limit);
+        for (Lookup.LookupResult lookupResult : lookupResultList) {
+            suggestionList.add(lookupResult.key.toString());
+        }
+        return suggestionList;
+    }
+
+    /**
+     * Schedule a rebuild of the suggester, delayed until the interval since the last rebuild has elapsed.
+     * Rebuilds requested while another one is pending are coalesced.
+     */
+    private void scheduleSuggesterRebuild() {
+        if (EnvironmentUtil.isUnitTest()) {
+            // Suggestions must be up to date right after indexing in unit tests
+            rebuildSuggester();
+            return;
+        }
 
-        // Search
-        DirectoryReader directoryReader = getDirectoryReader();
-        Map<String, String> documentMap = Maps.newHashMap();
-        if (directoryReader == null) {
-            // The directory reader is not yet initialized (probably because there is nothing indexed)
-            return documentMap;
-        }
-        IndexSearcher searcher = new IndexSearcher(directoryReader);
-        TopDocs topDocs = searcher.search(query, Integer.MAX_VALUE);
-        ScoreDoc[] docs = topDocs.scoreDocs;
-
-        SimpleHTMLFormatter simpleHTMLFormatter = new SimpleHTMLFormatter("<strong>", "</strong>");
-        SimpleHTMLEncoder simpleHTMLEncoder = new SimpleHTMLEncoder();
-        Highlighter highlighter = new Highlighter(simpleHTMLFormatter, simpleHTMLEncoder, new QueryScorer(query));
-
-        // Extract document IDs and highlights
-        for (ScoreDoc doc : docs) {
-            org.apache.lucene.document.Document document = searcher.doc(doc.doc);
-            String type = document.get("doctype");
-            String documentId = null;
-            String highlight = null;
-            if (type.equals("document")) {
-                documentId = document.get("id");
-            } else if (type.equals("file")) {
-                documentId = document.get("document_id");
-                String content = document.get("content");
-                if (content != null) {
-                    highlight = highlighter.getBestFragment(analyzer, "content", content);
+        if (suggesterRebuildPending.compareAndSet(false, true)) {
+            long delay = Math.max(0, suggesterRebuildTime + suggesterInterval - System.currentTimeMillis());
+            suggesterExecutor.schedule(() -> {
+                suggesterRebuildPending.set(false);
+                rebuildSuggester();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Build a new suggester from the titles of the current index generation,
+     * and replace the current one once it is ready.
+     */
+    private void rebuildSuggester() {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                long version = shardedIndex.getVersion(searcher);
+                if (version == suggesterVersion) {
+                    // Already built from this index generation
+                    return;
                 }
+
+                long startTime = System.currentTimeMillis();
+                suggesterRebuildTime = startTime;
+                FuzzySuggester newSuggester = new FuzzySuggester(shardedIndex.getTempDirectory(), "suggest", analyzer);
+                newSuggester.build(new LuceneDictionary(searcher.getIndexReader(), "title"));
+                suggester = newSuggester;
+                suggesterVersion = version;
+                log.debug("Suggester rebuilt in {}ms", System.currentTimeMillis() - startTime);
+            } finally {
+                searcherManager.release(searcher);
             }
+        } catch (Exception e) {
+            log.error("Error building the suggester", e);
+        }
+    }
 
-            if (documentId != null) {
-                documentMap.put(documentId, highlight);
+    /**
+     * Fulltext search in files and documents.
+     *
+     * @param searcher Index searcher
+     * @param query Search query
+     * @param budget Search time budget
+     * @return Map of document IDs as key and best file hit as value (null if only the document matches)
+     * @throws Exception e
+     */
+    private Map<String, FileHit> search(IndexSearcher searcher, Query query, SearchBudget budget) throws Exception {
+        // Find the documents of matching files, keeping the best file hit of each document
+        FileHitCollector fileHitCollector = new FileHitCollector();
+        searcher.search(new BooleanQuery.Builder()
+                .add(FILE_DOCTYPE_QUERY, BooleanClause.Occur.FILTER)
+                .add(query, BooleanClause.Occur.MUST)
+                .build(), budget.wrap(fileHitCollector));
+        Map<String, FileHit> documentMap = new HashMap<>(fileHitCollector.getFileHitMap());
+
+        // Documents matching directly
+        TopScoreDocCollector collector = TopScoreDocCollector.create(Math.max(1, searcher.getIndexReader().maxDoc()), Integer.MAX_VALUE);
+        searcher.search(new BooleanQuery.Builder()
+                .add(new TermQuery(new Term("doctype", "document")), BooleanClause.Occur.FILTER)
+                .add(query, BooleanClause.Occur.MUST)
+                .build(), budget.wrap(collector));
+        for (ScoreDoc doc : collector.topDocs().scoreDocs) {
+            String documentId = searcher.doc(doc.doc, Collections.singleton("id")).get("id");
+            if (!documentMap.containsKey(documentId)) {
+                documentMap.put(documentId, null);
             }
         }
 
@@ -480,29 +1254,139 @@ public class LuceneIndexingHandler implements IndexingHandler {
     }
 
     /**
-     * Build a query parser for searching.
+     * Highlights the best matching file of each document.
+     * The offsets are read from the postings, the contents are not analyzed again.
      *
-     * @param analyzer Analyzer
-     * @param field Field
-     * @return Query parser
+     * @param searcher Searcher used to find the file hits
+     * @param query Search query
+     * @param fileHitMap Best file hit by document ID
+     * @param documentIdList IDs of the documents to highlight
+     * @return Map of document IDs as key and highlight as value
+     * @throws IOException e
      */
-    private SimpleQueryParser buildQueryParser(Analyzer analyzer, String field) {
-        SimpleQueryParser simpleQueryParser = new SimpleQueryParser(analyzer, field);
-        simpleQueryParser.setDefaultOperator(BooleanClause.Occur.MUST); // AND all the terms
-        return simpleQueryParser;
+    private Map<String, String> highlight(IndexSearcher searcher, Query query, Map<String, FileHit> fileHitMap, List<String> documentIdList) throws IOException {
+        Map<String, String> highlightMap = new HashMap<>();
+        List<String> highlightedIdList = new ArrayList<>();
+        List<Integer> docIdList = new ArrayList<>();
+        for (String documentId : documentIdList) {
+            FileHit fileHit = fileHitMap.get(documentId);
+            if (fileHit != null) {
+                // Only the best matching page is loaded with page indexing
+                highlightedIdList.add(documentId);
+                docIdList.add(fileHit.scoreDoc.doc);
+            }
+        }
+        if (docIdList.isEmpty()) {
+            return highlightMap;
+        }
+
+        int[] docIds = docIdList.stream().mapToInt(Integer::intValue).toArray();
+        String[] highlights = new ContentHighlighter(searcher, analyzer).highlightFields(new String[] { "content" }, query,
+                docIds, new int[] { 1 }).get("content");
+        for (int i = 0; i < highlights.length; i++) {
+            if (highlights[i] != null) {
+                highlightMap.put(highlightedIdList.get(i), highlights[i]);
+            }
+        }
+        return highlightMap;
+    }
+
+    /**
+     * Report the matching pages of the best matching file of a document.
+     *
+     * @param documentDto Document
+     * @param fileHit Best file hit, null if none
+     */
+    private void setHighlightPages(DocumentDto documentDto, FileHit fileHit) {
+        if (fileHit != null && !fileHit.pageList.isEmpty()) {
+            documentDto.setHighlightFileId(fileHit.fileId);
+            documentDto.setHighlightPageList(fileHit.pageList);
+        }
+    }
+
+    /**
+     * Build the fulltext query on documents and files.
+     * The queries are parsed and analyzed once, and cached.
+     *
+     * @param simpleSearchQuery Search query on metadatas
+     * @param fullSearchQuery Search query on all fields
+     * @return Query
+     */
+    private Query buildSearchQuery(String simpleSearchQuery, String fullSearchQuery) {
+        // The fulltext query searches in all fields
+        String searchQuery = simpleSearchQuery + " " + fullSearchQuery;
+
+        // Search on documents and files
+        return new BooleanQuery.Builder()
+                .add(metadataQueryCompiler.compile(searchQuery), BooleanClause.Occur.SHOULD)
+                .add(contentQueryCompiler.compile(fullSearchQuery), BooleanClause.Occur.SHOULD)
+                .build();
+    }
+
+    /**
+     * Convert terms to bytes, as expected by term queries.
+     *
+     * @param termList Terms
+     * @return Terms as bytes
+     */
+    private List<BytesRef> toBytesRefList(Collection<String> termList) {
+        List<BytesRef> bytesRefList = new ArrayList<>();
+        for (String term : termList) {
+            bytesRefList.add(new BytesRef(term));
+        }
+        return bytesRefList;
     }
 
     /**
      * Build Lucene document from database document.
      *
      * @param document Document
+     * @param readTargetIdSet Targets allowed to read the document
+     * @param tagIdSet Tags of the document
+     * @param mimeTypeSet MIME types of the files of the document
      * @return Document
      */
-    private org.apache.lucene.document.Document getDocumentFromDocument(Document document) {
+    private org.apache.lucene.document.Document getDocumentFromDocument(Document document, Set<String> readTargetIdSet,
+                                                                         Set<String> tagIdSet, Set<String> mimeTypeSet) {
         org.apache.lucene.document.Document luceneDocument = new org.apache.lucene.document.Document();
         luceneDocument.add(new StringField("id", document.getId(), Field.Store.YES));
+        luceneDocument.add(new SortedDocValuesField("id", new BytesRef(document.getId())));
         luceneDocument.add(new StringField("doctype", "document", Field.Store.YES));
+        if (readTargetIdSet != null) {
+            for (String targetId : readTargetIdSet) {
+                luceneDocument.add(new StringField("acl_read", targetId, Field.Store.NO));
+            }
+        }
+
+        // Filtered and counted as facets
+        if (tagIdSet != null) {
+            for (String tagId : tagIdSet) {
+                luceneDocument.add(new StringField("tag", tagId, Field.Store.NO));
+                luceneDocument.add(new SortedSetDocValuesField("tag", new BytesRef(tagId)));
+            }
+        }
+        if (mimeTypeSet != null) {
+            for (String mimeType : mimeTypeSet) {
+                luceneDocument.add(new StringField("mime_type", mimeType, Field.Store.NO));
+                luceneDocument.add(new SortedSetDocValuesField("mime_type", new BytesRef(mimeType)));
+            }
+        }
+        if (document.getUserId() != null) {
+            luceneDocument.add(new StringField("creator", document.getUserId(), Field.Store.NO));
+            luceneDocument.add(new SortedDocValuesField("creator", new BytesRef(document.getUserId())));
+        }
         luceneDocument.add(new TextField("title", document.getTitle(), Field.Store.NO));
+        luceneDocument.add(new SortedDocValuesField("title_sort", new BytesRef(document.getTitle().toLowerCase())));
+        luceneDocument.add(new StringField("language", document.getLanguage(), Field.Store.NO));
+        luceneDocument.add(new SortedDocValuesField("language", new BytesRef(document.getLanguage())));
+        if (document.getCreateDate() != null) {
+            luceneDocument.add(new LongPoint("create_date", document.getCreateDate().getTime()));
+            luceneDocument.add(new NumericDocValuesField("create_date", document.getCreateDate().getTime()));
+        }
+        if (document.getUpdateDate() != null) {
+            luceneDocument.add(new LongPoint("update_date", document.getUpdateDate().getTime()));
+            luceneDocument.add(new NumericDocValuesField("update_date", document.getUpdateDate().getTime()));
+        }
         if (document.getDescription() != null) {
             luceneDocument.add(new TextField("description", document.getDescription(), Field.Store.NO));
         }
@@ -535,57 +1419,115 @@ public class LuceneIndexingHandler implements IndexingHandler {
     }
 
     /**
-     * Build Lucene document from file.
+     * Build Lucene documents from file.
+     * With page indexing, the contents of multi-page files are indexed in one child entry per page.
      *
      * @param file File
-     * @return Document
+     * @return File entry, followed by its pages
      */
-    private org.apache.lucene.document.Document getDocumentFromFile(File file) {
+    private List<org.apache.lucene.document.Document> getDocumentsFromFile(File file) {
+        List<org.apache.lucene.document.Document> luceneDocumentList = new ArrayList<>();
         org.apache.lucene.document.Document luceneDocument = new org.apache.lucene.document.Document();
         luceneDocument.add(new StringField("id", file.getId(), Field.Store.YES));
+        luceneDocument.add(new SortedDocValuesField("id", new BytesRef(file.getId())));
         luceneDocument.add(new StringField("doctype", "file", Field.Store.YES));
         if (file.getName() != null) {
             luceneDocument.add(new TextField("filename", file.getName(), Field.Store.NO));
         }
+        addFileLinks(luceneDocument, file);
+        luceneDocumentList.add(luceneDocument);
+
+        List<String> pageList = pageIndexing ? splitPages(file.getContent()) : Collections.emptyList();
+        if (pageList.size() > 1) {
+            for (int i = 0; i < pageList.size(); i++) {
+                if (pageList.get(i).trim().isEmpty()) {
+                    continue;
+                }
+                org.apache.lucene.document.Document pageDocument = new org.apache.lucene.document.Document();
+                pageDocument.add(new StringField("id", file.getId(), Field.Store.YES));
+                pageDocument.add(new SortedDocValuesField("id", new BytesRef(file.getId())));
+                pageDocument.add(new StringField("doctype", "page", Field.Store.YES));
+                pageDocument.add(new StoredField("page", i + 1));
+                pageDocument.add(new NumericDocValuesField("page", i + 1));
+                addFileLinks(pageDocument, file);
+                pageDocument.add(new Field("content", pageList.get(i), contentFieldType));
+                luceneDocumentList.add(pageDocument);
+            }
+        } else if (file.getContent() != null) {
+            luceneDocument.add(new Field("content", file.getContent(), contentFieldType));
+        }
+
+        return luceneDocumentList;
+    }
+
+    /**
+     * Add the fields linking an entry to its file and document.
+     *
+     * @param luceneDocument File or page entry
+     * @param file File
+     */
+    private void addFileLinks(org.apache.lucene.document.Document luceneDocument, File file) {
+        if (pageIndexing) {
+            luceneDocument.add(new SortedDocValuesField("file_id", new BytesRef(file.getId())));
+        }
         if (file.getDocumentId() != null) {
             luceneDocument.add(new StringField("document_id", file.getDocumentId(), Field.Store.YES));
+            luceneDocument.add(new SortedDocValuesField("document_id", new BytesRef(file.getDocumentId())));
         }
-        if (file.getContent() != null) {
-            luceneDocument.add(new TextField("content", file.getContent(), Field.Store.YES));
+    }
+
+    /**
+     * Split a file content in pages.
+     * A trailing page separator doesn't start a new page.
+     *
+     * @param content File content
+     * @return Pages
+     */
+    private static List<String> splitPages(String content) {
+        if (content == null) {
+            return Collections.emptyList();
+        }
+        List<String> pageList = new ArrayList<>(Arrays.asList(content.split(Constants.PAGE_SEPARATOR, -1)));
+        if (pageList.size() > 1 && pageList.get(pageList.size() - 1).trim().isEmpty()) {
+            pageList.remove(pageList.size() - 1);
         }
+        return pageList;
+    }
 
-        return luceneDocument;
+    /**
+     * Acquire an up to date searcher.
+     * The searcher must be released with the searcher manager after use.
+     *
+     * @return Index searcher
+     * @throws IOException e
+     */
+    private IndexSearcher acquireSearcher() throws IOException {
+        return shardedIndex.acquireSearcher(null, null);
     }
 
     /**
-     * Returns a valid directory reader.
-     * Take care of reopening the reader if the index has changed
-     * and closing the previous one.
+     * Acquire an up to date searcher on the shards which may match search criteria.
+     * The searcher must be released with the searcher manager after use.
      *
-     * @return the directoryReader
+     * @param criteria Search criteria
+     * @return Index searcher
+     * @throws IOException e
      */
-    private DirectoryReader getDirectoryReader() {
-        if (directoryReader == null) {
-            try {
-                if (!DirectoryReader.indexExists(directory)) {
-                    return null;
-                }
-                directoryReader = DirectoryReader.open(directory);
-            } catch (IOException e) {
-                log.error("Error creating the directory reader", e);
-            }
-        } else {
-            try {
-                DirectoryReader newReader = DirectoryReader.openIfChanged(directoryReader);
-                if (newReader != null) {
-                    directoryReader.close();
-                    directoryReader = newReader;
-                }
-            } catch (IOException e) {
-                log.error("Error while reopening the directory reader", e);
-            }
+    private IndexSearcher acquireSearcher(DocumentCriteria criteria) throws IOException {
+        // Date-bounded searches skip the shards of the other periods
+        return shardedIndex.acquireSearcher(criteria.getCreateDateMin(), criteria.getCreateDateMax());
+    }
+
+    /**
+     * Commit the index writers and reset the operation counter.
+     */
+    private void commit() {
+        uncommittedOperationCount.set(0);
+        try {
+            shardedIndex.commit();
+        } catch (IOException e) {
+            log.error("Cannot commit index writer", e);
         }
-        return directoryReader;
     }
 
     /**
@@ -595,15 +1537,336 @@ public class LuceneIndexingHandler implements IndexingHandler {
      */
     private void handle(LuceneRunnable runnable) {
         try {
-            runnable.run(indexWriter);
+            runnable.run();
         } catch (Exception e) {
             log.error("Error in running index writing", e);
         }
 
-        try {
-            indexWriter.commit();
-        } catch (IOException e) {
-            log.error("Cannot commit index writer", e);
+        // Changes are visible to searchers without committing, commit only when enough operations are pending
+        if (uncommittedOperationCount.incrementAndGet() >= commitMaxOperations) {
+            commit();
+        }
+    }
+
+    /**
+     * Result of a search in the index, cached for an index generation.
+     */
+    private static class SearchResult {
+        /**
+         * IDs of the first sorted documents.
+         */
+        private final List<String> documentIdList;
+
+        /**
+         * Total number of matching documents.
+         */
+        private final int totalHits;
+
+        /**
+         * Facet counts.
+         */
+        private final Map<String, Map<String, Long>> facetMap;
+
+        /**
+         * Best file hit by document ID.
+         */
+        private final Map<String, FileHit> fileHitMap;
+
+        /**
+         * True if the search has been stopped by its time budget.
+         */
+        private final boolean partial;
+
+        SearchResult(List<String> documentIdList, int totalHits, Map<String, Map<String, Long>> facetMap, Map<String, FileHit> fileHitMap, boolean partial) {
+            this.documentIdList = Collections.unmodifiableList(documentIdList);
+            this.totalHits = totalHits;
+            this.facetMap = Collections.unmodifiableMap(facetMap);
+            this.fileHitMap = Collections.unmodifiableMap(fileHitMap);
+            this.partial = partial;
+        }
+
+        /**
+         * Returns true if the sorted documents are collected up to an index.
+         *
+         * @param end End index, exclusive
+         * @return True if the documents are collected
+         */
+        boolean contains(int end) {
+            return documentIdList.size() >= Math.min(end, totalHits);
+        }
+    }
+
+    /**
+     * Best matching file or page of a document.
+     */
+    private static class FileHit {
+        /**
+         * Best hit.
+         */
+        private final ScoreDoc scoreDoc;
+
+        /**
+         * ID of the file of the best hit, null without page indexing.
+         */
+        private final String fileId;
+
+        /**
+         * Matching pages of this file, one-based.
+         */
+        private final List<Integer> pageList;
+
+        FileHit(ScoreDoc scoreDoc, String fileId, List<Integer> pageList) {
+            this.scoreDoc = scoreDoc;
+            this.fileId = fileId;
+            this.pageList = pageList;
+        }
+    }
+
+    /**
+     * Collector of file hits, keeping the best scoring file of each document and the matching pages of the files.
+     * Document and file IDs are read from doc values, no stored field is loaded.
+     */
+    private static class FileHitCollector extends SimpleCollector {
+        /**
+         * Best hit by document ID.
+         */
+        private final Map<String, ScoreDoc> bestHitMap = new HashMap<>();
+
+        /**
+         * File of the best hit by document ID.
+         */
+        private final Map<String, String> bestFileIdMap = new HashMap<>();
+
+        /**
+         * Matching pages by file ID.
+         */
+        private final Map<String, SortedSet<Integer>> pageMap = new HashMap<>();
+
+        /**
+         * Document IDs of the current segment.
+         */
+        private SortedDocValues documentIdValues;
+
+        /**
+         * File IDs of the current segment.
+         */
+        private SortedDocValues fileIdValues;
+
+        /**
+         * Page numbers of the current segment.
+         */
+        private NumericDocValues pageValues;
+
+        /**
+         * Base of the current segment.
+         */
+        private int docBase;
+
+        /**
+         * Scorer.
+         */
+        private Scorable scorer;
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) throws IOException {
+            docBase = context.docBase;
+            documentIdValues = DocValues.getSorted(context.reader(), "document_id");
+            fileIdValues = DocValues.getSorted(context.reader(), "file_id");
+            pageValues = DocValues.getNumeric(context.reader(), "page");
+        }
+
+        @Override
+        public void setScorer(Scorable scorer) {
+            this.scorer = scorer;
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            if (!documentIdValues.advanceExact(doc)) {
+                return;
+            }
+            String documentId = documentIdValues.binaryValue().utf8ToString();
+            String fileId = fileIdValues.advanceExact(doc) ? fileIdValues.binaryValue().utf8ToString() : null;
+            if (fileId != null && pageValues.advanceExact(doc)) {
+                pageMap.computeIfAbsent(fileId, k -> new TreeSet<>()).add((int) pageValues.longValue());
+            }
+            float score = scorer.score();
+            ScoreDoc best = bestHitMap.get(documentId);
+            if (best == null || score > best.score) {
+                bestHitMap.put(documentId, new ScoreDoc(docBase + doc, score));
+                bestFileIdMap.put(documentId, fileId);
+            }
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE;
+        }
+
+        public Map<String, FileHit> getFileHitMap() {
+            Map<String, FileHit> fileHitMap = new HashMap<>();
+            for (Map.Entry<String, ScoreDoc> entry : bestHitMap.entrySet()) {
+                String fileId = bestFileIdMap.get(entry.getKey());
+                SortedSet<Integer> pageSet = fileId == null ? null : pageMap.get(fileId);
+                fileHitMap.put(entry.getKey(), new FileHit(entry.getValue(), fileId,
+                        pageSet == null ? Collections.emptyList() : new ArrayList<>(pageSet)));
+            }
+            return fileHitMap;
+        }
+    }
+
+    /**
+     * Collector counting the values of doc values fields among all the hits.
+     * Values are counted by ordinal in each segment, and resolved once per segment.
+     */
+    private static class FacetCollector extends SimpleCollector {
+        /**
+         * Counted fields.
+         */
+        private final String[] fields;
+
+        /**
+         * Counts by value, by field.
+         */
+        private final Map<String, Map<String, Long>> facetMap = new HashMap<>();
+
+        /**
+         * Values of the current segment, by field.
+         */
+        private final SortedSetDocValues[] values;
+
+        /**
+         * Counts of the current segment by ordinal, by field.
+         */
+        private final int[][] counts;
+
+        FacetCollector(String... fields) {
+            this.fields = fields;
+            values = new SortedSetDocValues[fields.length];
+            counts = new int[fields.length][];
+            for (String field : fields) {
+                facetMap.put(field, new HashMap<>());
+            }
+        }
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) throws IOException {
+            flush();
+            for (int i = 0; i < fields.length; i++) {
+                // Single valued fields are read the same way
+                values[i] = DocValues.getSortedSet(context.reader(), fields[i]);
+                counts[i] = new int[(int) values[i].getValueCount()];
+            }
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            for (int i = 0; i < fields.length; i++) {
+                if (values[i].advanceExact(doc)) {
+                    for (long ord = values[i].nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = values[i].nextOrd()) {
+                        counts[i][(int) ord]++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Add the counts of the current segment to the facets.
+         *
+         * @throws IOException e
+         */
+        private void flush() throws IOException {
+            for (int i = 0; i < fields.length; i++) {
+                if (counts[i] == null) {
+                    continue;
+                }
+                Map<String, Long> fieldFacetMap = facetMap.get(fields[i]);
+                for (int ord = 0; ord < counts[i].length; ord++) {
+                    if (counts[i][ord] > 0) {
+                        fieldFacetMap.merge(values[i].lookupOrd(ord).utf8ToString(), (long) counts[i][ord], Long::sum);
+                    }
+                }
+                counts[i] = null;
+            }
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+
+        public Map<String, Map<String, Long>> getFacetMap() throws IOException {
+            flush();
+            return facetMap;
+        }
+    }
+
+    /**
+     * Highlighter of the file contents.
+     * Contents not stored in the index are loaded from the database, only the highlighted page of paged files.
+     */
+    private static class ContentHighlighter extends UnifiedHighlighter {
+        /**
+         * Stored fields loaded for highlighting.
+         */
+        private static final Set<String> LOADED_FIELD_SET = Sets.newHashSet("id", "page", "content");
+
+        ContentHighlighter(IndexSearcher searcher, Analyzer analyzer) {
+            // The analyzer is only used by indexes without offsets
+            super(searcher, analyzer);
+            setFormatter(new DefaultPassageFormatter("<strong>", "</strong>", "... ", true));
+            // Passages start at their first match and end at the first word break after the fragment size
+            setBreakIterator(() -> LengthGoalBreakIterator.createMinLength(BreakIterator.getWordInstance(Locale.ROOT), HIGHLIGHT_FRAGMENT_SIZE, 0f));
+            setMaxNoHighlightPassages(0);
+        }
+
+        @Override
+        protected List<CharSequence[]> loadFieldValues(String[] fields, DocIdSetIterator docIter, int cacheCharsThreshold) throws IOException {
+            List<CharSequence[]> fieldValueList = new ArrayList<>();
+            Map<String, List<CharSequence[]>> missingContentMap = new HashMap<>();
+            Map<CharSequence[], Integer> missingPageMap = new HashMap<>();
+            for (int docId = docIter.nextDoc(); docId != DocIdSetIterator.NO_MORE_DOCS; docId = docIter.nextDoc()) {
+                org.apache.lucene.document.Document document = searcher.doc(docId, LOADED_FIELD_SET);
+                CharSequence[] values = new CharSequence[] { truncate(document.get("content")) };
+                if (document.get("content") == null) {
+                    missingContentMap.computeIfAbsent(document.get("id"), k -> new ArrayList<>()).add(values);
+                    IndexableField page = document.getField("page");
+                    if (page != null) {
+                        missingPageMap.put(values, page.numericValue().intValue());
+                    }
+                }
+                fieldValueList.add(values);
+            }
+
+            if (!missingContentMap.isEmpty()) {
+                for (File file : new FileDao().getFiles(new ArrayList<>(missingContentMap.keySet()))) {
+                    List<String> pageList = null;
+                    for (CharSequence[] values : missingContentMap.get(file.getId())) {
+                        Integer page = missingPageMap.get(values);
+                        if (page == null) {
+                            values[0] = truncate(file.getContent());
+                        } else {
+                            // The page is split as it has been indexed, the offsets match
+                            pageList = pageList == null ? splitPages(file.getContent()) : pageList;
+                            values[0] = truncate(page <= pageList.size() ? pageList.get(page - 1) : null);
+                        }
+                    }
+                }
+            }
+            return fieldValueList;
+        }
+
+        /**
+         * Truncate a content to the maximum length considered for highlighting.
+         *
+         * @param content Content
+         * @return Truncated content
+         */
+        private String truncate(String content) {
+            if (content == null) {
+                return "";
+            }
+            return content.length() > HIGHLIGHT_MAX_LENGTH ? content.substring(0, HIGHLIGHT_MAX_LENGTH) : content;
         }
     }
 
@@ -616,9 +1879,8 @@ public class LuceneIndexingHandler implements IndexingHandler {
         /**
          * Code to run in a Lucene context.
          *
-         * @param indexWriter Index writer
          * @throws Exception e
          */
-        void run(IndexWriter indexWriter) throws Exception;
+        void run() throws Exception;
     }
 }
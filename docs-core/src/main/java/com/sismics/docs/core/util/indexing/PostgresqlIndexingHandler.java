@@ -0,0 +1,522 @@
+package com.sismics.docs.core.util.indexing;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.sismics.docs.core.constant.ConfigType;
+import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.constant.PermType;
+import com.sismics.docs.core.dao.ConfigDao;
+import com.sismics.docs.core.dao.criteria.DocumentCriteria;
+import com.sismics.docs.core.dao.dto.DocumentDto;
+import com.sismics.docs.core.event.RebuildIndexAsyncEvent;
+import com.sismics.docs.core.model.context.AppContext;
+import com.sismics.docs.core.model.jpa.Config;
+import com.sismics.docs.core.model.jpa.Document;
+import com.sismics.docs.core.model.jpa.File;
+import com.sismics.docs.core.util.ConfigUtil;
+import com.sismics.docs.core.util.TransactionUtil;
+import com.sismics.docs.core.util.jpa.PaginatedList;
+import com.sismics.docs.core.util.jpa.QueryParam;
+import com.sismics.docs.core.util.jpa.QueryUtil;
+import com.sismics.docs.core.util.jpa.SortCriteria;
+import com.sismics.util.ClasspathScanner;
+import com.sismics.util.context.ThreadLocalContext;
+import com.sismics.util.jpa.EMF;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * PostgreSQL fulltext indexing handler.
+ * Documents and files are indexed in a tsvector column with a GIN index,
+ * searches are ranked, filtered by ACL and paginated in a single query.
+ */
+@ClasspathScanner.Priority(50) // Before Lucene
+public class PostgresqlIndexingHandler implements IndexingHandler {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(PostgresqlIndexingHandler.class);
+
+    /**
+     * Maximum number of characters of a file content indexed, a tsvector is limited to 1MB.
+     */
+    private static final int CONTENT_MAX_LENGTH = 512 * 1024;
+
+    /**
+     * Maximum number of characters of a file content considered for highlighting.
+     */
+    private static final int HIGHLIGHT_MAX_LENGTH = 50 * 1024;
+
+    /**
+     * Version of the search vectors, to increment when their content changes.
+     */
+    private static final int INDEX_VERSION = 1;
+
+    /**
+     * Words of a search term.
+     */
+    private static final Pattern WORD_PATTERN = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    /**
+     * Interval between two refreshes of the words of the titles, in minutes.
+     */
+    private static final int TITLE_WORD_REFRESH_INTERVAL = 10;
+
+    /**
+     * Scheduler of the refreshes of the words of the titles.
+     */
+    private ScheduledExecutorService titleWordScheduler;
+
+    /**
+     * True if the words of the titles can be read.
+     */
+    private volatile boolean titleWordPopulated;
+
+    /**
+     * Text search configuration.
+     */
+    private final String textSearchConfig = Strings.isNullOrEmpty(System.getenv(Constants.POSTGRESQL_FULLTEXT_CONFIG_ENV)) ?
+            Constants.DEFAULT_POSTGRESQL_FULLTEXT_CONFIG : System.getenv(Constants.POSTGRESQL_FULLTEXT_CONFIG_ENV);
+
+    @Override
+    public boolean accept() {
+        return EMF.isDriverPostgresql() && ConfigUtil.getEnvBooleanValue(Constants.POSTGRESQL_FULLTEXT_ENV, false);
+    }
+
+    @Override
+    public void startUp() {
+        // The search vectors and their indexes are created by the database updates
+        AtomicReference<String> indexVersion = new AtomicReference<>();
+        TransactionUtil.handle(() -> {
+            Config config = new ConfigDao().getById(ConfigType.POSTGRESQL_INDEX_VERSION);
+            if (config != null) {
+                indexVersion.set(config.getValue());
+            }
+        });
+        log.info("PostgreSQL fulltext search with the {} text search configuration", textSearchConfig);
+
+        if (!getIndexVersion().equals(indexVersion.get())) {
+            // New vectors, new text search configuration, or vectors not maintained while another handler was used
+            log.info("The search vectors are outdated ({} instead of {}), scheduling a full reindex", indexVersion.get(), getIndexVersion());
+            AppContext.getInstance().getAsyncEventBus().post(new RebuildIndexAsyncEvent());
+        } else if (getRebuildCheckpoint() != null) {
+            log.info("An index rebuild has been interrupted, resuming it");
+            RebuildIndexAsyncEvent rebuildIndexAsyncEvent = new RebuildIndexAsyncEvent();
+            rebuildIndexAsyncEvent.setResume(true);
+            AppContext.getInstance().getAsyncEventBus().post(rebuildIndexAsyncEvent);
+        }
+
+        // Refresh the words of the titles suggested while searching
+        titleWordScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "postgresql-title-word");
+            thread.setDaemon(true);
+            return thread;
+        });
+        titleWordScheduler.scheduleWithFixedDelay(this::refreshTitleWords, 0, TITLE_WORD_REFRESH_INTERVAL, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void shutDown() {
+        // The index is in the database, only the refreshes of the title words are stopped
+        if (titleWordScheduler != null) {
+            titleWordScheduler.shutdown();
+        }
+    }
+
+    /**
+     * Refresh the words of the titles from the documents.
+     * The view is only locked during its first population, it is readable while being refreshed afterwards.
+     */
+    private void refreshTitleWords() {
+        TransactionUtil.handle(() -> {
+            EntityManager em = ThreadLocalContext.get().getEntityManager();
+            Boolean populated = (Boolean) em.createNativeQuery("select ispopulated from pg_matviews where matviewname = 'v_title_word'")
+                    .getSingleResult();
+            em.createNativeQuery(populated ? "refresh materialized view concurrently V_TITLE_WORD" : "refresh materialized view V_TITLE_WORD")
+                    .executeUpdate();
+            titleWordPopulated = true;
+        });
+    }
+
+    /**
+     * Returns the version of the search vectors built by this handler.
+     *
+     * @return Index version and text search configuration
+     */
+    private String getIndexVersion() {
+        return INDEX_VERSION + ":" + textSearchConfig;
+    }
+
+    /**
+     * Mark the search vectors as outdated, they are rebuilt the next time this handler is started.
+     * Called when another indexing handler is used, the vectors are not maintained anymore.
+     */
+    public static void invalidateIndex() {
+        TransactionUtil.handle(() -> {
+            ConfigDao configDao = new ConfigDao();
+            Config config = configDao.getById(ConfigType.POSTGRESQL_INDEX_VERSION);
+            if (config != null && !config.getValue().isEmpty()) {
+                configDao.update(ConfigType.POSTGRESQL_INDEX_VERSION, "");
+            }
+        });
+    }
+
+    @Override
+    public List<IndexPartition> getPartitions() {
+        return Collections.singletonList(IndexPartition.ALL);
+    }
+
+    @Override
+    public void clearIndex(IndexPartition partition) {
+        TransactionUtil.handle(() -> {
+            EntityManager em = ThreadLocalContext.get().getEntityManager();
+            em.createNativeQuery("update T_DOCUMENT set DOC_SEARCH_TSV = null where DOC_SEARCH_TSV is not null").executeUpdate();
+            em.createNativeQuery("update T_FILE set FIL_SEARCH_TSV = null where FIL_SEARCH_TSV is not null").executeUpdate();
+        });
+    }
+
+    @Override
+    public void checkIndex() {
+        // The database is responsible for the integrity of its indexes
+        log.info("The PostgreSQL search index doesn't need to be checked");
+    }
+
+    @Override
+    public String getRebuildCheckpoint() {
+        AtomicReference<String> checkpoint = new AtomicReference<>();
+        TransactionUtil.handle(() -> {
+            Config config = new ConfigDao().getById(ConfigType.INDEX_REBUILD_CHECKPOINT);
+            if (config != null) {
+                checkpoint.set(Strings.emptyToNull(config.getValue()));
+            }
+        });
+        return checkpoint.get();
+    }
+
+    @Override
+    public void commitRebuildCheckpoint(String checkpoint) {
+        // The indexed data is already committed by the workers transactions.
+        // The vectors are built with the current version from the first checkpoint, an interrupted rebuild is resumed
+        TransactionUtil.handle(() -> {
+            ConfigDao configDao = new ConfigDao();
+            configDao.update(ConfigType.INDEX_REBUILD_CHECKPOINT, Strings.nullToEmpty(checkpoint));
+            configDao.update(ConfigType.POSTGRESQL_INDEX_VERSION, getIndexVersion());
+        });
+    }
+
+    @Override
+    public void createDocuments(List<Document> documentList) {
+        TransactionUtil.handle(() -> {
+            for (Document document : documentList) {
+                updateDocumentVector(document);
+            }
+        });
+    }
+
+    @Override
+    public void createFiles(List<File> fileList) {
+        TransactionUtil.handle(() -> {
+            for (File file : fileList) {
+                updateFileVector(file);
+            }
+        });
+    }
+
+    @Override
+    public void createDocument(Document document) {
+        TransactionUtil.handle(() -> updateDocumentVector(document));
+    }
+
+    @Override
+    public void createFile(File file) {
+        TransactionUtil.handle(() -> updateFileVector(file));
+    }
+
+    @Override
+    public void updateFile(File file) {
+        TransactionUtil.handle(() -> updateFileVector(file));
+    }
+
+    @Override
+    public void updateDocument(Document document) {
+        TransactionUtil.handle(() -> updateDocumentVector(document));
+    }
+
+    @Override
+    public void deleteDocument(String id) {
+        // Deleted documents and files are excluded from searches, their vectors are only freed
+        TransactionUtil.handle(() -> {
+            EntityManager em = ThreadLocalContext.get().getEntityManager();
+            em.createNativeQuery("update T_DOCUMENT set DOC_SEARCH_TSV = null where DOC_ID_C = :id")
+                    .setParameter("id", id)
+                    .executeUpdate();
+            em.createNativeQuery("update T_FILE set FIL_SEARCH_TSV = null where FIL_ID_C = :id")
+                    .setParameter("id", id)
+                    .executeUpdate();
+        });
+    }
+
+    @Override
+    public void createAcl(String sourceId, PermType perm, String targetId) {
+        // ACLs are checked by the search query
+    }
+
+    @Override
+    public void deleteAcl(String sourceId, PermType perm, String targetId) {
+        // ACLs are checked by the search query
+    }
+
+    /**
+     * Update the search vector of a document.
+     * The title is weighted higher than the description, and the description higher than the other metadata.
+     *
+     * @param document Document
+     */
+    private void updateDocumentVector(Document document) {
+        String metadata = Joiner.on(' ').skipNulls().join(document.getSubject(), document.getIdentifier(), document.getPublisher(),
+                document.getFormat(), document.getSource(), document.getType(), document.getCoverage(), document.getRights());
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        em.createNativeQuery("update T_DOCUMENT set DOC_SEARCH_TSV = " +
+                        "setweight(to_tsvector(cast(:config as regconfig), :title), 'A') || " +
+                        "setweight(to_tsvector(cast(:config as regconfig), :description), 'B') || " +
+                        "setweight(to_tsvector(cast(:config as regconfig), :metadata), 'C') " +
+                        "where DOC_ID_C = :id")
+                .setParameter("config", textSearchConfig)
+                .setParameter("title", Strings.nullToEmpty(document.getTitle()))
+                .setParameter("description", Strings.nullToEmpty(document.getDescription()))
+                .setParameter("metadata", metadata)
+                .setParameter("id", document.getId())
+                .executeUpdate();
+    }
+
+    /**
+     * Update the search vector of a file.
+     * The file name is weighted as a document title, to be matched by the metadata searches.
+     *
+     * @param file File
+     */
+    private void updateFileVector(File file) {
+        // File names like report2.pdf are a single token, their words are indexed too
+        String name = Strings.nullToEmpty(file.getName());
+        name = name + " " + name.replaceAll("[^\\p{L}\\p{N}]+", " ");
+        String content = Strings.nullToEmpty(file.getContent());
+        if (content.length() > CONTENT_MAX_LENGTH) {
+            content = content.substring(0, CONTENT_MAX_LENGTH);
+        }
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        em.createNativeQuery("update T_FILE set FIL_SEARCH_TSV = " +
+                        "setweight(to_tsvector(cast(:config as regconfig), :name), 'A') || " +
+                        "setweight(to_tsvector(cast(:config as regconfig), :content), 'D') " +
+                        "where FIL_ID_C = :id")
+                .setParameter("config", textSearchConfig)
+                .setParameter("name", name)
+                .setParameter("content", content)
+                .setParameter("id", file.getId())
+                .executeUpdate();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void findByCriteria(PaginatedList<DocumentDto> paginatedList, List<String> suggestionList, Map<String, Map<String, Long>> facetMap,
+                               DocumentCriteria criteria, SortCriteria sortCriteria) throws Exception {
+        // The queries are cancelled by the database when the budget is exhausted
+        SearchBudget budget = new SearchBudget(ConfigUtil.getEnvIntegerValue(Constants.SEARCH_TIMEOUT_ENV, Constants.DEFAULT_SEARCH_TIMEOUT));
+        Map<String, Object> parameterMap = new HashMap<>();
+        List<String> criteriaList = new ArrayList<>();
+
+        // The metadata are searched with all the terms, the file contents with the fulltext terms only
+        boolean fulltext = !Strings.isNullOrEmpty(criteria.getSimpleSearch()) || !Strings.isNullOrEmpty(criteria.getFullSearch());
+        String metaQuery = buildTsQuery(Joiner.on(' ').skipNulls().join(criteria.getSimpleSearch(), criteria.getFullSearch()));
+        String fullQuery = buildTsQuery(criteria.getFullSearch());
+        if (fulltext && metaQuery == null) {
+            // Nothing searchable in these terms
+            paginatedList.setResultCount(0);
+            paginatedList.setResultList(new ArrayList<>());
+            return;
+        }
+
+        StringBuilder sb = DocumentQueryUtil.buildDocumentSelect();
+        DocumentQueryUtil.addCriteria(sb, criteriaList, parameterMap, criteria);
+        if (fulltext) {
+            criteriaList.add("(d.DOC_SEARCH_TSV @@ to_tsquery(cast(:config as regconfig), :metaQuery) or d.DOC_ID_C in (" +
+                    "select f.FIL_IDDOC_C from T_FILE f where f.FIL_DELETEDATE_D is null and (" +
+                    (fullQuery == null ? "" : "f.FIL_SEARCH_TSV @@ to_tsquery(cast(:config as regconfig), :fullQuery) or ") +
+                    "(f.FIL_SEARCH_TSV @@ to_tsquery(cast(:config as regconfig), :metaQuery) " +
+                    "and ts_filter(f.FIL_SEARCH_TSV, array[cast('a' as \"char\")]) @@ to_tsquery(cast(:config as regconfig), :metaQuery)))))");
+            parameterMap.put("config", textSearchConfig);
+            parameterMap.put("metaQuery", metaQuery);
+            if (fullQuery != null) {
+                parameterMap.put("fullQuery", fullQuery);
+            }
+        }
+        sb.append(" where ");
+        sb.append(Joiner.on(" and ").join(criteriaList));
+
+        // Rank, count and paginate in the same query, the rank breaks the ties of the sort column
+        StringBuilder outer = new StringBuilder("select t.*, ");
+        outer.append(fulltext ? "ts_rank(rd.DOC_SEARCH_TSV, to_tsquery(cast(:config as regconfig), :metaQuery))" : "0");
+        outer.append(" c9, count(*) over () c10 from (");
+        outer.append(sb);
+        outer.append(") t join T_DOCUMENT rd on rd.DOC_ID_C = t.c0 order by ");
+        if (sortCriteria != null) {
+            outer.append("c").append(sortCriteria.getColumn()).append(sortCriteria.isAsc() ? " asc, " : " desc, ");
+        }
+        outer.append("c9 desc, c0");
+
+        Query q = QueryUtil.getNativeQuery(new QueryParam(outer.toString(), parameterMap, budget.getQueryTimeout()));
+        q.setFirstResult(paginatedList.getOffset());
+        q.setMaxResults(paginatedList.getLimit());
+        List<Object[]> l = budget.runQuery(q::getResultList, new ArrayList<>());
+
+        // Assemble results
+        List<DocumentDto> documentDtoList = new ArrayList<>();
+        for (Object[] o : l) {
+            documentDtoList.add(DocumentQueryUtil.getDocumentDto(o));
+        }
+        if (!l.isEmpty()) {
+            paginatedList.setResultCount(((Number) l.get(0)[11]).intValue());
+        } else if (paginatedList.getOffset() == 0) {
+            paginatedList.setResultCount(0);
+        } else {
+            // Paginated after the last result, only count them
+            Query countQuery = QueryUtil.getNativeQuery(new QueryParam("select count(*) from (" + sb + ") t", parameterMap, budget.getQueryTimeout()));
+            paginatedList.setResultCount(budget.runQuery(() -> ((Number) countQuery.getSingleResult()).intValue(), 0));
+        }
+
+        // Highlight only the files of the documents in this page
+        if (fullQuery != null && !documentDtoList.isEmpty()) {
+            Map<String, String> highlightMap = highlight(documentDtoList, fullQuery);
+            for (DocumentDto documentDto : documentDtoList) {
+                documentDto.setHighlight(highlightMap.get(documentDto.getId()));
+            }
+        }
+        if (fulltext) {
+            suggestionList.addAll(suggestSearchTerms(criteria.getFullSearch(), 10));
+        }
+
+        paginatedList.setResultList(documentDtoList);
+        paginatedList.setPartial(budget.isPartial());
+    }
+
+    /**
+     * Highlight the best matching file of each document.
+     * The contents are escaped before highlighting, the highlights are safe HTML.
+     *
+     * @param documentDtoList Documents
+     * @param fullQuery Fulltext query
+     * @return Highlight by document ID
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, String> highlight(List<DocumentDto> documentDtoList, String fullQuery) {
+        List<String> documentIdList = new ArrayList<>();
+        for (DocumentDto documentDto : documentDtoList) {
+            documentIdList.add(documentDto.getId());
+        }
+
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        List<Object[]> l = em.createNativeQuery("select distinct on (f.FIL_IDDOC_C) f.FIL_IDDOC_C, " +
+                        "ts_headline(cast(:config as regconfig), " +
+                        "replace(replace(replace(left(f.FIL_CONTENT_C, :maxLength), '&', '&amp;'), '<', '&lt;'), '>', '&gt;'), " +
+                        "to_tsquery(cast(:config as regconfig), :query), " +
+                        "'StartSel=<strong>, StopSel=</strong>, MaxFragments=1, MinWords=10, MaxWords=20') " +
+                        "from T_FILE f " +
+                        "where f.FIL_IDDOC_C in (:documentIdList) and f.FIL_DELETEDATE_D is null " +
+                        "and f.FIL_SEARCH_TSV @@ to_tsquery(cast(:config as regconfig), :query) " +
+                        "order by f.FIL_IDDOC_C, ts_rank(f.FIL_SEARCH_TSV, to_tsquery(cast(:config as regconfig), :query)) desc")
+                .setParameter("config", textSearchConfig)
+                .setParameter("maxLength", HIGHLIGHT_MAX_LENGTH)
+                .setParameter("query", fullQuery)
+                .setParameter("documentIdList", documentIdList)
+                .getResultList();
+
+        Map<String, String> highlightMap = new HashMap<>();
+        for (Object[] o : l) {
+            highlightMap.put((String) o[0], (String) o[1]);
+        }
+        return highlightMap;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> suggestSearchTerms(String search, int limit) {
+        List<String> suggestionList = new ArrayList<>();
+        if (Strings.isNullOrEmpty(search)) {
+            return suggestionList;
+        }
+
+        // Complete the last term with the most frequent words of the titles, found in their prefix index
+        String lastTerm = search.substring(search.lastIndexOf(' ') + 1).toLowerCase();
+        if (lastTerm.isEmpty() || !titleWordPopulated) {
+            return suggestionList;
+        }
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        List<Object> l = em.createNativeQuery("select w.word from V_TITLE_WORD w where w.word like :prefix order by w.ndoc desc, w.word")
+                .setParameter("prefix", escapeLike(lastTerm) + "%")
+                .setMaxResults(limit)
+                .getResultList();
+        for (Object o : l) {
+            suggestionList.add((String) o);
+        }
+        return suggestionList;
+    }
+
+    /**
+     * Escape the wildcards of a LIKE pattern.
+     *
+     * @param value Value
+     * @return Escaped value
+     */
+    private String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Build a tsquery from search terms.
+     * All the terms must match, a term starting with - is excluded and a term ending with * is a prefix.
+     * Only the words of the terms are kept, the query cannot be malformed.
+     *
+     * @param search Search terms
+     * @return Query for to_tsquery, null if there is no word to search
+     */
+    static String buildTsQuery(String search) {
+        if (Strings.isNullOrEmpty(search)) {
+            return null;
+        }
+
+        List<String> termList = new ArrayList<>();
+        for (String token : search.trim().split("\\s+")) {
+            List<String> wordList = new ArrayList<>();
+            Matcher matcher = WORD_PATTERN.matcher(token);
+            while (matcher.find()) {
+                wordList.add(matcher.group());
+            }
+            if (wordList.isEmpty()) {
+                continue;
+            }
+
+            String term = Joiner.on(" & ").join(wordList);
+            if (token.endsWith("*")) {
+                term += ":*";
+            }
+            if (token.startsWith("-")) {
+                term = "!(" + term + ")";
+            }
+            termList.add(term);
+        }
+        return termList.isEmpty() ? null : Joiner.on(" & ").join(termList);
+    }
+}
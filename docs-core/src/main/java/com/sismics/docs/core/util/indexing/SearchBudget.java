@@ -0,0 +1,149 @@
+package com.sismics.docs.core.util.indexing;
+
+import com.sismics.util.context.ThreadLocalContext;
+import jakarta.persistence.QueryTimeoutException;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
+import org.hibernate.Session;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Time budget of a search.
+ * Collection stops when the budget is exhausted or when the searching thread is interrupted,
+ * the hits collected so far are kept and the search is flagged as partial.
+ * A client disconnection doesn't interrupt the request thread, such a search runs until its budget is exhausted.
+ */
+class SearchBudget {
+    /**
+     * Number of hits collected between two checks of the clock.
+     */
+    private static final int CHECK_INTERVAL = 256;
+
+    /**
+     * Deadline in nanoseconds, Long.MAX_VALUE if unbounded.
+     */
+    private final long deadline;
+
+    /**
+     * True if a collection has been stopped.
+     */
+    private volatile boolean partial;
+
+    /**
+     * Start a search budget.
+     *
+     * @param timeout Budget in milliseconds, 0 or less if unbounded
+     */
+    SearchBudget(long timeout) {
+        deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns true if the search must stop.
+     *
+     * @return True if exhausted
+     */
+    boolean isExhausted() {
+        return Thread.currentThread().isInterrupted()
+                || deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * Returns true if a collection has been stopped by this budget.
+     *
+     * @return True if the hits are incomplete
+     */
+    boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * Returns the timeout of the remaining database queries.
+     * The database only supports timeouts in seconds, so at least one second is always allowed.
+     *
+     * @return Timeout in seconds, null if unbounded
+     */
+    Integer getQueryTimeout() {
+        if (deadline == Long.MAX_VALUE) {
+            return null;
+        }
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        return (int) Math.max(1, (remaining + 999) / 1000);
+    }
+
+    /**
+     * Run a database query of the search.
+     * A query cancelled by the database when the budget is exhausted returns the fallback
+     * and flags the search as partial. The query runs in a savepoint, so that the transaction
+     * is still usable after the cancellation.
+     *
+     * @param query Query, with the timeout of this budget
+     * @param fallback Result of a cancelled query
+     * @param <T> Result type
+     * @return Query result
+     */
+    <T> T runQuery(Supplier<T> query, T fallback) {
+        if (deadline == Long.MAX_VALUE) {
+            return query.get();
+        }
+
+        Session session = ThreadLocalContext.get().getEntityManager().unwrap(Session.class);
+        Savepoint savepoint = session.doReturningWork(Connection::setSavepoint);
+        T result;
+        try {
+            result = query.get();
+        } catch (QueryTimeoutException | org.hibernate.QueryTimeoutException e) {
+            session.doWork(connection -> connection.rollback(savepoint));
+            partial = true;
+            return fallback;
+        }
+        session.doWork(connection -> connection.releaseSavepoint(savepoint));
+        return result;
+    }
+
+    /**
+     * Wrap a collector to stop the collection when the budget is exhausted.
+     * The remaining segments are skipped, the wrapped collector keeps the hits collected so far.
+     *
+     * @param collector Collector
+     * @return Bounded collector
+     */
+    Collector wrap(Collector collector) {
+        return new FilterCollector(collector) {
+            @Override
+            public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+                checkBudget();
+                return new FilterLeafCollector(super.getLeafCollector(context)) {
+                    private int count;
+
+                    @Override
+                    public void collect(int doc) throws IOException {
+                        if (++count % CHECK_INTERVAL == 0) {
+                            checkBudget();
+                        }
+                        super.collect(doc);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Stop the collection of the current segment if the budget is exhausted.
+     */
+    private void checkBudget() {
+        if (isExhausted()) {
+            partial = true;
+            throw new CollectionTerminatedException();
+        }
+    }
+}
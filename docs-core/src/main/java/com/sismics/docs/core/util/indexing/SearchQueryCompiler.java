@@ -0,0 +1,169 @@
+package com.sismics.docs.core.util.indexing;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Compiler of user search queries on several fields.
+ * The query is parsed and analyzed once on a placeholder field, then copied to each field with its boost.
+ * All the terms must match in the same field, as with one parser per field.
+ * Compiled queries are immutable and cached, the compiler is thread-safe.
+ */
+class SearchQueryCompiler {
+    /**
+     * Placeholder field of the parsed query.
+     */
+    private static final String TEMPLATE_FIELD = "";
+
+    /**
+     * Analyzer.
+     */
+    private final Analyzer analyzer;
+
+    /**
+     * Boost by field, in the order of the clauses.
+     */
+    private final Map<String, Float> fieldBoostMap;
+
+    /**
+     * Compiled queries by user query.
+     */
+    private final Cache<String, Query> queryCache;
+
+    /**
+     * Create a query compiler.
+     *
+     * @param analyzer Analyzer, shared by all the fields
+     * @param fieldBoostMap Boost by field
+     * @param cacheSize Maximum number of cached queries
+     */
+    SearchQueryCompiler(Analyzer analyzer, Map<String, Float> fieldBoostMap, int cacheSize) {
+        this.analyzer = analyzer;
+        this.fieldBoostMap = Collections.unmodifiableMap(new LinkedHashMap<>(fieldBoostMap));
+        queryCache = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    /**
+     * Compile a user query, matching documents in which one of the fields matches the whole query.
+     *
+     * @param text User query, in the simple query parser syntax
+     * @return Query
+     */
+    Query compile(String text) {
+        try {
+            return queryCache.get(text, () -> build(text));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Build the multi-field query.
+     *
+     * @param text User query
+     * @return Query
+     */
+    private Query build(String text) {
+        Query template = buildParser(TEMPLATE_FIELD).parse(text);
+        if (template instanceof MatchNoDocsQuery) {
+            return template;
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (Map.Entry<String, Float> entry : fieldBoostMap.entrySet()) {
+            Query fieldQuery = copy(template, entry.getKey());
+            if (fieldQuery == null) {
+                // Not a query built by the simple parser, parse it again on this field
+                fieldQuery = buildParser(entry.getKey()).parse(text);
+            }
+            if (entry.getValue() != 1f) {
+                fieldQuery = new BoostQuery(fieldQuery, entry.getValue());
+            }
+            query.add(fieldQuery, BooleanClause.Occur.SHOULD);
+        }
+        return query.build();
+    }
+
+    /**
+     * Build a query parser on a field.
+     *
+     * @param field Field
+     * @return Query parser
+     */
+    private SimpleQueryParser buildParser(String field) {
+        SimpleQueryParser simpleQueryParser = new SimpleQueryParser(analyzer, field);
+        simpleQueryParser.setDefaultOperator(BooleanClause.Occur.MUST); // AND all the terms
+        return simpleQueryParser;
+    }
+
+    /**
+     * Copy a parsed query to another field.
+     *
+     * @param query Query on the placeholder field
+     * @param field Target field
+     * @return Query on the target field, null if the query cannot be copied
+     */
+    private static Query copy(Query query, String field) {
+        if (query instanceof TermQuery) {
+            return new TermQuery(new Term(field, ((TermQuery) query).getTerm().bytes()));
+        }
+        if (query instanceof BooleanQuery) {
+            BooleanQuery booleanQuery = (BooleanQuery) query;
+            BooleanQuery.Builder builder = new BooleanQuery.Builder()
+                    .setMinimumNumberShouldMatch(booleanQuery.getMinimumNumberShouldMatch());
+            for (BooleanClause clause : booleanQuery.clauses()) {
+                Query clauseQuery = copy(clause.getQuery(), field);
+                if (clauseQuery == null) {
+                    return null;
+                }
+                builder.add(clauseQuery, clause.getOccur());
+            }
+            return builder.build();
+        }
+        if (query instanceof BoostQuery) {
+            Query boostedQuery = copy(((BoostQuery) query).getQuery(), field);
+            return boostedQuery == null ? null : new BoostQuery(boostedQuery, ((BoostQuery) query).getBoost());
+        }
+        if (query instanceof PrefixQuery) {
+            return new PrefixQuery(new Term(field, ((PrefixQuery) query).getPrefix().bytes()));
+        }
+        if (query instanceof FuzzyQuery) {
+            FuzzyQuery fuzzyQuery = (FuzzyQuery) query;
+            return new FuzzyQuery(new Term(field, fuzzyQuery.getTerm().bytes()), fuzzyQuery.getMaxEdits(),
+                    fuzzyQuery.getPrefixLength(), FuzzyQuery.defaultMaxExpansions, fuzzyQuery.getTranspositions());
+        }
+        if (query instanceof PhraseQuery) {
+            PhraseQuery phraseQuery = (PhraseQuery) query;
+            PhraseQuery.Builder builder = new PhraseQuery.Builder().setSlop(phraseQuery.getSlop());
+            Term[] terms = phraseQuery.getTerms();
+            int[] positions = phraseQuery.getPositions();
+            for (int i = 0; i < terms.length; i++) {
+                builder.add(new Term(field, terms[i].bytes()), positions[i]);
+            }
+            return builder.build();
+        }
+        if (query instanceof MatchNoDocsQuery) {
+            return query;
+        }
+        return null;
+    }
+}
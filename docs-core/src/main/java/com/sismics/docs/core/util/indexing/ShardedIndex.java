@@ -0,0 +1,927 @@
+package com.sismics.docs.core.util.indexing;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.NativeFSLockFactory;
+import org.apache.lucene.store.NoLockFactory;
+import org.apache.lucene.util.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Lucene index partitioned in shards by document creation period.
+ * Each shard has its own directory and index writer, searchers read all the shards through a multi-reader.
+ * The searchers are refreshed in the background to see the uncommitted writes.
+ * Without partitioning, a single shard is stored at the root of the index directory.
+ */
+class ShardedIndex {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(ShardedIndex.class);
+
+    /**
+     * Period of the shards.
+     */
+    enum Period {
+        NONE,
+        YEAR,
+        MONTH
+    }
+
+    /**
+     * Storage of the shards.
+     */
+    enum Storage {
+        RAM,
+        FILE,
+        MMAP
+    }
+
+    /**
+     * Commit user data key holding the index version.
+     */
+    private static final String INDEX_VERSION_KEY = "docs.index.version";
+
+    /**
+     * Names of yearly shards.
+     */
+    private static final Pattern YEAR_PATTERN = Pattern.compile("\\d{4}");
+
+    /**
+     * Names of monthly shards.
+     */
+    private static final Pattern MONTH_PATTERN = Pattern.compile("\\d{4}-\\d{2}");
+
+    /**
+     * Storage.
+     */
+    private final Storage storage;
+
+    /**
+     * Root directory of the index, null in RAM.
+     */
+    private final Path rootPath;
+
+    /**
+     * Period of the shards.
+     */
+    private final Period period;
+
+    /**
+     * Current version of the indexed fields.
+     */
+    private final String version;
+
+    /**
+     * Analyzer of the indexed texts.
+     */
+    private final Analyzer analyzer;
+
+    /**
+     * Shards by name, in the order of their periods.
+     */
+    private final Map<String, Shard> shardMap = new ConcurrentSkipListMap<>();
+
+    /**
+     * Searcher manager over all the shards.
+     */
+    private ShardSearcherManager searcherManager;
+
+    /**
+     * Directory for temporary files.
+     */
+    private Directory tempDirectory;
+
+    /**
+     * Lock of the writes not visible to the searchers.
+     */
+    private final Object pendingWriteLock = new Object();
+
+    /**
+     * Shard written since the last refresh, by document or file ID.
+     */
+    private Map<String, Shard> pendingShardMap = new HashMap<>();
+
+    /**
+     * Shard written before the running refresh, by document or file ID.
+     */
+    private Map<String, Shard> refreshingShardMap = new HashMap<>();
+
+    /**
+     * Maximum time in milliseconds before the writes are visible to the searchers.
+     */
+    private final long refreshInterval;
+
+    /**
+     * Generation of the last write.
+     */
+    private final AtomicLong writeGeneration = new AtomicLong();
+
+    /**
+     * Generation of the last write visible to the searchers.
+     */
+    private volatile long searchingGeneration;
+
+    /**
+     * Generation of the last write seen by the running refresh.
+     */
+    private long refreshingGeneration;
+
+    /**
+     * Thread refreshing the searchers.
+     */
+    private RefreshThread refreshThread;
+
+    ShardedIndex(Storage storage, Path rootPath, Period period, String version, Analyzer analyzer, long refreshInterval) {
+        this.storage = storage;
+        this.rootPath = rootPath;
+        this.period = period;
+        this.version = version;
+        this.analyzer = analyzer;
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * Open the existing shards.
+     * The layout of the index on disk must match the period of the shards.
+     *
+     * @throws IOException e
+     */
+    void open() throws IOException {
+        tempDirectory = storage == Storage.RAM ? new ByteBuffersDirectory() : new NIOFSDirectory(rootPath, NoLockFactory.INSTANCE);
+        if (period == Period.NONE) {
+            if (storage != Storage.RAM && !listShardNames().isEmpty()) {
+                throw new IOException("The index is partitioned, but partitioning is disabled");
+            }
+            openShard(IndexPartition.ALL.getName());
+        } else if (storage != Storage.RAM) {
+            if (DirectoryReader.indexExists(tempDirectory)) {
+                throw new IOException("The index is not partitioned, but partitioning is enabled");
+            }
+            Pattern pattern = period == Period.YEAR ? YEAR_PATTERN : MONTH_PATTERN;
+            for (String name : listShardNames()) {
+                if (!pattern.matcher(name).matches()) {
+                    throw new IOException("The index shard " + name + " doesn't match the partitioning period " + period);
+                }
+                openShard(name);
+            }
+        }
+        searcherManager = new ShardSearcherManager();
+        searcherManager.addListener(new ReferenceManager.RefreshListener() {
+            @Override
+            public void beforeRefresh() {
+                // The writes done so far are visible after this refresh
+                synchronized (pendingWriteLock) {
+                    refreshingShardMap = pendingShardMap;
+                    pendingShardMap = new HashMap<>();
+                    refreshingGeneration = writeGeneration.get();
+                }
+            }
+
+            @Override
+            public void afterRefresh(boolean didRefresh) {
+                synchronized (pendingWriteLock) {
+                    refreshingShardMap = new HashMap<>();
+                    searchingGeneration = refreshingGeneration;
+                }
+            }
+        });
+        refreshThread = new RefreshThread();
+        refreshThread.start();
+    }
+
+    /**
+     * Returns the names of the shard directories.
+     *
+     * @return Shard names
+     * @throws IOException e
+     */
+    private Set<String> listShardNames() throws IOException {
+        Set<String> nameSet = new TreeSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(rootPath, Files::isDirectory)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (YEAR_PATTERN.matcher(name).matches() || MONTH_PATTERN.matcher(name).matches()) {
+                    nameSet.add(name);
+                }
+            }
+        }
+        return nameSet;
+    }
+
+    /**
+     * Open a shard, creating it if needed.
+     *
+     * @param name Shard name
+     * @return Shard
+     * @throws IOException e
+     */
+    private Shard openShard(String name) throws IOException {
+        Directory directory;
+        if (storage == Storage.RAM) {
+            directory = new ByteBuffersDirectory();
+        } else {
+            Path path = period == Period.NONE ? rootPath : Files.createDirectories(rootPath.resolve(name));
+            directory = storage == Storage.MMAP ?
+                    new MMapDirectory(path, NativeFSLockFactory.INSTANCE) : new NIOFSDirectory(path, NoLockFactory.INSTANCE);
+        }
+
+        // Opening the writer and the readers verifies the checksum of the last commit and the segments structure
+        IndexWriter indexWriter = null;
+        try {
+            boolean indexExists = DirectoryReader.indexExists(directory);
+            IndexWriterConfig config = new IndexWriterConfig(analyzer);
+            config.setCommitOnClose(true);
+            config.setMergeScheduler(new ConcurrentMergeScheduler());
+            indexWriter = new IndexWriter(directory, config);
+            Shard shard = new Shard(name, directory, indexWriter);
+            if (indexExists) {
+                shard.outdated = !version.equals(shard.getCommitUserData(INDEX_VERSION_KEY));
+            } else {
+                shard.reset();
+            }
+            shardMap.put(name, shard);
+            return shard;
+        } catch (IOException e) {
+            IOUtils.closeWhileHandlingException(indexWriter, directory);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns true if partitioning is enabled.
+     *
+     * @return True if partitioned
+     */
+    boolean isPartitioned() {
+        return period != Period.NONE;
+    }
+
+    /**
+     * Returns true if a shard has been created with an older version of the indexed fields.
+     *
+     * @return True if outdated
+     */
+    boolean isOutdated() {
+        for (Shard shard : shardMap.values()) {
+            if (shard.outdated) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the shard holding the documents created at a date, creating it if needed.
+     *
+     * @param createDate Creation date
+     * @return Shard
+     * @throws IOException e
+     */
+    Shard getShard(Date createDate) throws IOException {
+        return getShard(getShardName(createDate));
+    }
+
+    /**
+     * Returns a shard by name, creating it if needed.
+     *
+     * @param name Shard name
+     * @return Shard
+     * @throws IOException e
+     */
+    synchronized Shard getShard(String name) throws IOException {
+        Shard shard = shardMap.get(name);
+        if (shard == null) {
+            shard = openShard(name);
+        }
+        return shard;
+    }
+
+    /**
+     * Returns all the shards, in the order of their periods.
+     *
+     * @return Shards
+     */
+    Collection<Shard> getShards() {
+        return shardMap.values();
+    }
+
+    /**
+     * Returns the name of the shard holding the documents created at a date.
+     *
+     * @param createDate Creation date
+     * @return Shard name
+     */
+    private String getShardName(Date createDate) {
+        if (period == Period.NONE) {
+            return IndexPartition.ALL.getName();
+        }
+        LocalDate date = createDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        return date.format(DateTimeFormatter.ofPattern(period == Period.YEAR ? "yyyy" : "yyyy-MM"));
+    }
+
+    /**
+     * Returns the partition of a shard.
+     *
+     * @param name Shard name
+     * @return Partition
+     */
+    private IndexPartition getPartition(String name) {
+        if (period == Period.NONE) {
+            return IndexPartition.ALL;
+        }
+        LocalDate start = period == Period.YEAR ?
+                LocalDate.of(Integer.parseInt(name), 1, 1) : YearMonth.parse(name).atDay(1);
+        LocalDate end = period == Period.YEAR ? start.plusYears(1) : start.plusMonths(1);
+        return new IndexPartition(name, toDate(start), toDate(end));
+    }
+
+    /**
+     * Returns the partitions of the index.
+     *
+     * @param createMonthSet Months in which the documents and orphan files have been created
+     * @return Partitions, including the existing shards, in the order of their periods
+     */
+    List<IndexPartition> getPartitions(Set<YearMonth> createMonthSet) {
+        Set<String> nameSet = new TreeSet<>(shardMap.keySet());
+        if (period != Period.NONE) {
+            for (YearMonth month : createMonthSet) {
+                nameSet.add(getShardName(toDate(month.atDay(1))));
+            }
+        }
+        List<IndexPartition> partitionList = new ArrayList<>();
+        for (String name : nameSet) {
+            partitionList.add(getPartition(name));
+        }
+        return partitionList;
+    }
+
+    /**
+     * Convert a local date to a date.
+     *
+     * @param date Local date
+     * @return Date at the start of the day
+     */
+    private static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * Returns the searcher manager over all the shards.
+     *
+     * @return Searcher manager
+     */
+    ReferenceManager<IndexSearcher> getSearcherManager() {
+        return searcherManager;
+    }
+
+    /**
+     * Acquire a searcher on the shards which may hold documents created between two dates.
+     * The writes done before are visible, unless the refresh takes longer than the refresh interval.
+     * The searcher must be released with the searcher manager after use.
+     *
+     * @param minDate Minimum creation date, inclusive. Null if unbounded
+     * @param maxDate Maximum creation date, inclusive. Null if unbounded
+     * @return Index searcher
+     * @throws IOException e
+     */
+    IndexSearcher acquireSearcher(Date minDate, Date maxDate) throws IOException {
+        // The searchers are refreshed in the background, the concurrent searches share the same refresh
+        waitForLatestWrites();
+        IndexSearcher searcher = searcherManager.acquire();
+        if (period == Period.NONE || minDate == null && maxDate == null) {
+            return searcher;
+        }
+
+        // Skip the shards which cannot match, the remaining readers are referenced by the new searcher
+        try {
+            ShardedReader reader = (ShardedReader) searcher.getIndexReader();
+            List<String> nameList = new ArrayList<>();
+            List<DirectoryReader> readerList = new ArrayList<>();
+            for (int i = 0; i < reader.shardNameList.size(); i++) {
+                if (getPartition(reader.shardNameList.get(i)).overlaps(minDate, maxDate)) {
+                    nameList.add(reader.shardNameList.get(i));
+                    readerList.add(reader.shardReaderList.get(i));
+                }
+            }
+            return new IndexSearcher(new ShardedReader(nameList, readerList, reader.version));
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Returns the version of the shards read by a searcher.
+     * The version changes each time a shard is modified.
+     *
+     * @param searcher Searcher from this index
+     * @return Version
+     */
+    long getVersion(IndexSearcher searcher) {
+        return ((ShardedReader) searcher.getIndexReader()).version;
+    }
+
+    /**
+     * Add a document or a file to a shard, with all its Lucene documents.
+     *
+     * @param id Document or file ID
+     * @param shard Shard
+     * @param luceneDocumentList Lucene documents
+     * @throws IOException e
+     */
+    void add(String id, Shard shard, List<Document> luceneDocumentList) throws IOException {
+        shard.indexWriter.addDocuments(luceneDocumentList);
+        recordWrite(id, shard);
+    }
+
+    /**
+     * Replace a document or a file in a shard, with all its Lucene documents.
+     * It is deleted from the other shards holding it, the shards which don't hold it are not modified.
+     *
+     * @param id Document or file ID
+     * @param shard Shard
+     * @param luceneDocumentList Lucene documents
+     * @throws IOException e
+     */
+    void update(String id, Shard shard, List<Document> luceneDocumentList) throws IOException {
+        Term term = new Term("id", id);
+        if (isPartitioned()) {
+            for (Shard otherShard : getShardsHolding(id)) {
+                if (otherShard != shard) {
+                    otherShard.indexWriter.deleteDocuments(term);
+                }
+            }
+        }
+        shard.indexWriter.updateDocuments(term, luceneDocumentList);
+        recordWrite(id, shard);
+    }
+
+    /**
+     * Delete a document or a file from the shards holding it.
+     * Without partitioning, it is deleted from the only shard without looking for it.
+     *
+     * @param id Document or file ID
+     * @throws IOException e
+     */
+    void delete(String id) throws IOException {
+        Term term = new Term("id", id);
+        for (Shard shard : isPartitioned() ? getShardsHolding(id) : shardMap.values()) {
+            shard.indexWriter.deleteDocuments(term);
+        }
+        writeGeneration.incrementAndGet();
+    }
+
+    /**
+     * Returns true if a document or file is in another shard than the given one.
+     *
+     * @param id Document or file ID
+     * @param shard Shard
+     * @return True if found in another shard
+     * @throws IOException e
+     */
+    boolean isInOtherShard(String id, Shard shard) throws IOException {
+        if (!isPartitioned()) {
+            return false;
+        }
+        for (Shard holdingShard : getShardsHolding(id)) {
+            if (holdingShard != shard) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the shards holding a document or a file.
+     * The current searcher is used without refreshing it, the writes it doesn't see yet are tracked apart.
+     *
+     * @param id Document or file ID
+     * @return Shards
+     * @throws IOException e
+     */
+    private Set<Shard> getShardsHolding(String id) throws IOException {
+        Set<Shard> shardSet = new HashSet<>();
+        synchronized (pendingWriteLock) {
+            if (pendingShardMap.containsKey(id)) {
+                shardSet.add(pendingShardMap.get(id));
+            }
+            if (refreshingShardMap.containsKey(id)) {
+                shardSet.add(refreshingShardMap.get(id));
+            }
+        }
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            ShardedReader reader = (ShardedReader) searcher.getIndexReader();
+            for (int i = 0; i < reader.shardNameList.size(); i++) {
+                if (new IndexSearcher(reader.shardReaderList.get(i)).count(new TermQuery(new Term("id", id))) > 0) {
+                    shardSet.add(shardMap.get(reader.shardNameList.get(i)));
+                }
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+        return shardSet;
+    }
+
+    /**
+     * Delete all the documents and files of a shard.
+     *
+     * @param shard Shard
+     * @throws IOException e
+     */
+    void clear(Shard shard) throws IOException {
+        shard.indexWriter.deleteAll();
+        writeGeneration.incrementAndGet();
+    }
+
+    /**
+     * Record the shard written for a document or a file, until the searchers see it.
+     * Only needed to find the shards holding it when the index is partitioned.
+     *
+     * @param id Document or file ID
+     * @param shard Shard
+     */
+    private void recordWrite(String id, Shard shard) {
+        if (isPartitioned()) {
+            synchronized (pendingWriteLock) {
+                pendingShardMap.put(id, shard);
+            }
+        }
+        writeGeneration.incrementAndGet();
+    }
+
+    /**
+     * Wait until the searchers see the writes done so far, at most the refresh interval.
+     */
+    private void waitForLatestWrites() {
+        long generation = writeGeneration.get();
+        if (searchingGeneration >= generation) {
+            return;
+        }
+
+        long deadline = System.currentTimeMillis() + refreshInterval;
+        synchronized (refreshThread) {
+            refreshThread.waitingGeneration = Math.max(refreshThread.waitingGeneration, generation);
+            refreshThread.notifyAll();
+            try {
+                for (long remaining = refreshInterval; searchingGeneration < generation && remaining > 0;
+                     remaining = deadline - System.currentTimeMillis()) {
+                    refreshThread.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the directory for temporary files.
+     *
+     * @return Directory
+     */
+    Directory getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * Returns true if a shard has uncommitted changes.
+     *
+     * @return True if there are uncommitted changes
+     */
+    boolean hasUncommittedChanges() {
+        for (Shard shard : shardMap.values()) {
+            if (shard.indexWriter.hasUncommittedChanges()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Commit all the shards.
+     *
+     * @throws IOException e
+     */
+    void commit() throws IOException {
+        for (Shard shard : shardMap.values()) {
+            shard.indexWriter.commit();
+        }
+    }
+
+    /**
+     * Close the searchers and the shards.
+     */
+    void close() {
+        if (refreshThread != null) {
+            refreshThread.close();
+        }
+        if (searcherManager != null) {
+            IOUtils.closeWhileHandlingException(searcherManager);
+        }
+        for (Shard shard : shardMap.values()) {
+            IOUtils.closeWhileHandlingException(shard.indexWriter, shard.directory);
+        }
+        IOUtils.closeWhileHandlingException(tempDirectory);
+    }
+
+    /**
+     * Shard of the index.
+     */
+    class Shard {
+        /**
+         * Name.
+         */
+        private final String name;
+
+        /**
+         * Directory.
+         */
+        private final Directory directory;
+
+        /**
+         * Index writer.
+         */
+        private final IndexWriter indexWriter;
+
+        /**
+         * True if the shard has been created with an older version of the indexed fields.
+         */
+        private volatile boolean outdated;
+
+        Shard(String name, Directory directory, IndexWriter indexWriter) {
+            this.name = name;
+            this.directory = directory;
+            this.indexWriter = indexWriter;
+        }
+
+        IndexWriter getIndexWriter() {
+            return indexWriter;
+        }
+
+        /**
+         * Returns a value of the last commit user data.
+         *
+         * @param key Key
+         * @return Value
+         */
+        String getCommitUserData(String key) {
+            for (Map.Entry<String, String> entry : indexWriter.getLiveCommitData()) {
+                if (entry.getKey().equals(key)) {
+                    return entry.getValue();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Set a value of the user data saved on the next commit.
+         *
+         * @param key Key
+         * @param value Value, null to remove the key
+         */
+        synchronized void setCommitUserData(String key, String value) {
+            Map<String, String> commitUserData = new HashMap<>();
+            for (Map.Entry<String, String> entry : indexWriter.getLiveCommitData()) {
+                commitUserData.put(entry.getKey(), entry.getValue());
+            }
+            if (value == null) {
+                commitUserData.remove(key);
+            } else {
+                commitUserData.put(key, value);
+            }
+            indexWriter.setLiveCommitData(commitUserData.entrySet());
+        }
+
+        /**
+         * Mark the shard as using the current version of the indexed fields on the next commit.
+         * Any other user data is discarded.
+         */
+        synchronized void reset() {
+            Map<String, String> commitUserData = new HashMap<>();
+            commitUserData.put(INDEX_VERSION_KEY, version);
+            indexWriter.setLiveCommitData(commitUserData.entrySet());
+            outdated = false;
+        }
+    }
+
+    /**
+     * Thread refreshing the searchers every refresh interval,
+     * or as soon as possible when a search waits for the latest writes.
+     * Refreshing on each search would reopen the readers after each write.
+     */
+    private class RefreshThread extends Thread {
+        /**
+         * Minimum time in milliseconds between two refreshes, the searches arriving meanwhile share the next one.
+         */
+        private static final long MIN_REFRESH_INTERVAL = 25;
+
+        /**
+         * Generation of the latest writes waited for by a search.
+         */
+        private long waitingGeneration;
+
+        /**
+         * True when closed.
+         */
+        private boolean closed;
+
+        RefreshThread() {
+            super("lucene-refresh");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long lastRefreshTime = System.currentTimeMillis();
+            while (true) {
+                synchronized (this) {
+                    try {
+                        while (!closed) {
+                            long interval = waitingGeneration > searchingGeneration ? MIN_REFRESH_INTERVAL : refreshInterval;
+                            long sleepTime = lastRefreshTime + interval - System.currentTimeMillis();
+                            if (sleepTime <= 0) {
+                                break;
+                            }
+                            wait(sleepTime);
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (closed) {
+                        return;
+                    }
+                }
+
+                lastRefreshTime = System.currentTimeMillis();
+                try {
+                    // Reopen the readers only if the index writers have changed since the last refresh
+                    searcherManager.maybeRefreshBlocking();
+                } catch (Exception e) {
+                    log.error("Error refreshing the index searchers", e);
+                }
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Stop refreshing the searchers.
+         */
+        void close() {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reader over shards.
+     */
+    private static class ShardedReader extends MultiReader {
+        /**
+         * Names of the shards.
+         */
+        private final List<String> shardNameList;
+
+        /**
+         * Readers of the shards, in the same order.
+         */
+        private final List<DirectoryReader> shardReaderList;
+
+        /**
+         * Version of the shards.
+         */
+        private final long version;
+
+        ShardedReader(List<String> shardNameList, List<DirectoryReader> shardReaderList, long version) throws IOException {
+            // The shard readers are referenced, not closed with this reader
+            super(shardReaderList.toArray(new IndexReader[0]), false);
+            this.shardNameList = shardNameList;
+            this.shardReaderList = shardReaderList;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Near-real-time searcher manager over all the shards.
+     * Only the readers of the modified shards are reopened on refresh.
+     */
+    private class ShardSearcherManager extends ReferenceManager<IndexSearcher> {
+        /**
+         * Version of the last opened searcher.
+         */
+        private long version;
+
+        ShardSearcherManager() throws IOException {
+            current = openSearcher(null);
+        }
+
+        @Override
+        protected void decRef(IndexSearcher reference) throws IOException {
+            reference.getIndexReader().decRef();
+        }
+
+        @Override
+        protected IndexSearcher refreshIfNeeded(IndexSearcher referenceToRefresh) throws IOException {
+            return openSearcher((ShardedReader) referenceToRefresh.getIndexReader());
+        }
+
+        @Override
+        protected boolean tryIncRef(IndexSearcher reference) {
+            return reference.getIndexReader().tryIncRef();
+        }
+
+        @Override
+        protected int getRefCount(IndexSearcher reference) {
+            return reference.getIndexReader().getRefCount();
+        }
+
+        /**
+         * Open a searcher on the current state of the shards.
+         *
+         * @param previous Previous reader, null if none
+         * @return Searcher, null if no shard has changed
+         * @throws IOException e
+         */
+        private IndexSearcher openSearcher(ShardedReader previous) throws IOException {
+            List<String> nameList = new ArrayList<>();
+            List<DirectoryReader> readerList = new ArrayList<>();
+            boolean changed = previous == null;
+            try {
+                for (Shard shard : shardMap.values()) {
+                    int index = previous == null ? -1 : previous.shardNameList.indexOf(shard.name);
+                    DirectoryReader reader;
+                    if (index < 0) {
+                        reader = DirectoryReader.open(shard.indexWriter);
+                        changed = true;
+                    } else {
+                        DirectoryReader previousReader = previous.shardReaderList.get(index);
+                        reader = DirectoryReader.openIfChanged(previousReader, shard.indexWriter);
+                        if (reader == null) {
+                            previousReader.incRef();
+                            reader = previousReader;
+                        } else {
+                            changed = true;
+                        }
+                    }
+                    nameList.add(shard.name);
+                    readerList.add(reader);
+                }
+
+                if (!changed) {
+                    return null;
+                }
+                return new IndexSearcher(new ShardedReader(nameList, readerList, ++version));
+            } finally {
+                // The new reader holds its own references
+                for (DirectoryReader reader : readerList) {
+                    reader.decRef();
+                }
+            }
+        }
+    }
+}
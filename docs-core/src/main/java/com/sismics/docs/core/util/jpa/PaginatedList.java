@@ -27,6 +27,11 @@ public class PaginatedList<T> {
      * List of records of the current page.
      */
     private List<T> resultList;
+
+    /**
+     * True if the search has been stopped before completion, the records are incomplete.
+     */
+    private boolean partial;
     
     /**
      * Constructor of PaginatedList.
@@ -75,6 +80,24 @@ public class PaginatedList<T> {
         this.resultList = resultList;
     }
 
+    /**
+     * Getter of partial.
+     *
+     * @return partial
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * Setter of partial.
+     *
+     * @param partial partial
+     */
+    public void setPartial(boolean partial) {
+        this.partial = partial;
+    }
+
     /**
      * Getter of limit.
      *
@@ -59,7 +59,7 @@ public class PaginatedLists {
         sb.append(queryParam.getQueryString());
         sb.append(") as t1");
 
-        QueryParam countQueryParam = new QueryParam(sb.toString(), queryParam.getParameterMap());
+        QueryParam countQueryParam = new QueryParam(sb.toString(), queryParam.getParameterMap(), queryParam.getTimeout());
         
         Query q = QueryUtil.getNativeQuery(countQueryParam);
         
@@ -19,6 +19,11 @@ public class QueryParam {
      */
     private Map<String, Object> parameterMap;
 
+    /**
+     * Query timeout in seconds, null if unbounded.
+     */
+    private Integer timeout;
+
     /**
      * Constructor of QueryParam.
      * 
@@ -26,8 +31,20 @@ public class QueryParam {
      * @param parameterMap Query parameters
      */
     public QueryParam(String queryString, Map<String, Object> parameterMap) {
+        this(queryString, parameterMap, null);
+    }
+
+    /**
+     * Constructor of QueryParam.
+     *
+     * @param queryString Query string
+     * @param parameterMap Query parameters
+     * @param timeout Query timeout in seconds, null if unbounded
+     */
+    public QueryParam(String queryString, Map<String, Object> parameterMap, Integer timeout) {
         this.queryString = queryString;
         this.parameterMap = parameterMap;
+        this.timeout = timeout;
     }
 
     /**
@@ -47,5 +64,14 @@ public class QueryParam {
     public Map<String, Object> getParameterMap() {
         return parameterMap;
     }
+
+    /**
+     * Getter of timeout.
+     *
+     * @return timeout
+     */
+    public Integer getTimeout() {
+        return timeout;
+    }
     
 }
@@ -6,6 +6,7 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
 
 import com.sismics.util.context.ThreadLocalContext;
+import org.hibernate.jpa.HibernateHints;
 
 /**
  * Query utilities.
@@ -26,6 +27,9 @@ public class QueryUtil {
         for (Entry<String, Object> entry : queryParam.getParameterMap().entrySet()) {
             query.setParameter(entry.getKey(), entry.getValue());
         }
+        if (queryParam.getTimeout() != null) {
+            query.setHint(HibernateHints.HINT_TIMEOUT, queryParam.getTimeout());
+        }
         return query;
     }
     
@@ -44,6 +48,6 @@ public class QueryUtil {
             sb.append(sortCriteria.isAsc() ? " asc" : " desc");
         }
         
-        return new QueryParam(sb.toString(), queryParam.getParameterMap());
+        return new QueryParam(sb.toString(), queryParam.getParameterMap(), queryParam.getTimeout());
     }
 }
@@ -5,6 +5,8 @@ import com.google.common.reflect.ClassPath;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.Modifier;
 import java.util.List;
 
@@ -18,7 +20,7 @@ public class ClasspathScanner<T> {
     private static final Logger log = LoggerFactory.getLogger(ClasspathScanner.class);
 
     /**
-     * Find classes assignable from another.
+     * Find classes assignable from another, sorted by priority.
      *
      * @param topClass Top class or interface
      * @param pkg In this package
@@ -50,8 +52,10 @@ public class ClasspathScanner<T> {
     }
 
     /**
-     * Classpath scanning priority.
+     * Classpath scanning priority, the classes with the lowest value come first.
+     * Retained at runtime to be honored by the scanner, the classes were returned in classpath order before.
      */
+    @Retention(RetentionPolicy.RUNTIME)
     public @interface Priority {
         int value() default Integer.MAX_VALUE;
     }
@@ -1,6 +1,11 @@
 package com.sismics.util;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
 /**
  * <a url=http://www.jdeskew.com/>JDeskew</a>
@@ -21,6 +26,15 @@ public class ImageDeskew {
         public double d;
     }
 
+    // maximum size of the longest side of the image analyzed by the fast mode
+    private static final int FAST_SIZE = 1200;
+    // luminance under which a pixel is black
+    private static final int LUMINANCE_CUTOFF = 140;
+    // number of lines averaged to compute the skew angle
+    private static final int TOP_COUNT = 20;
+    // minimum number of points processed by a thread in the fast mode
+    private static final int MIN_POINTS_PER_TASK = 10000;
+
     // the source image
     private BufferedImage cImage;
     // the range of angles to search for lines
@@ -65,6 +79,185 @@ public class ImageDeskew {
         }
     }
 
+    /**
+     * Calculate the skew angle of the image, faster than getSkewAngle().
+     * The Hough transformation runs on a downsampled binarized copy of the image,
+     * the angle is searched coarsely on the whole range, then finely around the coarse angle,
+     * and the points are accumulated in parallel.
+     *
+     * @return Skew angle in degrees, 0 if there are not enough lines in the image
+     */
+    public double getSkewAngleFast() {
+        int scale = Math.max((Math.max(cImage.getWidth(), cImage.getHeight()) + FAST_SIZE - 1) / FAST_SIZE, 1);
+        int width = (cImage.getWidth() + scale - 1) / scale;
+        int height = (cImage.getHeight() + scale - 1) / scale;
+
+        // Only lower edges in the middle half of the image are considered, as in getSkewAngle()
+        int hMin = height / 4;
+        int hMax = height * 3 / 4;
+        boolean[] black = binarize(scale, width, hMin, hMax + 1);
+        int[] points = new int[1024];
+        int pointCount = 0;
+        for (int y = hMin; y < hMax; y++) {
+            int row = (y - hMin) * width;
+            for (int x = 1; x < width - 2; x++) {
+                if (black[row + x] && !black[row + width + x]) {
+                    if (pointCount * 2 == points.length) {
+                        points = Arrays.copyOf(points, points.length * 2);
+                    }
+                    points[pointCount * 2] = x;
+                    points[pointCount * 2 + 1] = y;
+                    pointCount++;
+                }
+            }
+        }
+
+        // Coarse search with 1 degree steps, then fine search with 0.05 degree steps
+        double coarseAngle = searchAngle(points, pointCount, width, height, this.cAlphaStart, 1.0, 41);
+        if (Double.isNaN(coarseAngle)) {
+            return 0.0d;
+        }
+        double fineAngle = searchAngle(points, pointCount, width, height, coarseAngle - 1.0, 0.05, 41);
+        return Double.isNaN(fineAngle) ? coarseAngle : fineAngle;
+    }
+
+    /**
+     * Downsample and binarize a band of the image.
+     * A downsampled pixel is black if one of its source pixels is black, so that thin strokes are kept.
+     * Rows are read in bulk, without converting each pixel through the color model.
+     *
+     * @param scale Downsampling factor
+     * @param width Downsampled width
+     * @param yStart First downsampled row, inclusive
+     * @param yEnd Last downsampled row, inclusive
+     * @return Black pixels of the band, row by row
+     */
+    private boolean[] binarize(int scale, int width, int yStart, int yEnd) {
+        int sourceWidth = cImage.getWidth();
+        int sourceHeight = cImage.getHeight();
+        boolean[] black = new boolean[(yEnd - yStart + 1) * width];
+        Raster raster = cImage.getRaster();
+        ColorModel colorModel = cImage.getColorModel();
+
+        // Black pixel values of byte images, computed once through the color model
+        boolean[] blackTable = null;
+        if (raster.getTransferType() == DataBuffer.TYPE_BYTE && raster.getNumDataElements() == 1) {
+            blackTable = new boolean[1 << colorModel.getPixelSize()];
+            for (int pixel = 0; pixel < blackTable.length; pixel++) {
+                blackTable[pixel] = isBlack(colorModel.getRGB(pixel));
+            }
+        }
+        boolean directRgb = cImage.getType() == BufferedImage.TYPE_INT_RGB || cImage.getType() == BufferedImage.TYPE_INT_ARGB;
+        byte[] byteRow = blackTable == null ? null : new byte[sourceWidth];
+        int[] intRow = blackTable == null ? new int[sourceWidth] : null;
+
+        for (int y = yStart; y <= yEnd; y++) {
+            int row = (y - yStart) * width;
+            for (int sourceY = y * scale; sourceY < Math.min((y + 1) * scale, sourceHeight); sourceY++) {
+                if (blackTable != null) {
+                    raster.getDataElements(0, sourceY, sourceWidth, 1, byteRow);
+                } else if (directRgb) {
+                    raster.getDataElements(0, sourceY, sourceWidth, 1, intRow);
+                } else {
+                    cImage.getRGB(0, sourceY, sourceWidth, 1, intRow, 0, sourceWidth);
+                }
+                for (int sourceX = 0; sourceX < sourceWidth; sourceX++) {
+                    if (blackTable != null ? blackTable[byteRow[sourceX] & 0xff] : isBlack(intRow[sourceX])) {
+                        black[row + sourceX / scale] = true;
+                    }
+                }
+            }
+        }
+        return black;
+    }
+
+    /**
+     * Returns true if a color is black, with the same luminance cutoff as ImageUtil.isBlack().
+     *
+     * @param rgb RGB color
+     * @return True if black
+     */
+    private static boolean isBlack(int rgb) {
+        return ((rgb >> 16) & 0xff) * 299 + ((rgb >> 8) & 0xff) * 587 + (rgb & 0xff) * 114 < LUMINANCE_CUTOFF * 1000;
+    }
+
+    /**
+     * Search the skew angle in a range with a Hough transformation.
+     *
+     * @param points Points, as x and y pairs
+     * @param pointCount Number of points
+     * @param width Width of the image
+     * @param height Height of the image
+     * @param alphaStart First angle in degrees
+     * @param alphaStep Angle step in degrees
+     * @param steps Number of angles
+     * @return Average angle of the lines with the most points, NaN if there are not enough lines
+     */
+    private static double searchAngle(int[] points, int pointCount, int width, int height,
+                                      double alphaStart, double alphaStep, int steps) {
+        double[] sinA = new double[steps];
+        double[] cosA = new double[steps];
+        for (int i = 0; i < steps; i++) {
+            double angle = (alphaStart + i * alphaStep) * Math.PI / 180.0;
+            sinA[i] = Math.sin(angle);
+            cosA[i] = Math.cos(angle);
+        }
+        double dMin = -width;
+        int dCount = 2 * (width + height);
+
+        // Each task accumulates a slice of the points in its own matrix, the matrices are then summed
+        int taskCount = Math.max(Math.min(Runtime.getRuntime().availableProcessors(), pointCount / MIN_POINTS_PER_TASK), 1);
+        int[] hMatrix = IntStream.range(0, taskCount).parallel()
+                .mapToObj(task -> {
+                    int[] matrix = new int[dCount * steps];
+                    int end = (int) ((long) pointCount * (task + 1) / taskCount);
+                    for (int i = (int) ((long) pointCount * task / taskCount); i < end; i++) {
+                        int x = points[i * 2];
+                        int y = points[i * 2 + 1];
+                        for (int alpha = 0; alpha < steps; alpha++) {
+                            int dIndex = (int) (y * cosA[alpha] - x * sinA[alpha] - dMin);
+                            if (dIndex >= 0 && dIndex < dCount) {
+                                matrix[dIndex * steps + alpha]++;
+                            }
+                        }
+                    }
+                    return matrix;
+                })
+                .reduce((matrix1, matrix2) -> {
+                    for (int i = 0; i < matrix1.length; i++) {
+                        matrix1[i] += matrix2[i];
+                    }
+                    return matrix1;
+                })
+                .orElseThrow();
+
+        // Top lines, sorted by decreasing count
+        int[] topCount = new int[TOP_COUNT];
+        int[] topIndex = new int[TOP_COUNT];
+        for (int i = 0; i < hMatrix.length; i++) {
+            if (hMatrix[i] > topCount[TOP_COUNT - 1]) {
+                int j = TOP_COUNT - 1;
+                while (j > 0 && hMatrix[i] > topCount[j - 1]) {
+                    topCount[j] = topCount[j - 1];
+                    topIndex[j] = topIndex[j - 1];
+                    j--;
+                }
+                topCount[j] = hMatrix[i];
+                topIndex[j] = i;
+            }
+        }
+        if (topCount[TOP_COUNT - 1] == 0) {
+            return Double.NaN;
+        }
+
+        // Average angle of the lines, the last one is left out as in getSkewAngle()
+        double sum = 0.0;
+        for (int i = 0; i < TOP_COUNT - 1; i++) {
+            sum += alphaStart + (topIndex[i] % steps) * alphaStep;
+        }
+        return sum / (TOP_COUNT - 1);
+    }
+
     // calculate the count lines in the image with most points
     private ImageDeskew.HoughLine[] getTop(int count) {
 
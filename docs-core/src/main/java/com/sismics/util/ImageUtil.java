@@ -4,8 +4,11 @@ import com.google.common.hash.Hashing;
 
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
@@ -13,6 +16,7 @@ import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Iterator;
 
 /**
@@ -66,6 +70,41 @@ public class ImageUtil {
         }
     }
     
+    /**
+     * Read an image, decoding only the pixels needed for a target size.
+     * Pixels are skipped at decoding time, so the image is at least the target size on its longest side,
+     * and less than twice as big.
+     *
+     * @param file Image file
+     * @param targetSize Target size of the longest side
+     * @return Image, null if the format is not supported
+     * @throws IOException e
+     */
+    public static BufferedImage readSubsampled(Path file, int targetSize) throws IOException {
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(file.toFile())) {
+            if (imageInputStream == null) {
+                return null;
+            }
+            Iterator<ImageReader> iter = ImageIO.getImageReaders(imageInputStream);
+            if (!iter.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = iter.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                int step = Math.max(Math.max(reader.getWidth(0), reader.getHeight(0)) / targetSize, 1);
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
     /**
      * Compute Gravatar hash.
      * See https://en.gravatar.com/site/implement/hash/.
@@ -1,10 +1,10 @@
 package com.sismics.util.context;
 
 import com.google.common.collect.Lists;
+import com.sismics.docs.core.event.FileEvent;
 import com.sismics.docs.core.model.context.AppContext;
 
 import jakarta.persistence.EntityManager;
-import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -92,10 +92,14 @@ public class ThreadLocalContext {
      * Fire all pending async events.
      */
     public void fireAllAsyncEvents() {
-        Iterator<Object> iterator = asyncEventList.iterator();
-        while (iterator.hasNext()) {
-            Object asyncEvent = iterator.next();
-            iterator.remove();
+        // A listener may run a transaction on this thread, which fires its own events
+        List<Object> eventList = Lists.newArrayList(asyncEventList);
+        asyncEventList.clear();
+        for (Object asyncEvent : eventList) {
+            if (asyncEvent instanceof FileEvent) {
+                // File processing runs on its own executor, the generic bus only notifies the other listeners
+                AppContext.getInstance().getFileProcessingEventBus().post(asyncEvent);
+            }
             AppContext.getInstance().getAsyncEventBus().post(asyncEvent);
         }
     }
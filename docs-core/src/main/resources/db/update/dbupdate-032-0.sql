@@ -0,0 +1,7 @@
+-- DBUPDATE-032-0.SQL
+
+-- Use memory-mapped Lucene storage instead of file storage
+update T_CONFIG set CFG_VALUE_C = 'MMAP' where CFG_ID_C = 'LUCENE_DIRECTORY_STORAGE' and CFG_VALUE_C = 'FILE';
+
+-- Update the database version
+update T_CONFIG set CFG_VALUE_C = '32' where CFG_ID_C = 'DB_VERSION';
@@ -0,0 +1,15 @@
+-- DBUPDATE-033-0.SQL
+
+-- Search vectors of the PostgreSQL fulltext search
+!PGSQL!alter table T_DOCUMENT add column if not exists DOC_SEARCH_TSV tsvector;
+!PGSQL!alter table T_FILE add column if not exists FIL_SEARCH_TSV tsvector;
+!PGSQL!create index if not exists IDX_DOC_SEARCH_TSV on T_DOCUMENT using gin (DOC_SEARCH_TSV);
+!PGSQL!create index if not exists IDX_FIL_SEARCH_TSV on T_FILE using gin (FIL_SEARCH_TSV);
+
+-- Words of the document titles, completed by prefix in the search suggestions
+!PGSQL!create materialized view V_TITLE_WORD as select word, ndoc from ts_stat('select to_tsvector(''simple'', DOC_TITLE_C) from T_DOCUMENT where DOC_DELETEDATE_D is null') with no data;
+!PGSQL!create unique index IDX_TITLE_WORD on V_TITLE_WORD (word);
+!PGSQL!create index IDX_TITLE_WORD_PREFIX on V_TITLE_WORD (word text_pattern_ops);
+
+-- Update the database version
+update T_CONFIG set CFG_VALUE_C = '33' where CFG_ID_C = 'DB_VERSION';
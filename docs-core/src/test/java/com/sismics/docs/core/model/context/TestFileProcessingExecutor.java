@@ -0,0 +1,78 @@
+package com.sismics.docs.core.model.context;
+
+import com.sismics.docs.core.constant.FileProcessingPriority;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test of the file processing executor.
+ */
+public class TestFileProcessingExecutor {
+    @Test
+    public void priorityTest() throws Exception {
+        FileProcessingExecutor executor = new FileProcessingExecutor(1, 10);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> processedList = Collections.synchronizedList(new ArrayList<>());
+
+        // Keep the only thread busy while the other tasks are queued
+        executor.submit(FileProcessingPriority.BULK, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        executor.submit(FileProcessingPriority.BULK, () -> processedList.add("bulk1"));
+        executor.submit(FileProcessingPriority.BULK, () -> processedList.add("bulk2"));
+        executor.submit(FileProcessingPriority.INTERACTIVE, () -> processedList.add("interactive1"));
+        executor.submit(FileProcessingPriority.INTERACTIVE, () -> { throw new IllegalStateException(); });
+        executor.submit(FileProcessingPriority.INTERACTIVE, () -> processedList.add("interactive2"));
+        Assert.assertEquals(1, executor.getActiveCount());
+        Assert.assertEquals(5, executor.getQueuedCount());
+        Assert.assertEquals(3, executor.getQueuedCount(FileProcessingPriority.INTERACTIVE));
+        Assert.assertEquals(2, executor.getQueuedCount(FileProcessingPriority.BULK));
+
+        // Interactive tasks run first, then in submission order
+        release.countDown();
+        executor.shutDown(10, TimeUnit.SECONDS);
+        Assert.assertEquals(List.of("interactive1", "interactive2", "bulk1", "bulk2"), processedList);
+        Assert.assertEquals(0, executor.getQueuedCount());
+        Assert.assertEquals(5, executor.getCompletedCount());
+        Assert.assertEquals(1, executor.getFailedCount());
+    }
+
+    @Test
+    public void boundedQueueTest() throws Exception {
+        FileProcessingExecutor executor = new FileProcessingExecutor(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(FileProcessingPriority.INTERACTIVE, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(executor.submit(FileProcessingPriority.INTERACTIVE, () -> { }));
+
+        // The queue is full, the next submission is refused without waiting
+        Assert.assertFalse(executor.submit(FileProcessingPriority.INTERACTIVE, () -> { }));
+        Assert.assertEquals(1, executor.getQueuedCount());
+
+        release.countDown();
+        executor.shutDown(10, TimeUnit.SECONDS);
+        Assert.assertEquals(2, executor.getCompletedCount());
+    }
+}
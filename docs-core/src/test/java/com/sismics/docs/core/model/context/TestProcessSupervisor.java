@@ -0,0 +1,52 @@
+package com.sismics.docs.core.model.context;
+
+import com.google.common.io.CharStreams;
+import com.sismics.docs.core.constant.ExternalTool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Test of the process supervisor.
+ */
+public class TestProcessSupervisor {
+    @Test
+    public void runTest() throws Exception {
+        ProcessSupervisor processSupervisor = new ProcessSupervisor(1, 2000);
+        try {
+            // The output is read, the error stream is drained
+            String output = processSupervisor.run(ExternalTool.MEDIAINFO, List.of("sh", "-c", "echo error >&2; echo output"),
+                    is -> CharStreams.toString(new InputStreamReader(is, StandardCharsets.UTF_8)));
+            Assert.assertEquals("output\n", output);
+            Assert.assertEquals(1, processSupervisor.getRunCount(ExternalTool.MEDIAINFO));
+            Assert.assertEquals(0, processSupervisor.getFailureCount(ExternalTool.MEDIAINFO));
+
+            // A process exiting with an error is counted as a failure
+            processSupervisor.run(ExternalTool.MEDIAINFO, List.of("sh", "-c", "exit 3"), is -> null);
+            Assert.assertEquals(1, processSupervisor.getFailureCount(ExternalTool.MEDIAINFO));
+
+            // A hung process is killed with its children
+            long startTime = System.currentTimeMillis();
+            try {
+                processSupervisor.run(ExternalTool.FFMPEG, List.of("sh", "-c", "sleep 60 & sleep 60"),
+                        is -> CharStreams.toString(new InputStreamReader(is, StandardCharsets.UTF_8)));
+                Assert.fail();
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage().contains("timed out"));
+            }
+            Assert.assertTrue(System.currentTimeMillis() - startTime < 10000);
+            Assert.assertEquals(1, processSupervisor.getTimeoutCount(ExternalTool.FFMPEG));
+            Assert.assertEquals(0, processSupervisor.getRunningCount(ExternalTool.FFMPEG));
+            Assert.assertTrue(processSupervisor.getP95Duration(ExternalTool.FFMPEG) >= 2000);
+
+            // The tools are limited independently
+            Assert.assertEquals(0, processSupervisor.getRunCount(ExternalTool.TESSERACT));
+        } finally {
+            processSupervisor.shutDown();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.sismics.docs.core.util;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test of the OCR utilities, with a stubbed OCR.
+ */
+public class TestOcrUtil {
+    @Test
+    public void pageOrderTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        AtomicInteger completedPageCount = new AtomicInteger();
+        try (PDDocument pdfDocument = createDocument(6)) {
+            // The first pages are the slowest, the contents are still reassembled in page order
+            String content = OcrUtil.ocrPdf(pdfDocument, executor, (pageIndex, image) -> {
+                Thread.sleep((6 - pageIndex) * 20L);
+                return "page" + pageIndex;
+            }, (pageIndex, completed, pageCount) -> {
+                Assert.assertEquals(6, pageCount);
+                completedPageCount.incrementAndGet();
+            });
+            Assert.assertEquals(" page0 page1 page2 page3 page4 page5", content);
+            Assert.assertEquals(6, completedPageCount.get());
+            Assert.assertEquals(OcrUtil.MEMORY_BUDGET, OcrUtil.memoryBudget.availablePermits());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void failureTest() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Integer> ocrPageList = Collections.synchronizedList(new ArrayList<>());
+        try (PDDocument pdfDocument = createDocument(6)) {
+            try {
+                OcrUtil.ocrPdf(pdfDocument, executor, (pageIndex, image) -> {
+                    ocrPageList.add(pageIndex);
+                    if (pageIndex == 2) {
+                        throw new IOException("OCR failed");
+                    }
+                    return "page" + pageIndex;
+                }, (pageIndex, completed, pageCount) -> {});
+                Assert.fail();
+            } catch (IOException e) {
+                Assert.assertEquals("OCR failed", e.getMessage());
+            }
+
+            // The pages after the failed one are cancelled, and all the memory is released
+            Assert.assertEquals(List.of(0, 1, 2), ocrPageList);
+            Assert.assertEquals(OcrUtil.MEMORY_BUDGET, OcrUtil.memoryBudget.availablePermits());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Create a PDF document of small blank pages.
+     *
+     * @param pageCount Number of pages
+     * @return PDF document
+     */
+    private static PDDocument createDocument(int pageCount) {
+        PDDocument pdfDocument = new PDDocument();
+        for (int i = 0; i < pageCount; i++) {
+            pdfDocument.addPage(new PDPage(new PDRectangle(72, 72)));
+        }
+        return pdfDocument;
+    }
+}
@@ -0,0 +1,67 @@
+package com.sismics.docs.core.util.indexing;
+
+import com.sismics.docs.BaseTransactionalTest;
+import com.sismics.docs.core.constant.AclType;
+import com.sismics.docs.core.constant.PermType;
+import com.sismics.docs.core.dao.AclDao;
+import com.sismics.docs.core.dao.DocumentDao;
+import com.sismics.docs.core.dao.criteria.DocumentCriteria;
+import com.sismics.docs.core.dao.dto.DocumentDto;
+import com.sismics.docs.core.model.jpa.Acl;
+import com.sismics.docs.core.model.jpa.Document;
+import com.sismics.docs.core.model.jpa.User;
+import com.sismics.docs.core.util.jpa.PaginatedList;
+import com.sismics.docs.core.util.jpa.PaginatedLists;
+import com.sismics.docs.core.util.jpa.SortCriteria;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+
+/**
+ * Test of the Lucene indexing handler.
+ */
+public class TestLuceneIndexingHandler extends BaseTransactionalTest {
+    @Test
+    public void revokedAclTest() throws Exception {
+        User user = createUser("lucene_acl");
+        Document document = new Document();
+        document.setUserId(user.getId());
+        document.setTitle("Uranium enrichment");
+        document.setLanguage("eng");
+        document.setCreateDate(new Date());
+        new DocumentDao().create(document, user.getId());
+
+        AclDao aclDao = new AclDao();
+        Acl acl = new Acl();
+        acl.setPerm(PermType.READ);
+        acl.setType(AclType.USER);
+        acl.setSourceId(document.getId());
+        acl.setTargetId(user.getId());
+        aclDao.create(acl, user.getId());
+
+        LuceneIndexingHandler handler = new LuceneIndexingHandler();
+        handler.startUp();
+        try {
+            handler.createDocument(document);
+            DocumentCriteria criteria = new DocumentCriteria();
+            criteria.setTargetIdList(Collections.singletonList(user.getId()));
+            criteria.setSimpleSearch("uranium");
+            criteria.setFullSearch("");
+            PaginatedList<DocumentDto> paginatedList = PaginatedLists.create(10, 0);
+            handler.findByCriteria(paginatedList, new ArrayList<>(), new HashMap<>(), criteria, new SortCriteria(3, false));
+            Assert.assertEquals(1, paginatedList.getResultList().size());
+
+            // The permission is revoked before the index is updated, the document is not returned anymore
+            aclDao.delete(document.getId(), PermType.READ, user.getId(), user.getId(), AclType.USER);
+            paginatedList = PaginatedLists.create(10, 0);
+            handler.findByCriteria(paginatedList, new ArrayList<>(), new HashMap<>(), criteria, new SortCriteria(3, false));
+            Assert.assertTrue(paginatedList.getResultList().isEmpty());
+        } finally {
+            handler.shutDown();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.sismics.docs.core.util.indexing;
+
+import com.sismics.docs.BaseTransactionalTest;
+import com.sismics.docs.core.constant.AclType;
+import com.sismics.docs.core.constant.ConfigType;
+import com.sismics.docs.core.constant.PermType;
+import com.sismics.docs.core.dao.AclDao;
+import com.sismics.docs.core.dao.ConfigDao;
+import com.sismics.docs.core.dao.DocumentDao;
+import com.sismics.docs.core.dao.criteria.DocumentCriteria;
+import com.sismics.docs.core.dao.dto.DocumentDto;
+import com.sismics.docs.core.model.jpa.Acl;
+import com.sismics.docs.core.model.jpa.Document;
+import com.sismics.docs.core.model.jpa.User;
+import com.sismics.docs.core.util.jpa.PaginatedList;
+import com.sismics.docs.core.util.jpa.PaginatedLists;
+import com.sismics.docs.core.util.jpa.SortCriteria;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+
+/**
+ * Test of the PostgreSQL indexing handler.
+ */
+public class TestPostgresqlIndexingHandler extends BaseTransactionalTest {
+    @Test
+    public void buildTsQueryTest() {
+        // Nothing to search
+        Assert.assertNull(PostgresqlIndexingHandler.buildTsQuery(null));
+        Assert.assertNull(PostgresqlIndexingHandler.buildTsQuery(" "));
+        Assert.assertNull(PostgresqlIndexingHandler.buildTsQuery("&|! ':*"));
+
+        // All the terms must match
+        Assert.assertEquals("uranium & einstein", PostgresqlIndexingHandler.buildTsQuery("uranium  einstein"));
+
+        // Prefixes and exclusions
+        Assert.assertEquals("docu:* & !(draft)", PostgresqlIndexingHandler.buildTsQuery("docu* -draft"));
+
+        // Operators of the tsquery syntax are dropped
+        Assert.assertEquals("a & b & !(c & d:*)", PostgresqlIndexingHandler.buildTsQuery("a|b -c'&d*"));
+        Assert.assertEquals("élève & 2024", PostgresqlIndexingHandler.buildTsQuery("(élève) 2024"));
+    }
+
+    @Test
+    public void indexVersionTest() {
+        PostgresqlIndexingHandler handler = new PostgresqlIndexingHandler();
+        ConfigDao configDao = new ConfigDao();
+        Assert.assertNull(configDao.getById(ConfigType.POSTGRESQL_INDEX_VERSION));
+
+        // Nothing to invalidate if the vectors were never built
+        PostgresqlIndexingHandler.invalidateIndex();
+        Assert.assertNull(configDao.getById(ConfigType.POSTGRESQL_INDEX_VERSION));
+
+        // The version and the text search configuration are recorded with the first checkpoint of a rebuild
+        handler.commitRebuildCheckpoint("ALL:DOCUMENT:");
+        Assert.assertEquals("ALL:DOCUMENT:", handler.getRebuildCheckpoint());
+        Assert.assertEquals("1:simple", configDao.getById(ConfigType.POSTGRESQL_INDEX_VERSION).getValue());
+        handler.commitRebuildCheckpoint(null);
+        Assert.assertNull(handler.getRebuildCheckpoint());
+        Assert.assertEquals("1:simple", configDao.getById(ConfigType.POSTGRESQL_INDEX_VERSION).getValue());
+
+        // Using another handler outdates the vectors
+        PostgresqlIndexingHandler.invalidateIndex();
+        Assert.assertEquals("", configDao.getById(ConfigType.POSTGRESQL_INDEX_VERSION).getValue());
+    }
+
+    @Test
+    public void findByCriteriaTest() throws Exception {
+        // The fulltext queries need PostgreSQL, the ACL filter, the sort and the paging are checked on H2
+        User user = createUser("pgsearch");
+        User otherUser = createUser("pgsearch_other");
+        DocumentDao documentDao = new DocumentDao();
+        AclDao aclDao = new AclDao();
+        for (int i = 0; i < 5; i++) {
+            Document document = new Document();
+            document.setUserId(i < 3 ? user.getId() : otherUser.getId());
+            document.setTitle("Document " + i);
+            document.setLanguage("eng");
+            document.setCreateDate(new Date(1_000_000L * i));
+            documentDao.create(document, document.getUserId());
+
+            Acl acl = new Acl();
+            acl.setPerm(PermType.READ);
+            acl.setType(AclType.USER);
+            acl.setSourceId(document.getId());
+            acl.setTargetId(document.getUserId());
+            aclDao.create(acl, document.getUserId());
+        }
+
+        PostgresqlIndexingHandler handler = new PostgresqlIndexingHandler();
+        DocumentCriteria criteria = new DocumentCriteria();
+        criteria.setTargetIdList(Collections.singletonList(user.getId()));
+
+        // Only the readable documents are counted, the page is sorted by creation date
+        PaginatedList<DocumentDto> paginatedList = PaginatedLists.create(2, 0);
+        handler.findByCriteria(paginatedList, new ArrayList<>(), new HashMap<>(), criteria, new SortCriteria(3, false));
+        Assert.assertEquals(3, paginatedList.getResultCount());
+        Assert.assertEquals(2, paginatedList.getResultList().size());
+        Assert.assertEquals("Document 2", paginatedList.getResultList().get(0).getTitle());
+        Assert.assertEquals("Document 1", paginatedList.getResultList().get(1).getTitle());
+
+        // The last page
+        paginatedList = PaginatedLists.create(2, 2);
+        handler.findByCriteria(paginatedList, new ArrayList<>(), new HashMap<>(), criteria, new SortCriteria(3, false));
+        Assert.assertEquals(3, paginatedList.getResultCount());
+        Assert.assertEquals(1, paginatedList.getResultList().size());
+        Assert.assertEquals("Document 0", paginatedList.getResultList().get(0).getTitle());
+
+        // After the last page, the documents are still counted
+        paginatedList = PaginatedLists.create(2, 10);
+        handler.findByCriteria(paginatedList, new ArrayList<>(), new HashMap<>(), criteria, new SortCriteria(3, false));
+        Assert.assertEquals(3, paginatedList.getResultCount());
+        Assert.assertTrue(paginatedList.getResultList().isEmpty());
+
+        // Nothing searchable in the terms
+        paginatedList = PaginatedLists.create(2, 0);
+        criteria.setSimpleSearch("&|!");
+        handler.findByCriteria(paginatedList, new ArrayList<>(), new HashMap<>(), criteria, new SortCriteria(3, false));
+        Assert.assertEquals(0, paginatedList.getResultCount());
+    }
+}
@@ -0,0 +1,96 @@
+package com.sismics.docs.core.util.indexing;
+
+import com.sismics.docs.BaseTransactionalTest;
+import com.sismics.docs.core.model.jpa.User;
+import com.sismics.util.context.ThreadLocalContext;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.QueryTimeoutException;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test of the search time budget.
+ */
+public class TestSearchBudget extends BaseTransactionalTest {
+    @Test
+    public void wrapTest() throws Exception {
+        try (Directory directory = new ByteBuffersDirectory();
+             IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            for (int i = 0; i < 1000; i++) {
+                Document document = new Document();
+                document.add(new StringField("id", String.valueOf(i), Field.Store.NO));
+                indexWriter.addDocument(document);
+            }
+            indexWriter.commit();
+
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+
+                // Unbounded budget, all the hits are collected
+                SearchBudget budget = new SearchBudget(0);
+                TotalHitCountCollector collector = new TotalHitCountCollector();
+                searcher.search(new MatchAllDocsQuery(), budget.wrap(collector));
+                Assert.assertEquals(1000, collector.getTotalHits());
+                Assert.assertFalse(budget.isPartial());
+                Assert.assertNull(budget.getQueryTimeout());
+
+                // Exhausted budget, the collection stops and the search is partial
+                budget = new SearchBudget(1);
+                Thread.sleep(10);
+                collector = new TotalHitCountCollector();
+                searcher.search(new MatchAllDocsQuery(), budget.wrap(collector));
+                Assert.assertTrue(collector.getTotalHits() < 1000);
+                Assert.assertTrue(budget.isPartial());
+                Assert.assertEquals(Integer.valueOf(1), budget.getQueryTimeout());
+            }
+        }
+    }
+
+    @Test
+    public void runQueryTest() throws Exception {
+        User user = createUser("search_budget");
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        em.flush();
+
+        // The query completes within the budget
+        SearchBudget budget = new SearchBudget(10000);
+        Assert.assertEquals("toto@docs.com", budget.runQuery(() -> getEmail(em, user), null));
+        Assert.assertFalse(budget.isPartial());
+
+        // The query is cancelled, its changes are rolled back and the transaction is still usable
+        String email = budget.runQuery(() -> {
+            em.createNativeQuery("update T_USER set USE_EMAIL_C = 'cancelled@docs.com' where USE_ID_C = :id")
+                    .setParameter("id", user.getId())
+                    .executeUpdate();
+            throw new QueryTimeoutException("Query cancelled");
+        }, "fallback");
+        Assert.assertEquals("fallback", email);
+        Assert.assertTrue(budget.isPartial());
+        Assert.assertEquals("toto@docs.com", getEmail(em, user));
+    }
+
+    /**
+     * Returns the email of a user read from the database.
+     *
+     * @param em Entity manager
+     * @param user User
+     * @return Email
+     */
+    private static String getEmail(EntityManager em, User user) {
+        return (String) em.createNativeQuery("select USE_EMAIL_C from T_USER where USE_ID_C = :id")
+                .setParameter("id", user.getId())
+                .getSingleResult();
+    }
+}
@@ -0,0 +1,51 @@
+package com.sismics.docs.core.util.indexing;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.Query;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test of the search query compiler.
+ */
+public class TestSearchQueryCompiler {
+    @Test
+    public void compileTest() {
+        Analyzer analyzer = new StandardAnalyzer();
+        SearchQueryCompiler compiler = new SearchQueryCompiler(analyzer,
+                ImmutableMap.of("title", 2f, "description", 1f), 10);
+
+        for (String text : new String[] { "Uranium Einstein", "\"nuclear physics\" -fission", "urani* einsten~1", "a | (b + c)" }) {
+            // The compiled query is the same as with one parser per field
+            BooleanQuery expected = new BooleanQuery.Builder()
+                    .add(new BoostQuery(parse(analyzer, "title", text), 2f), BooleanClause.Occur.SHOULD)
+                    .add(parse(analyzer, "description", text), BooleanClause.Occur.SHOULD)
+                    .build();
+            Query query = compiler.compile(text);
+            Assert.assertEquals(expected, query);
+
+            // Repeated queries are compiled once
+            Assert.assertSame(query, compiler.compile(text));
+        }
+    }
+
+    /**
+     * Parse a query on a field like the fulltext search did before compilation.
+     *
+     * @param analyzer Analyzer
+     * @param field Field
+     * @param text Query
+     * @return Query
+     */
+    private Query parse(Analyzer analyzer, String field, String text) {
+        SimpleQueryParser simpleQueryParser = new SimpleQueryParser(analyzer, field);
+        simpleQueryParser.setDefaultOperator(BooleanClause.Occur.MUST);
+        return simpleQueryParser.parse(text);
+    }
+}
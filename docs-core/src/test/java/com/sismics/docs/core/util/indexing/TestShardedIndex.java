@@ -0,0 +1,221 @@
+package com.sismics.docs.core.util.indexing;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Test of the sharded Lucene index.
+ */
+public class TestShardedIndex {
+    private ShardedIndex shardedIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        shardedIndex = new ShardedIndex(ShardedIndex.Storage.RAM, null, ShardedIndex.Period.MONTH, "1", new StandardAnalyzer(), 1000);
+        shardedIndex.open();
+    }
+
+    @After
+    public void tearDown() {
+        shardedIndex.close();
+    }
+
+    @Test
+    public void routingTest() throws Exception {
+        // Documents are routed to the shard of their creation month
+        ShardedIndex.Shard january = shardedIndex.getShard(date(2024, 1, 15));
+        ShardedIndex.Shard march = shardedIndex.getShard(date(2024, 3, 1));
+        Assert.assertSame(january, shardedIndex.getShard(date(2024, 1, 31)));
+        Assert.assertNotSame(january, march);
+        shardedIndex.add("doc1", january, document("doc1"));
+        shardedIndex.add("doc2", march, document("doc2"));
+        shardedIndex.commit();
+        shardedIndex.getSearcherManager().maybeRefreshBlocking();
+        Assert.assertEquals(1, count(january, "doc1"));
+        Assert.assertEquals(0, count(march, "doc1"));
+        Assert.assertEquals(1, count(march, "doc2"));
+
+        // Updating a document only modifies its shard
+        shardedIndex.update("doc1", january, document("doc1"));
+        Assert.assertTrue(january.getIndexWriter().hasUncommittedChanges());
+        Assert.assertFalse(march.getIndexWriter().hasUncommittedChanges());
+
+        // Deleting a document only modifies its shard
+        shardedIndex.commit();
+        shardedIndex.delete("doc2");
+        Assert.assertFalse(january.getIndexWriter().hasUncommittedChanges());
+        Assert.assertTrue(march.getIndexWriter().hasUncommittedChanges());
+        shardedIndex.getSearcherManager().maybeRefreshBlocking();
+        Assert.assertEquals(0, count(march, "doc2"));
+    }
+
+    @Test
+    public void moveTest() throws Exception {
+        ShardedIndex.Shard january = shardedIndex.getShard(date(2024, 1, 15));
+        ShardedIndex.Shard march = shardedIndex.getShard(date(2024, 3, 1));
+        ShardedIndex.Shard may = shardedIndex.getShard(date(2024, 5, 1));
+
+        // A document moved before the searchers see it is still found in its previous shard
+        shardedIndex.add("doc1", january, document("doc1"));
+        Assert.assertFalse(shardedIndex.isInOtherShard("doc1", january));
+        Assert.assertTrue(shardedIndex.isInOtherShard("doc1", march));
+        shardedIndex.update("doc1", march, document("doc1"));
+        shardedIndex.getSearcherManager().maybeRefreshBlocking();
+        Assert.assertEquals(0, count(january, "doc1"));
+        Assert.assertEquals(1, count(march, "doc1"));
+
+        // A document moved after a refresh is found by the searcher
+        shardedIndex.commit();
+        shardedIndex.update("doc1", may, document("doc1"));
+        Assert.assertFalse(january.getIndexWriter().hasUncommittedChanges());
+        shardedIndex.getSearcherManager().maybeRefreshBlocking();
+        Assert.assertEquals(0, count(march, "doc1"));
+        Assert.assertEquals(1, count(may, "doc1"));
+        Assert.assertFalse(shardedIndex.isInOtherShard("doc1", may));
+    }
+
+    @Test
+    public void unpartitionedTest() throws Exception {
+        ShardedIndex unpartitionedIndex = new ShardedIndex(ShardedIndex.Storage.RAM, null, ShardedIndex.Period.NONE, "1", new StandardAnalyzer(), 1000);
+        unpartitionedIndex.open();
+        try {
+            // All the documents are in the same shard, updated and deleted without looking for them
+            ShardedIndex.Shard shard = unpartitionedIndex.getShard(date(2024, 1, 15));
+            Assert.assertSame(shard, unpartitionedIndex.getShard(date(2024, 3, 1)));
+            unpartitionedIndex.add("doc1", shard, document("doc1"));
+            unpartitionedIndex.add("doc2", shard, document("doc2"));
+            unpartitionedIndex.update("doc1", shard, document("doc1"));
+            Assert.assertFalse(unpartitionedIndex.isInOtherShard("doc1", shard));
+            unpartitionedIndex.getSearcherManager().maybeRefreshBlocking();
+            Assert.assertEquals(1, count(shard, "doc1"));
+
+            unpartitionedIndex.delete("doc2");
+            unpartitionedIndex.getSearcherManager().maybeRefreshBlocking();
+            Assert.assertEquals(0, count(shard, "doc2"));
+            Assert.assertEquals(1, count(shard, "doc1"));
+        } finally {
+            unpartitionedIndex.close();
+        }
+    }
+
+    @Test
+    public void datePrunedSearchTest() throws Exception {
+        shardedIndex.add("doc1", shardedIndex.getShard(date(2024, 1, 15)), document("doc1"));
+        shardedIndex.add("doc2", shardedIndex.getShard(date(2024, 3, 1)), document("doc2"));
+        shardedIndex.add("doc3", shardedIndex.getShard(date(2024, 5, 31)), document("doc3"));
+
+        // Only the shards overlapping the dates are searched
+        assertSearch(null, null, "doc1", "doc2", "doc3");
+        assertSearch(date(2024, 1, 31), date(2024, 3, 1), "doc1", "doc2");
+        assertSearch(date(2024, 2, 1), null, "doc2", "doc3");
+        assertSearch(null, date(2024, 2, 28), "doc1");
+        assertSearch(date(2024, 2, 1), date(2024, 2, 28));
+    }
+
+    @Test
+    public void refreshTest() throws Exception {
+        ShardedIndex.Shard january = shardedIndex.getShard(date(2024, 1, 15));
+
+        // The writes are searchable before being committed
+        shardedIndex.add("doc1", january, document("doc1"));
+        IndexSearcher searcher = shardedIndex.acquireSearcher(null, null);
+        long version;
+        try {
+            Assert.assertEquals(1, searcher.count(new TermQuery(new Term("id", "doc1"))));
+            version = shardedIndex.getVersion(searcher);
+        } finally {
+            shardedIndex.getSearcherManager().release(searcher);
+        }
+        Assert.assertTrue(shardedIndex.hasUncommittedChanges());
+
+        // Without writes, the searcher is not reopened
+        searcher = shardedIndex.acquireSearcher(null, null);
+        try {
+            Assert.assertEquals(version, shardedIndex.getVersion(searcher));
+        } finally {
+            shardedIndex.getSearcherManager().release(searcher);
+        }
+
+        // The writes are made searchable in the background, without any search waiting for them
+        ShardedIndex refreshedIndex = new ShardedIndex(ShardedIndex.Storage.RAM, null, ShardedIndex.Period.NONE, "1", new StandardAnalyzer(), 100);
+        refreshedIndex.open();
+        try {
+            refreshedIndex.add("doc1", refreshedIndex.getShard(date(2024, 1, 15)), document("doc1"));
+            int count = 0;
+            for (int i = 0; i < 50 && count == 0; i++) {
+                Thread.sleep(100);
+                searcher = refreshedIndex.getSearcherManager().acquire();
+                try {
+                    count = searcher.count(new TermQuery(new Term("id", "doc1")));
+                } finally {
+                    refreshedIndex.getSearcherManager().release(searcher);
+                }
+            }
+            Assert.assertEquals(1, count);
+        } finally {
+            refreshedIndex.close();
+        }
+    }
+
+    /**
+     * Assert the documents found between two dates.
+     *
+     * @param minDate Minimum creation date
+     * @param maxDate Maximum creation date
+     * @param expectedIds IDs of the expected documents
+     * @throws IOException e
+     */
+    private void assertSearch(Date minDate, Date maxDate, String... expectedIds) throws IOException {
+        IndexSearcher searcher = shardedIndex.acquireSearcher(minDate, maxDate);
+        try {
+            for (String id : new String[] { "doc1", "doc2", "doc3" }) {
+                boolean expected = List.of(expectedIds).contains(id);
+                Assert.assertEquals(id, expected ? 1 : 0, searcher.count(new TermQuery(new Term("id", id))));
+            }
+        } finally {
+            shardedIndex.getSearcherManager().release(searcher);
+        }
+    }
+
+    /**
+     * Count the documents of a shard with an ID, including its uncommitted changes.
+     *
+     * @param shard Shard
+     * @param id ID
+     * @return Number of documents
+     * @throws IOException e
+     */
+    private int count(ShardedIndex.Shard shard, String id) throws IOException {
+        shard.getIndexWriter().flush();
+        try (DirectoryReader reader = DirectoryReader.open(shard.getIndexWriter())) {
+            return new IndexSearcher(reader).count(new TermQuery(new Term("id", id)));
+        }
+    }
+
+    private static List<Document> document(String id) {
+        Document document = new Document();
+        document.add(new StringField("id", id, Field.Store.YES));
+        return Collections.singletonList(document);
+    }
+
+    private static Date date(int year, int month, int day) {
+        return Date.from(LocalDate.of(year, month, day).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
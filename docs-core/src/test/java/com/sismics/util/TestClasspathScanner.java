@@ -0,0 +1,27 @@
+package com.sismics.util;
+
+import com.google.common.collect.Lists;
+import com.sismics.docs.core.util.authentication.AuthenticationHandler;
+import com.sismics.docs.core.util.authentication.InternalAuthenticationHandler;
+import com.sismics.docs.core.util.authentication.LdapAuthenticationHandler;
+import com.sismics.docs.core.util.indexing.IndexingHandler;
+import com.sismics.docs.core.util.indexing.LuceneIndexingHandler;
+import com.sismics.docs.core.util.indexing.PostgresqlIndexingHandler;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test of the classpath scanner.
+ */
+public class TestClasspathScanner {
+    @Test
+    public void priorityTest() {
+        // The PostgreSQL fulltext search is preferred to Lucene when enabled
+        Assert.assertEquals(Lists.newArrayList(PostgresqlIndexingHandler.class, LuceneIndexingHandler.class),
+                new ClasspathScanner<IndexingHandler>().findClasses(IndexingHandler.class, "com.sismics.docs.core.util.indexing"));
+
+        // LDAP is tried before the internal database when enabled
+        Assert.assertEquals(Lists.newArrayList(LdapAuthenticationHandler.class, InternalAuthenticationHandler.class),
+                new ClasspathScanner<AuthenticationHandler>().findClasses(AuthenticationHandler.class, "com.sismics.docs.core.util.authentication"));
+    }
+}
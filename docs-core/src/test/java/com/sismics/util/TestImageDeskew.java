@@ -0,0 +1,79 @@
+package com.sismics.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Test of {@link ImageDeskew}.
+ */
+public class TestImageDeskew {
+    @Test
+    public void fastSkewAngleTest() {
+        for (double angle : new double[] { -4.0, -1.5, 0.0, 2.0, 7.5 }) {
+            BufferedImage image = buildPage(angle, false);
+            double expected = new ImageDeskew(image).getSkewAngle();
+            double fast = new ImageDeskew(image).getSkewAngleFast();
+
+            // Same angle as the full resolution transformation, with a finer resolution
+            Assert.assertEquals("Page skewed by " + angle, expected, fast, 0.3);
+            Assert.assertEquals("Page skewed by " + angle, angle, fast, 0.3);
+        }
+
+        // Not enough lines on a blank page
+        BufferedImage blankImage = new BufferedImage(1000, 1400, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = blankImage.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 1000, 1400);
+        graphics.dispose();
+        Assert.assertEquals(0.0, new ImageDeskew(blankImage).getSkewAngleFast(), 0.0);
+    }
+
+    @Test
+    public void noisySkewAngleTest() {
+        // Same pages as the benchmark, the fast mode is at least as accurate as the full one
+        for (double angle : new double[] { -3.3, 0.7, 8.1 }) {
+            BufferedImage image = buildPage(angle, true);
+            double fullError = Math.abs(new ImageDeskew(image).getSkewAngle() - angle);
+            double fastError = Math.abs(new ImageDeskew(image).getSkewAngleFast() - angle);
+            Assert.assertTrue("Page skewed by " + angle + ", fast error " + fastError, fastError < 0.3);
+            Assert.assertTrue("Page skewed by " + angle + ", fast error " + fastError + ", full error " + fullError,
+                    fastError <= fullError + 0.05);
+        }
+    }
+
+    /**
+     * Build a page of text rotated by an angle.
+     *
+     * @param angle Angle in degrees
+     * @param noise True to add scan noise
+     * @return Page image
+     */
+    private BufferedImage buildPage(double angle, boolean noise) {
+        BufferedImage image = new BufferedImage(1700, 2200, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.rotate(Math.toRadians(angle), image.getWidth() / 2.0, image.getHeight() / 2.0);
+        graphics.setColor(Color.BLACK);
+        graphics.setFont(new Font(Font.SERIF, Font.PLAIN, 28));
+        for (int y = 150; y < image.getHeight() - 150; y += 40) {
+            graphics.drawString("All human beings are born free and equal in dignity and rights, they are endowed", 150, y);
+        }
+        graphics.dispose();
+        if (noise) {
+            Random random = new Random(42);
+            for (int i = 0; i < 70000; i++) {
+                image.setRGB(random.nextInt(image.getWidth()), random.nextInt(image.getHeight()), 0x303030);
+            }
+        }
+        return image;
+    }
+}
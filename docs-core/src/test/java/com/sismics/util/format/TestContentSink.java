@@ -0,0 +1,70 @@
+package com.sismics.util.format;
+
+import com.sismics.BaseTest;
+import com.sismics.docs.core.util.format.ContentSink;
+import com.sismics.docs.core.util.format.FormatHandlerUtil;
+import com.sismics.docs.core.util.format.ProcessingSession;
+import com.sismics.util.mime.MimeType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+
+/**
+ * Test of {@link ContentSink}.
+ */
+public class TestContentSink extends BaseTest {
+    @Test
+    public void boundedTest() throws Exception {
+        try (ContentSink sink = new ContentSink(10)) {
+            Assert.assertNull(sink.getContent());
+            sink.write("   ");
+            Assert.assertTrue(sink.isBlank());
+            sink.write("0123456789");
+            Assert.assertFalse(sink.isBlank());
+            Assert.assertTrue(sink.isFull());
+            Assert.assertTrue(sink.isTruncated());
+            Assert.assertEquals("   0123456", sink.getContent());
+
+            sink.reset();
+            Assert.assertNull(sink.getContent());
+            Assert.assertFalse(sink.isTruncated());
+        }
+    }
+
+    @Test
+    public void surrogateTest() throws Exception {
+        // A surrogate pair is not split at the maximum size
+        try (ContentSink sink = new ContentSink(4)) {
+            sink.write("ab\uD83D\uDE00".toCharArray(), 0, 4);
+            Assert.assertFalse(sink.isTruncated());
+            sink.write("abc\uD83D\uDE00");
+            Assert.assertTrue(sink.isTruncated());
+            Assert.assertTrue(sink.isFull());
+            Assert.assertEquals("ab\uD83D\uDE00", sink.getContent());
+
+            sink.reset();
+            sink.write("abc\uD83D\uDE00");
+            Assert.assertEquals("abc", sink.getContent());
+
+            // A pair written in two parts loses its high surrogate when the low one is dropped
+            sink.reset();
+            sink.write("abc");
+            sink.append('\uD83D');
+            sink.append('\uDE00');
+            Assert.assertEquals("abc", sink.getContent());
+        }
+    }
+
+    @Test
+    public void pdfTest() throws Exception {
+        // The text of a PDF stops at the maximum size
+        try (ProcessingSession session = new ProcessingSession(Paths.get(getResource(FILE_PDF).toURI()));
+             ContentSink sink = new ContentSink(1000)) {
+            FormatHandlerUtil.find(MimeType.APPLICATION_PDF).extractContent("eng", session, sink);
+            Assert.assertTrue(sink.isTruncated());
+            Assert.assertEquals(1000, sink.getContent().length());
+            Assert.assertTrue(sink.getContent().contains("Universal Declaration of Human Rights"));
+        }
+    }
+}
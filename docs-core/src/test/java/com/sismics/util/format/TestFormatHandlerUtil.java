@@ -0,0 +1,40 @@
+package com.sismics.util.format;
+
+import com.google.common.io.Closer;
+import com.sismics.BaseTest;
+import com.sismics.docs.core.util.format.FormatHandler;
+import com.sismics.docs.core.util.format.FormatHandlerUtil;
+import com.sismics.docs.core.util.format.ImageFormatHandler;
+import com.sismics.util.mime.MimeType;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+
+/**
+ * Test of {@link FormatHandlerUtil}.
+ */
+public class TestFormatHandlerUtil extends BaseTest {
+    @Test
+    public void findTest() throws Exception {
+        // One shared handler per format
+        FormatHandler imageFormatHandler = FormatHandlerUtil.find(MimeType.IMAGE_JPEG);
+        Assert.assertTrue(imageFormatHandler instanceof ImageFormatHandler);
+        Assert.assertSame(imageFormatHandler, FormatHandlerUtil.find(MimeType.IMAGE_PNG));
+        Assert.assertSame(FormatHandlerUtil.find(MimeType.APPLICATION_PDF), FormatHandlerUtil.find(MimeType.APPLICATION_PDF));
+        Assert.assertNull(FormatHandlerUtil.find(MimeType.APPLICATION_ZIP));
+        Assert.assertNull(FormatHandlerUtil.find(null));
+
+        // The image type is read from the file, not from the last MIME type looked up
+        try (PDDocument doc = new PDDocument(MemoryUsageSetting.setupMainMemoryOnly());
+             Closer closer = Closer.create()) {
+            for (String fileName : new String[] { FILE_JPG, FILE_PNG, FILE_GIF }) {
+                imageFormatHandler.appendToPdf(Paths.get(getResource(fileName).toURI()), doc, true, 10,
+                        MemoryUsageSetting.setupMainMemoryOnly(), closer);
+            }
+            Assert.assertEquals(3, doc.getNumberOfPages());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.sismics.util.format;
+
+import com.sismics.BaseTest;
+import com.sismics.docs.core.model.jpa.File;
+import com.sismics.docs.core.util.DirectoryUtil;
+import com.sismics.docs.core.util.format.DocxFormatHandler;
+import com.sismics.docs.core.util.format.ProcessingSession;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test of {@link ProcessingSession}.
+ */
+public class TestProcessingSession extends BaseTest {
+    @Test
+    public void convertedPdfTest() throws Exception {
+        Path file = Paths.get(getResource(FILE_PDF).toURI());
+        File storedFile = new File();
+        storedFile.setId(UUID.randomUUID().toString());
+        storedFile.setUserId("admin");
+        storedFile.setName("converted_pdf_test");
+        Path storedPdfFile = DirectoryUtil.getStorageDirectory(storedFile).resolve(storedFile.getName() + "_pdf");
+        Files.deleteIfExists(storedPdfFile);
+
+        // The first session converts the file and stores the PDF
+        AtomicInteger conversionCount = new AtomicInteger();
+        ProcessingSession.PdfConversion conversion = (pdfFile, outputStream) -> {
+            conversionCount.incrementAndGet();
+            Files.copy(pdfFile, outputStream);
+        };
+        try (ProcessingSession session = new ProcessingSession(file, storedFile, null)) {
+            Path convertedPdfFile = session.getConvertedPdf(conversion);
+            Assert.assertSame(convertedPdfFile, session.getConvertedPdf(conversion));
+            Assert.assertEquals(Files.size(file), Files.size(convertedPdfFile));
+        }
+        Assert.assertEquals(1, conversionCount.get());
+        Assert.assertTrue(Files.exists(storedPdfFile));
+
+        // The next sessions reuse the stored PDF
+        try (ProcessingSession session = new ProcessingSession(file, storedFile, null)) {
+            Assert.assertEquals(Files.size(file), Files.size(session.getConvertedPdf(conversion)));
+            Assert.assertTrue(session.getPdfDocument(session.getConvertedPdf(conversion)).getNumberOfPages() > 0);
+        }
+        Assert.assertEquals(1, conversionCount.get());
+
+        // A file which is not stored is converted in the session only
+        try (ProcessingSession session = new ProcessingSession(Paths.get(getResource(FILE_DOCX).toURI()))) {
+            Assert.assertNotNull(new DocxFormatHandler().generateThumbnail(session));
+        }
+        Files.deleteIfExists(storedPdfFile);
+    }
+}
@@ -0,0 +1,60 @@
+package com.sismics.util.format;
+
+import com.sismics.BaseTest;
+import com.sismics.docs.core.util.format.TextPlainFormatHandler;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Test of {@link TextPlainFormatHandler}.
+ */
+public class TestTextPlainFormatHandler extends BaseTest {
+    @Test
+    public void thumbnailTest() throws Exception {
+        TextPlainFormatHandler formatHandler = new TextPlainFormatHandler();
+        BufferedImage image = formatHandler.generateThumbnail(Paths.get(getResource(FILE_TXT).toURI()));
+        Assert.assertEquals(595, image.getWidth());
+        Assert.assertEquals(842, image.getHeight());
+        Assert.assertTrue(hasText(image));
+
+        // Only the first page of a big file is read
+        Path file = Files.createTempFile("big", ".csv");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < 500000; i++) {
+                    writer.write("line " + i + ",\tsome value,another value which is long enough to be wrapped on the next line of the page\n");
+                }
+            }
+            long startTime = System.currentTimeMillis();
+            image = formatHandler.generateThumbnail(file);
+            Assert.assertTrue(hasText(image));
+            Assert.assertTrue(System.currentTimeMillis() - startTime < 5000);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Returns true if some text is drawn on an image.
+     *
+     * @param image Image
+     * @return True if a pixel is not white
+     */
+    private static boolean hasText(BufferedImage image) {
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                if (image.getRGB(x, y) != 0xFFFFFFFF) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
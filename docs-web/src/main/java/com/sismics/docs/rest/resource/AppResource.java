@@ -19,18 +19,24 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Strings;
 import com.sismics.docs.core.constant.ConfigType;
 import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.constant.ExternalTool;
+import com.sismics.docs.core.constant.FileProcessingPriority;
 import com.sismics.docs.core.dao.ConfigDao;
 import com.sismics.docs.core.dao.DocumentDao;
 import com.sismics.docs.core.dao.FileDao;
 import com.sismics.docs.core.dao.GroupDao;
 import com.sismics.docs.core.dao.UserDao;
+import com.sismics.docs.core.event.CheckIndexAsyncEvent;
 import com.sismics.docs.core.event.RebuildIndexAsyncEvent;
 import com.sismics.docs.core.model.context.AppContext;
+import com.sismics.docs.core.model.context.FileProcessingExecutor;
+import com.sismics.docs.core.model.context.ProcessSupervisor;
 import com.sismics.docs.core.model.jpa.Config;
 import com.sismics.docs.core.model.jpa.File;
 import com.sismics.docs.core.service.InboxService;
 import com.sismics.docs.core.util.ConfigUtil;
 import com.sismics.docs.core.util.DirectoryUtil;
+import com.sismics.docs.core.util.indexing.IndexRebuilder;
 import com.sismics.docs.core.util.jpa.PaginatedList;
 import com.sismics.docs.core.util.jpa.PaginatedLists;
 import com.sismics.docs.rest.constant.BaseFunction;
@@ -79,6 +85,22 @@ public class AppResource extends BaseResource {
      * @apiSuccess {Boolean} guest_login True if guest login is enabled
      * @apiSuccess {String} default_language Default platform language
      * @apiSuccess {Number} queued_tasks Number of queued tasks waiting to be processed
+     * @apiSuccess {Object} file_processing File processing executor
+     * @apiSuccess {Number} file_processing.threads Number of processing threads
+     * @apiSuccess {Number} file_processing.active Number of files being processed
+     * @apiSuccess {Number} file_processing.queue_capacity Maximum number of queued files
+     * @apiSuccess {Number} file_processing.queued_interactive Number of queued files uploaded or reprocessed by users
+     * @apiSuccess {Number} file_processing.queued_bulk Number of queued files reprocessed in bulk
+     * @apiSuccess {Number} file_processing.completed Number of processed files
+     * @apiSuccess {Number} file_processing.failed Number of failed processings
+     * @apiSuccess {Number} file_processing.average_wait_time Average time spent in the queue (in milliseconds)
+     * @apiSuccess {Object} external_processes External processes by tool (tesseract, ffmpeg, mediainfo)
+     * @apiSuccess {Number} external_processes.tesseract.max_processes Maximum number of concurrent processes
+     * @apiSuccess {Number} external_processes.tesseract.running Number of running processes
+     * @apiSuccess {Number} external_processes.tesseract.runs Number of processes run
+     * @apiSuccess {Number} external_processes.tesseract.failures Number of failed processes, timeouts included
+     * @apiSuccess {Number} external_processes.tesseract.timeouts Number of processes killed after their timeout
+     * @apiSuccess {Number} external_processes.tesseract.p95_duration 95th percentile of the duration of the last processes (in milliseconds)
      * @apiSuccess {String} total_memory Allocated JVM memory (in bytes)
      * @apiSuccess {String} free_memory Free JVM memory (in bytes)
      * @apiSuccess {String} document_count Number of documents
@@ -100,12 +122,25 @@ public class AppResource extends BaseResource {
         String defaultLanguage = ConfigUtil.getConfigStringValue(ConfigType.DEFAULT_LANGUAGE);
         UserDao userDao = new UserDao();
         DocumentDao documentDao = new DocumentDao();
+        FileProcessingExecutor fileProcessingExecutor = AppContext.getInstance().getFileProcessingExecutor();
         String globalQuotaStr = System.getenv(Constants.GLOBAL_QUOTA_ENV);
         long globalQuota = 0;
         if (!Strings.isNullOrEmpty(globalQuotaStr)) {
             globalQuota = Long.valueOf(globalQuotaStr);
         }
 
+        ProcessSupervisor processSupervisor = AppContext.getInstance().getProcessSupervisor();
+        JsonObjectBuilder externalProcesses = Json.createObjectBuilder();
+        for (ExternalTool tool : ExternalTool.values()) {
+            externalProcesses.add(tool.name().toLowerCase(), Json.createObjectBuilder()
+                    .add("max_processes", processSupervisor.getMaxProcesses(tool))
+                    .add("running", processSupervisor.getRunningCount(tool))
+                    .add("runs", processSupervisor.getRunCount(tool))
+                    .add("failures", processSupervisor.getFailureCount(tool))
+                    .add("timeouts", processSupervisor.getTimeoutCount(tool))
+                    .add("p95_duration", processSupervisor.getP95Duration(tool)));
+        }
+
         JsonObjectBuilder response = Json.createObjectBuilder()
                 .add("current_version", currentVersion.replace("-SNAPSHOT", ""))
                 .add("min_version", minVersion)
@@ -113,6 +148,16 @@ public class AppResource extends BaseResource {
                 .add("ocr_enabled", ocrEnabled)
                 .add("default_language", defaultLanguage)
                 .add("queued_tasks", AppContext.getInstance().getQueuedTaskCount())
+                .add("file_processing", Json.createObjectBuilder()
+                        .add("threads", fileProcessingExecutor.getThreadCount())
+                        .add("active", fileProcessingExecutor.getActiveCount())
+                        .add("queue_capacity", fileProcessingExecutor.getQueueCapacity())
+                        .add("queued_interactive", fileProcessingExecutor.getQueuedCount(FileProcessingPriority.INTERACTIVE))
+                        .add("queued_bulk", fileProcessingExecutor.getQueuedCount(FileProcessingPriority.BULK))
+                        .add("completed", fileProcessingExecutor.getCompletedCount())
+                        .add("failed", fileProcessingExecutor.getFailedCount())
+                        .add("average_wait_time", fileProcessingExecutor.getAverageWaitTime()))
+                .add("external_processes", externalProcesses)
                 .add("total_memory", Runtime.getRuntime().totalMemory())
                 .add("free_memory", Runtime.getRuntime().freeMemory())
                 .add("document_count", documentDao.getDocumentCount())
@@ -643,6 +688,89 @@ public class AppResource extends BaseResource {
         return Response.ok().entity(response.build()).build();
     }
 
+    /**
+     * Get the progress of the search index rebuild.
+     *
+     * @api {get} /app/batch/reindex Get the progress of the search index rebuild
+     * @apiName GetAppBatchReindex
+     * @apiGroup App
+     * @apiSuccess {String="IDLE","RUNNING","DONE","FAILED"} status Status of the last rebuild
+     * @apiSuccess {String} [partition] Index partition being rebuilt
+     * @apiSuccess {String="DOCUMENT","FILE"} [phase] Current phase
+     * @apiSuccess {Boolean} resumed True if the rebuild has been resumed from a checkpoint
+     * @apiSuccess {Number} [start_date] Start date (timestamp)
+     * @apiSuccess {Number} [end_date] End date (timestamp)
+     * @apiSuccess {Number} document_count Number of documents indexed
+     * @apiSuccess {Number} document_total Number of documents to index
+     * @apiSuccess {Number} file_count Number of files indexed
+     * @apiSuccess {Number} file_total Number of files to index
+     * @apiError (client) ForbiddenError Access denied
+     * @apiPermission admin
+     * @apiVersion 1.12.0
+     *
+     * @return Response
+     */
+    @GET
+    @Path("batch/reindex")
+    public Response batchReindexProgress() {
+        if (!authenticate()) {
+            throw new ForbiddenClientException();
+        }
+        checkBaseFunction(BaseFunction.ADMIN);
+
+        IndexRebuilder indexRebuilder = AppContext.getInstance().getIndexRebuilder();
+        JsonObjectBuilder response = Json.createObjectBuilder()
+                .add("status", indexRebuilder.getStatus().name())
+                .add("resumed", indexRebuilder.isResumed())
+                .add("document_count", indexRebuilder.getDocumentCount())
+                .add("document_total", indexRebuilder.getDocumentTotal())
+                .add("file_count", indexRebuilder.getFileCount())
+                .add("file_total", indexRebuilder.getFileTotal());
+        if (indexRebuilder.getPartition() != null) {
+            response.add("partition", indexRebuilder.getPartition());
+        }
+        if (indexRebuilder.getPhase() != null) {
+            response.add("phase", indexRebuilder.getPhase().name());
+        }
+        if (indexRebuilder.getStartDate() != null) {
+            response.add("start_date", indexRebuilder.getStartDate());
+        }
+        if (indexRebuilder.getEndDate() != null) {
+            response.add("end_date", indexRebuilder.getEndDate());
+        }
+        return Response.ok().entity(response.build()).build();
+    }
+
+    /**
+     * Verify the integrity of the search index.
+     * The documents of the corrupted parts of the index are indexed again.
+     *
+     * @api {post} /app/batch/check_index Verify the integrity of the search index
+     * @apiName PostAppBatchCheckIndex
+     * @apiGroup App
+     * @apiSuccess {String} status Status OK
+     * @apiError (client) ForbiddenError Access denied
+     * @apiPermission admin
+     * @apiVersion 1.12.0
+     *
+     * @return Response
+     */
+    @POST
+    @Path("batch/check_index")
+    public Response batchCheckIndex() {
+        if (!authenticate()) {
+            throw new ForbiddenClientException();
+        }
+        checkBaseFunction(BaseFunction.ADMIN);
+
+        ThreadLocalContext.get().addAsyncEvent(new CheckIndexAsyncEvent());
+
+        // Always return OK
+        JsonObjectBuilder response = Json.createObjectBuilder()
+                .add("status", "ok");
+        return Response.ok().entity(response.build()).build();
+    }
+
     /**
      * Clean storage.
      *
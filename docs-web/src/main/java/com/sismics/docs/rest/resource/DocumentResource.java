@@ -7,7 +7,9 @@ import java.nio.file.StandardCopyOption;
 import java.text.MessageFormat;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -405,6 +407,8 @@ public class DocumentResource extends BaseResource {
      * @apiSuccess {Object[]} documents List of documents
      * @apiSuccess {String} documents.id ID
      * @apiSuccess {String} documents.highlight Search highlight (for fulltext search)
+     * @apiSuccess {String} [documents.highlight_file_id] ID of the highlighted file, when its pages are indexed
+     * @apiSuccess {Number[]} [documents.highlight_pages] Matching pages of the highlighted file (one-based)
      * @apiSuccess {String} documents.file_id Main file ID
      * @apiSuccess {String} documents.title Title
      * @apiSuccess {String} documents.description Description
@@ -426,6 +430,22 @@ public class DocumentResource extends BaseResource {
      * @apiSuccess {String} documents.files.mimetype MIME type
      * @apiSuccess {String} documents.files.create_date Create date (timestamp)
      * @apiSuccess {String[]} suggestions List of search suggestions
+     * @apiSuccess {Boolean} partial True if the search time budget has been exhausted, the documents and counts are incomplete
+     * @apiSuccess {Object} facets Number of matching documents by value (empty if the search is not resolved by the index)
+     * @apiSuccess {Object[]} facets.tags Tags, accessible by the current user
+     * @apiSuccess {String} facets.tags.id ID
+     * @apiSuccess {String} facets.tags.name Name
+     * @apiSuccess {String} facets.tags.color Color
+     * @apiSuccess {Number} facets.tags.count Number of documents
+     * @apiSuccess {Object[]} facets.mime_types MIME types of the files
+     * @apiSuccess {String} facets.mime_types.mimetype MIME type
+     * @apiSuccess {Number} facets.mime_types.count Number of documents
+     * @apiSuccess {Object[]} facets.languages Languages
+     * @apiSuccess {String} facets.languages.language Language
+     * @apiSuccess {Number} facets.languages.count Number of documents
+     * @apiSuccess {Object[]} facets.creators Creators
+     * @apiSuccess {String} facets.creators.username Username
+     * @apiSuccess {Number} facets.creators.count Number of documents
      *
      * @apiError (client) ForbiddenError Access denied
      * @apiError (server) SearchError Error searching in documents
@@ -475,6 +495,7 @@ public class DocumentResource extends BaseResource {
         TagDao tagDao = new TagDao();
         PaginatedList<DocumentDto> paginatedList = PaginatedLists.create(limit, offset);
         List<String> suggestionList = Lists.newArrayList();
+        Map<String, Map<String, Long>> facetMap = new HashMap<>();
         SortCriteria sortCriteria = new SortCriteria(sortColumn, asc);
 
         List<TagDto> allTagDtoList = tagDao.findByCriteria(new TagCriteria().setTargetIdList(getTargetIdList(null)), null);
@@ -500,7 +521,7 @@ public class DocumentResource extends BaseResource {
 
         documentCriteria.setTargetIdList(getTargetIdList(null));
         try {
-            AppContext.getInstance().getIndexingHandler().findByCriteria(paginatedList, suggestionList, documentCriteria, sortCriteria);
+            AppContext.getInstance().getIndexingHandler().findByCriteria(paginatedList, suggestionList, facetMap, documentCriteria, sortCriteria);
         } catch (Exception e) {
             throw new ServerException("SearchError", "Error searching in documents", e);
         }
@@ -538,6 +559,14 @@ public class DocumentResource extends BaseResource {
                     .add("highlight", JsonUtil.nullable(documentDto.getHighlight()))
                     .add("file_count", filesCount)
                     .add("tags", createTagsArrayBuilder(tagDtoList));
+            if (documentDto.getHighlightPageList() != null) {
+                JsonArrayBuilder pages = Json.createArrayBuilder();
+                for (Integer page : documentDto.getHighlightPageList()) {
+                    pages.add(page);
+                }
+                documentObjectBuilder.add("highlight_file_id", documentDto.getHighlightFileId())
+                        .add("highlight_pages", pages);
+            }
 
             if (Boolean.TRUE == files) {
                 JsonArrayBuilder filesArrayBuilder = Json.createArrayBuilder();
@@ -556,11 +585,83 @@ public class DocumentResource extends BaseResource {
 
         response.add("total", paginatedList.getResultCount())
                 .add("documents", documents)
-                .add("suggestions", suggestions);
+                .add("suggestions", suggestions)
+                .add("partial", paginatedList.isPartial())
+                .add("facets", createFacetsObjectBuilder(facetMap, allTagDtoList));
 
         return Response.ok().entity(response.build()).build();
     }
 
+    /**
+     * Create the JSON facets of a search, sorted by decreasing number of documents.
+     *
+     * @param facetMap Number of documents by value, by facet field
+     * @param allTagDtoList Tags accessible by the current user
+     * @return Facets object builder
+     */
+    private JsonObjectBuilder createFacetsObjectBuilder(Map<String, Map<String, Long>> facetMap, List<TagDto> allTagDtoList) {
+        JsonObjectBuilder facets = Json.createObjectBuilder();
+        if (facetMap.isEmpty()) {
+            return facets;
+        }
+
+        // Tags not accessible by the current user are not disclosed
+        JsonArrayBuilder tags = Json.createArrayBuilder();
+        Map<String, Long> tagFacetMap = facetMap.get("tag");
+        allTagDtoList.stream()
+                .filter(tagDto -> tagFacetMap.containsKey(tagDto.getId()))
+                .sorted(Comparator.comparing((TagDto tagDto) -> tagFacetMap.get(tagDto.getId())).reversed())
+                .forEach(tagDto -> tags.add(Json.createObjectBuilder()
+                        .add("id", tagDto.getId())
+                        .add("name", tagDto.getName())
+                        .add("color", tagDto.getColor())
+                        .add("count", tagFacetMap.get(tagDto.getId()))));
+
+        // The usernames of all the creators are loaded at once
+        JsonArrayBuilder creators = Json.createArrayBuilder();
+        Map<String, Long> creatorFacetMap = facetMap.get("creator");
+        Map<String, String> usernameMap = new UserDao().getUsernameMap(creatorFacetMap.keySet());
+        for (Map.Entry<String, Long> entry : sortFacet(creatorFacetMap)) {
+            String username = usernameMap.get(entry.getKey());
+            if (username != null) {
+                creators.add(Json.createObjectBuilder()
+                        .add("username", username)
+                        .add("count", entry.getValue()));
+            }
+        }
+
+        JsonArrayBuilder mimeTypes = Json.createArrayBuilder();
+        for (Map.Entry<String, Long> entry : sortFacet(facetMap.get("mime_type"))) {
+            mimeTypes.add(Json.createObjectBuilder()
+                    .add("mimetype", entry.getKey())
+                    .add("count", entry.getValue()));
+        }
+
+        JsonArrayBuilder languages = Json.createArrayBuilder();
+        for (Map.Entry<String, Long> entry : sortFacet(facetMap.get("language"))) {
+            languages.add(Json.createObjectBuilder()
+                    .add("language", entry.getKey())
+                    .add("count", entry.getValue()));
+        }
+
+        return facets.add("tags", tags)
+                .add("mime_types", mimeTypes)
+                .add("languages", languages)
+                .add("creators", creators);
+    }
+
+    /**
+     * Sort the values of a facet by decreasing number of documents.
+     *
+     * @param valueMap Number of documents by value
+     * @return Sorted values
+     */
+    private static List<Map.Entry<String, Long>> sortFacet(Map<String, Long> valueMap) {
+        List<Map.Entry<String, Long>> entryList = Lists.newArrayList(valueMap.entrySet());
+        entryList.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return entryList;
+    }
+
     /**
      * Returns all documents.
      *
@@ -626,6 +727,57 @@ public class DocumentResource extends BaseResource {
         );
     }
 
+    /**
+     * Returns search suggestions for a partial query.
+     *
+     * @api {get} /document/suggest Get search suggestions
+     * @apiDescription Lightweight endpoint for typeahead, no document search is executed
+     * @apiName GetDocumentSuggest
+     * @apiGroup Document
+     * @apiParam {String} search Partial search query
+     * @apiParam {Number} [limit] Maximum number of suggestions (default is <code>10</code>)
+     * @apiSuccess {String[]} suggestions List of search suggestions
+     * @apiError (client) ForbiddenError Access denied
+     * @apiError (client) ValidationError Validation error
+     * @apiError (server) SearchError Error searching in documents
+     * @apiPermission user
+     * @apiVersion 1.12.0
+     *
+     * @param search Search query
+     * @param limit Maximum number of suggestions
+     * @return Response
+     */
+    @GET
+    @Path("suggest")
+    public Response suggest(
+            @QueryParam("search") String search,
+            @QueryParam("limit") Integer limit) {
+        if (!authenticate()) {
+            throw new ForbiddenClientException();
+        }
+
+        search = ValidationUtil.validateLength(search, "search", 1, 200, false);
+        if (limit == null || limit <= 0 || limit > 50) {
+            limit = 10;
+        }
+
+        List<String> suggestionList;
+        try {
+            suggestionList = AppContext.getInstance().getIndexingHandler().suggestSearchTerms(search, limit);
+        } catch (Exception e) {
+            throw new ServerException("SearchError", "Error searching in documents", e);
+        }
+
+        JsonArrayBuilder suggestions = Json.createArrayBuilder();
+        for (String suggestion : suggestionList) {
+            suggestions.add(suggestion);
+        }
+
+        JsonObjectBuilder response = Json.createObjectBuilder()
+                .add("suggestions", suggestions);
+        return Response.ok().entity(response.build()).build();
+    }
+
     /**
      * Creates a new document.
      *
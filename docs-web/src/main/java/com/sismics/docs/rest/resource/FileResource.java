@@ -223,13 +223,16 @@ public class FileResource extends BaseResource {
               java.nio.file.Path filePath = DirectoryUtil.getStorageDirectory(file).resolve(file.getName());            
               java.nio.file.Path thumbnailFilePath = DirectoryUtil.getStorageDirectory(file).resolve(file.getName() + "_thumb");            
               java.nio.file.Path webFilePath = DirectoryUtil.getStorageDirectory(file).resolve(file.getName() + "_web");            
+              java.nio.file.Path pdfFilePath = DirectoryUtil.getStorageDirectory(file).resolve(file.getName() + "_pdf");
               file.setDocumentId(documentId);
               java.nio.file.Path filePathDest = DirectoryUtil.getStorageDirectory(file).resolve(file.getName());            
               java.nio.file.Path thumbnailFilePathDest = DirectoryUtil.getStorageDirectory(file).resolve(file.getName() + "_thumb");            
               java.nio.file.Path webFilePathDest = DirectoryUtil.getStorageDirectory(file).resolve(file.getName() + "_web");            
+              java.nio.file.Path pdfFilePathDest = DirectoryUtil.getStorageDirectory(file).resolve(file.getName() + "_pdf");
               filePath.toFile().renameTo(filePathDest.toFile());
               thumbnailFilePath.toFile().renameTo(thumbnailFilePathDest.toFile());
               webFilePath.toFile().renameTo(webFilePathDest.toFile());
+              pdfFilePath.toFile().renameTo(pdfFilePathDest.toFile());
             }catch(Exception e){
                 e.printStackTrace();
             }
@@ -326,15 +329,18 @@ public class FileResource extends BaseResource {
         java.nio.file.Path aOriFile = DirectoryUtil.getStorageDirectory(file).resolve(file.getName());
         java.nio.file.Path aOriWebFile = DirectoryUtil.getStorageDirectory(file).resolve(file.getName()+"_web");
         java.nio.file.Path aOriThumbFile = DirectoryUtil.getStorageDirectory(file).resolve(file.getName()+"_thumb");
+        java.nio.file.Path aOriPdfFile = DirectoryUtil.getStorageDirectory(file).resolve(file.getName()+"_pdf");
         if( document_id!=null)
           file.setDocumentId(document_id);
         java.nio.file.Path aDestFile = DirectoryUtil.getStorageDirectory(file).resolve(name);
         java.nio.file.Path aDestWebFile = DirectoryUtil.getStorageDirectory(file).resolve(name+"_web");
         java.nio.file.Path aDestThumbFile = DirectoryUtil.getStorageDirectory(file).resolve(name+"_thumb");
+        java.nio.file.Path aDestPdfFile = DirectoryUtil.getStorageDirectory(file).resolve(name+"_pdf");
 
         aOriFile.toFile().renameTo(aDestFile.toFile());
         aOriWebFile.toFile().renameTo(aDestWebFile.toFile());
         aOriThumbFile.toFile().renameTo(aDestThumbFile.toFile());
+        aOriPdfFile.toFile().renameTo(aDestPdfFile.toFile());
 
         // Update the file
         file.setName(name);
@@ -57,6 +57,13 @@ public class TestAppResource extends BaseJerseyTest {
         Long totalMemory = json.getJsonNumber("total_memory").longValue();
         Assert.assertTrue(totalMemory > 0 && totalMemory > freeMemory);
         Assert.assertEquals(0, json.getJsonNumber("queued_tasks").intValue());
+        JsonObject fileProcessing = json.getJsonObject("file_processing");
+        Assert.assertEquals(0, fileProcessing.getInt("queued_interactive"));
+        Assert.assertEquals(0, fileProcessing.getInt("queued_bulk"));
+        Assert.assertEquals(0, fileProcessing.getInt("active"));
+        JsonObject tesseract = json.getJsonObject("external_processes").getJsonObject("tesseract");
+        Assert.assertTrue(tesseract.getInt("max_processes") > 0);
+        Assert.assertEquals(0, tesseract.getInt("running"));
         Assert.assertFalse(json.getBoolean("guest_login"));
         Assert.assertFalse(json.getBoolean("ocr_enabled"));
         Assert.assertEquals("eng", json.getString("default_language"));
@@ -69,6 +76,22 @@ public class TestAppResource extends BaseJerseyTest {
                 .post(Entity.form(new Form()));
         Assert.assertEquals(Status.OK, Status.fromStatusCode(response.getStatus()));
 
+        // Check the rebuild progress
+        json = target().path("/app/batch/reindex").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .get(JsonObject.class);
+        Assert.assertEquals("DONE", json.getString("status"));
+        Assert.assertEquals("FILE", json.getString("phase"));
+        Assert.assertFalse(json.getBoolean("resumed"));
+        Assert.assertEquals(json.getJsonNumber("document_total").longValue(), json.getJsonNumber("document_count").longValue());
+        Assert.assertEquals(json.getJsonNumber("file_total").longValue(), json.getJsonNumber("file_count").longValue());
+
+        // Check the index integrity
+        response = target().path("/app/batch/check_index").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .post(Entity.form(new Form()));
+        Assert.assertEquals(Status.OK, Status.fromStatusCode(response.getStatus()));
+
         // Clean storage
         response = target().path("/app/batch/clean_storage").request()
                 .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
@@ -8,10 +8,13 @@ import org.glassfish.jersey.media.multipart.MultiPartFeature;
 import org.glassfish.jersey.media.multipart.file.StreamDataBodyPart;
 import org.joda.time.format.DateTimeFormat;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Resources;
+import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.util.ConfigUtil;
 import com.sismics.docs.core.util.DirectoryUtil;
 import com.sismics.util.filter.TokenBasedSecurityFilter;
 
@@ -114,6 +117,7 @@ public class TestDocumentResource extends BaseJerseyTest {
         JsonArray documents = json.getJsonArray("documents");
         JsonArray tags = documents.getJsonObject(0).getJsonArray("tags");
         Assert.assertEquals(2, documents.size());
+        Assert.assertFalse(json.getBoolean("partial"));
         Assert.assertNotNull(documents.getJsonObject(0).get("update_date"));
         Assert.assertEquals(document1Id, documents.getJsonObject(0).getString("id"));
         Assert.assertEquals("eng", documents.getJsonObject(0).getString("language"));
@@ -191,6 +195,14 @@ public class TestDocumentResource extends BaseJerseyTest {
         String suggestion = json.getJsonArray("suggestions").getString(0);
         Assert.assertEquals("document", suggestion);
 
+        // Check typeahead suggestions
+        json = target().path("/document/suggest")
+                .queryParam("search", "docu")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, document1Token)
+                .get(JsonObject.class);
+        Assert.assertEquals("document", json.getJsonArray("suggestions").getString(0));
+
         // Search documents
         Assert.assertEquals(1, searchDocuments("full:uranium full:einstein", document1Token));
         Assert.assertEquals(2, searchDocuments("tit*", document1Token));
@@ -816,6 +828,332 @@ public class TestDocumentResource extends BaseJerseyTest {
         Assert.assertEquals("application/pdf", files.getJsonObject(1).getString("mimetype"));
     }
 
+    /**
+     * Test the search of a PDF indexed by page.
+     * Only run with DOCS_LUCENE_PAGE_INDEXING enabled, by its own test execution.
+     *
+     * @throws Exception e
+     */
+    @Test
+    public void testPageIndexing() throws Exception {
+        Assume.assumeTrue(ConfigUtil.getEnvBooleanValue(Constants.LUCENE_PAGE_INDEXING_ENV, false));
+
+        // Login document_pages
+        clientUtil.createUser("document_pages");
+        String documentPagesToken = clientUtil.login("document_pages");
+
+        // Create a document with a PDF of 10 pages
+        String document1Id = clientUtil.createDocument(documentPagesToken);
+        String file1Id = clientUtil.addFileToDocument(FILE_WIKIPEDIA_PDF, documentPagesToken, document1Id);
+
+        // The matching pages of the file are reported
+        JsonObject json = target().path("/document/list")
+                .queryParam("search", "full:london")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, documentPagesToken)
+                .get(JsonObject.class);
+        Assert.assertEquals(1, json.getInt("total"));
+        JsonObject document = json.getJsonArray("documents").getJsonObject(0);
+        Assert.assertEquals(file1Id, document.getString("highlight_file_id"));
+        assertPages(document.getJsonArray("highlight_pages"), 3, 4, 5, 10);
+        json = target().path("/document/list")
+                .queryParam("search", "full:karlsruhe")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, documentPagesToken)
+                .get(JsonObject.class);
+        assertPages(json.getJsonArray("documents").getJsonObject(0).getJsonArray("highlight_pages"), 1);
+
+        // Processing the file again replaces its pages
+        target().path("/file/" + file1Id + "/process").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, documentPagesToken)
+                .post(Entity.form(new Form()), JsonObject.class);
+        json = target().path("/document/list")
+                .queryParam("search", "full:london")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, documentPagesToken)
+                .get(JsonObject.class);
+        Assert.assertEquals(1, json.getInt("total"));
+        assertPages(json.getJsonArray("documents").getJsonObject(0).getJsonArray("highlight_pages"), 3, 4, 5, 10);
+
+        // Deleting the file deletes all its pages
+        target().path("/file/" + file1Id).request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, documentPagesToken)
+                .delete(JsonObject.class);
+        for (String search : new String[] { "full:london", "full:karlsruhe", "full:folksonomies" }) {
+            json = target().path("/document/list")
+                    .queryParam("search", search)
+                    .request()
+                    .cookie(TokenBasedSecurityFilter.COOKIE_NAME, documentPagesToken)
+                    .get(JsonObject.class);
+            Assert.assertEquals(search, 0, json.getInt("total"));
+        }
+    }
+
+    /**
+     * Assert the pages reported by a search.
+     *
+     * @param pages Pages
+     * @param expectedPages Expected pages
+     */
+    private void assertPages(JsonArray pages, int... expectedPages) {
+        Assert.assertNotNull(pages);
+        Assert.assertEquals(expectedPages.length, pages.size());
+        for (int i = 0; i < expectedPages.length; i++) {
+            Assert.assertEquals(expectedPages[i], pages.getInt(i));
+        }
+    }
+
+    /**
+     * Test a search sorted and paginated by the index.
+     *
+     * @throws Exception e
+     */
+    @Test
+    public void testSearchPaginatedInIndex() throws Exception {
+        // Login admin, the search can be resolved without ACL checks
+        String adminToken = adminToken();
+
+        // Create 3 documents
+        String documentAId = null;
+        for (String title : new String[] { "Sorted_b indexpagination", "Sorted_a indexpagination", "Sorted_c indexpagination" }) {
+            JsonObject json = target().path("/document").request()
+                    .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                    .put(Entity.form(new Form()
+                            .param("title", title)
+                            .param("language", "eng")), JsonObject.class);
+            if (title.startsWith("Sorted_a")) {
+                documentAId = json.getString("id");
+            }
+        }
+
+        // First page sorted by title
+        JsonObject json = target().path("/document/list")
+                .queryParam("search", "indexpagination")
+                .queryParam("sort_column", 1)
+                .queryParam("asc", true)
+                .queryParam("limit", 2)
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .get(JsonObject.class);
+        JsonArray documents = json.getJsonArray("documents");
+        Assert.assertEquals(3, json.getInt("total"));
+        Assert.assertEquals(2, documents.size());
+        Assert.assertEquals("Sorted_a indexpagination", documents.getJsonObject(0).getString("title"));
+        Assert.assertEquals("Sorted_b indexpagination", documents.getJsonObject(1).getString("title"));
+
+        // Second page sorted by title
+        json = target().path("/document/list")
+                .queryParam("search", "indexpagination")
+                .queryParam("sort_column", 1)
+                .queryParam("asc", true)
+                .queryParam("limit", 2)
+                .queryParam("offset", 2)
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .get(JsonObject.class);
+        documents = json.getJsonArray("documents");
+        Assert.assertEquals(3, json.getInt("total"));
+        Assert.assertEquals(1, documents.size());
+        Assert.assertEquals("Sorted_c indexpagination", documents.getJsonObject(0).getString("title"));
+
+        // A new document is visible on the cached search
+        target().path("/document").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .put(Entity.form(new Form()
+                        .param("title", "Sorted_d indexpagination")
+                        .param("language", "eng")), JsonObject.class);
+        json = target().path("/document/list")
+                .queryParam("search", "indexpagination")
+                .queryParam("sort_column", 1)
+                .queryParam("asc", true)
+                .queryParam("limit", 2)
+                .queryParam("offset", 2)
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .get(JsonObject.class);
+        documents = json.getJsonArray("documents");
+        Assert.assertEquals(4, json.getInt("total"));
+        Assert.assertEquals(2, documents.size());
+        Assert.assertEquals("Sorted_d indexpagination", documents.getJsonObject(1).getString("title"));
+
+        // Descending order
+        json = target().path("/document/list")
+                .queryParam("search", "indexpagination")
+                .queryParam("sort_column", 1)
+                .queryParam("asc", false)
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .get(JsonObject.class);
+        Assert.assertEquals("Sorted_d indexpagination", json.getJsonArray("documents").getJsonObject(0).getString("title"));
+
+        // Another user cannot see those documents
+        clientUtil.createUser("indexacl1");
+        String indexAcl1Token = clientUtil.login("indexacl1");
+        json = target().path("/document/list")
+                .queryParam("search", "indexpagination")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, indexAcl1Token)
+                .get(JsonObject.class);
+        Assert.assertEquals(0, json.getInt("total"));
+
+        // Share one document with this user
+        json = target().path("/acl").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .put(Entity.form(new Form()
+                        .param("source", documentAId)
+                        .param("perm", "READ")
+                        .param("target", "indexacl1")
+                        .param("type", "USER")), JsonObject.class);
+        String indexAcl1Id = json.getString("id");
+        json = target().path("/document/list")
+                .queryParam("search", "indexpagination")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, indexAcl1Token)
+                .get(JsonObject.class);
+        Assert.assertEquals(1, json.getInt("total"));
+        Assert.assertEquals(documentAId, json.getJsonArray("documents").getJsonObject(0).getString("id"));
+
+        // Remove the permission, the document is not visible anymore
+        target().path("/acl/" + documentAId + "/READ/" + indexAcl1Id).request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .delete(JsonObject.class);
+        json = target().path("/document/list")
+                .queryParam("search", "indexpagination")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, indexAcl1Token)
+                .get(JsonObject.class);
+        Assert.assertEquals(0, json.getInt("total"));
+
+        // Match a document through its file content, with a highlight
+        clientUtil.addFileToDocument(FILE_DOCUMENT_TXT, adminToken, documentAId);
+        json = target().path("/document/list")
+                .queryParam("search", "full:love")
+                .queryParam("sort_column", 3)
+                .queryParam("asc", false)
+                .queryParam("limit", 100)
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .get(JsonObject.class);
+        documents = json.getJsonArray("documents");
+        JsonObject documentA = null;
+        for (int i = 0; i < documents.size(); i++) {
+            if (documents.getJsonObject(i).getString("id").equals(documentAId)) {
+                documentA = documents.getJsonObject(i);
+            }
+        }
+        Assert.assertNotNull(documentA);
+        Assert.assertTrue(documentA.getString("highlight").contains("<strong>"));
+
+        // Same search sorted on a column unknown to Lucene, resolved by the database
+        json = target().path("/document/list")
+                .queryParam("search", "full:love")
+                .queryParam("sort_column", 5)
+                .queryParam("limit", 100)
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .get(JsonObject.class);
+        documents = json.getJsonArray("documents");
+        documentA = null;
+        for (int i = 0; i < documents.size(); i++) {
+            if (documents.getJsonObject(i).getString("id").equals(documentAId)) {
+                documentA = documents.getJsonObject(i);
+            }
+        }
+        Assert.assertNotNull(documentA);
+        Assert.assertTrue(documentA.getString("highlight").contains("<strong>"));
+    }
+
+    /**
+     * Test the facets of a search.
+     */
+    @Test
+    public void testSearchFacets() throws Exception {
+        // Login facet1
+        clientUtil.createUser("facet1");
+        String facet1Token = clientUtil.login("facet1");
+
+        // Create a tag
+        JsonObject json = target().path("/tag").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, facet1Token)
+                .put(Entity.form(new Form()
+                        .param("name", "FacetTag")
+                        .param("color", "#ff0000")), JsonObject.class);
+        String tagId = json.getString("id");
+
+        // Create 3 documents, 2 of them tagged
+        String document1Id = null;
+        for (int i = 1; i <= 3; i++) {
+            Form form = new Form()
+                    .param("title", "Facet document " + i)
+                    .param("language", i == 3 ? "fra" : "eng");
+            if (i < 3) {
+                form.param("tags", tagId);
+            }
+            json = target().path("/document").request()
+                    .cookie(TokenBasedSecurityFilter.COOKIE_NAME, facet1Token)
+                    .put(Entity.form(form), JsonObject.class);
+            if (i == 1) {
+                document1Id = json.getString("id");
+            }
+        }
+
+        // Add a file to the first document
+        clientUtil.addFileToDocument(FILE_DOCUMENT_TXT, facet1Token, document1Id);
+
+        // Facets of a fulltext search
+        json = target().path("/document/list")
+                .queryParam("search", "facet")
+                .queryParam("sort_column", 3)
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, facet1Token)
+                .get(JsonObject.class);
+        Assert.assertEquals(3, json.getInt("total"));
+        JsonObject facets = json.getJsonObject("facets");
+        JsonArray tags = facets.getJsonArray("tags");
+        Assert.assertEquals(1, tags.size());
+        Assert.assertEquals(tagId, tags.getJsonObject(0).getString("id"));
+        Assert.assertEquals("FacetTag", tags.getJsonObject(0).getString("name"));
+        Assert.assertEquals(2, tags.getJsonObject(0).getInt("count"));
+        JsonArray languages = facets.getJsonArray("languages");
+        Assert.assertEquals(2, languages.size());
+        Assert.assertEquals("eng", languages.getJsonObject(0).getString("language"));
+        Assert.assertEquals(2, languages.getJsonObject(0).getInt("count"));
+        Assert.assertEquals("fra", languages.getJsonObject(1).getString("language"));
+        Assert.assertEquals(1, languages.getJsonObject(1).getInt("count"));
+        JsonArray mimeTypes = facets.getJsonArray("mime_types");
+        Assert.assertEquals(1, mimeTypes.size());
+        Assert.assertEquals("text/plain", mimeTypes.getJsonObject(0).getString("mimetype"));
+        Assert.assertEquals(1, mimeTypes.getJsonObject(0).getInt("count"));
+        JsonArray creators = facets.getJsonArray("creators");
+        Assert.assertEquals(1, creators.size());
+        Assert.assertEquals("facet1", creators.getJsonObject(0).getString("username"));
+        Assert.assertEquals(3, creators.getJsonObject(0).getInt("count"));
+
+        // Facets of a search without fulltext, filtered by tag and MIME type
+        json = target().path("/document/list")
+                .queryParam("search", "tag:FacetTag mime:text/plain")
+                .queryParam("sort_column", 3)
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, facet1Token)
+                .get(JsonObject.class);
+        Assert.assertEquals(1, json.getInt("total"));
+        Assert.assertEquals(document1Id, json.getJsonArray("documents").getJsonObject(0).getString("id"));
+        languages = json.getJsonObject("facets").getJsonArray("languages");
+        Assert.assertEquals(1, languages.size());
+        Assert.assertEquals(1, languages.getJsonObject(0).getInt("count"));
+
+        // Excluding the tag
+        json = target().path("/document/list")
+                .queryParam("search", "!tag:FacetTag")
+                .queryParam("sort_column", 3)
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, facet1Token)
+                .get(JsonObject.class);
+        Assert.assertEquals(1, json.getInt("total"));
+        Assert.assertEquals("Facet document 3", json.getJsonArray("documents").getJsonObject(0).getString("title"));
+        Assert.assertEquals(0, json.getJsonObject("facets").getJsonArray("tags").size());
+    }
+
     /**
      * Test custom metadata.
      */